@@ -1,29 +1,83 @@
 package com.kingmang.ixion;
 
+import com.kingmang.ixion.api.CompiledProgram;
+import com.kingmang.ixion.api.CompilerOptions;
 import com.kingmang.ixion.api.Debugger;
 import com.kingmang.ixion.api.IxApi;
 import com.kingmang.ixion.api.IxionConstant;
+import com.kingmang.ixion.api.ModuleCache;
+import com.kingmang.ixion.codegen.InMemoryJavaCompiler;
+import com.kingmang.ixion.daemon.CompilerDaemon;
+import com.kingmang.ixion.daemon.DaemonClient;
 import com.kingmang.ixion.exception.IxException;
+import com.kingmang.ixion.runner.InProcessRunner;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 public class Ixion {
 
     private String entry;
     private boolean helpRequested = false;
     private boolean compileOnly = false;
+    private boolean inMemory = false;
+    private boolean daemon = false;
+    private boolean connect = false;
     private CompilationTarget target = CompilationTarget.JVM_BYTECODE;
 
+    private static final String STD_HASHES = "std.hashes";
+
+    private final String moduleLocation;
+    private final ModuleCache moduleCache;
+    private final CompilerOptions options = new CompilerOptions();
+
+    public Ixion() {
+        this(System.getProperty("user.dir"), null);
+    }
+
+    /**
+     * @param moduleLocation The directory entry files are resolved against
+     * @param moduleCache Modules kept from earlier compilations, or null to analyze every file
+     */
+    public Ixion(String moduleLocation, ModuleCache moduleCache) {
+        this.moduleLocation = Path.of(moduleLocation).toString();
+        this.moduleCache = moduleCache;
+    }
+
     public static void main(String[] args) {
         Ixion cli = new Ixion();
         cli.parseArguments(args);
+
+        if (cli.daemon) {
+            try {
+                new CompilerDaemon(CompilerDaemon.defaultSocket()).serve();
+            } catch (IOException e) {
+                System.err.println("Could not start the compiler daemon: " + e.getMessage());
+                System.exit(3);
+            }
+            return;
+        }
+
+        if (cli.connect) {
+            String[] forwarded = Arrays.stream(args).filter(arg -> !arg.equals("--connect")).toArray(String[]::new);
+            try {
+                System.exit(new DaemonClient(CompilerDaemon.defaultSocket()).forward(cli.moduleLocation, forwarded));
+            } catch (IOException e) {
+                Debugger.debug("No compiler daemon available, compiling locally: " + e.getMessage());
+            }
+        }
+
         cli.run();
     }
 
-    private void parseArguments(String[] args) {
+    public void parseArguments(String[] args) {
         for (String arg : args) {
             switch (arg) {
                 case "-h":
@@ -36,8 +90,30 @@ public class Ixion {
                 case "--compile-only":
                     compileOnly = true;
                     break;
+                case "--in-memory":
+                    inMemory = true;
+                    break;
+                case "--daemon":
+                    daemon = true;
+                    break;
+                case "--connect":
+                    connect = true;
+                    break;
+                case "--parallel-check":
+                    options.parallelFunctionChecks = true;
+                    break;
+                case "-O0":
+                case "-O1":
+                case "-O2":
+                    options.optimizationLevel = arg.charAt(2) - '0';
+                    break;
+                case "--time-passes":
+                    options.timePasses = true;
+                    break;
                 default:
-                    if (entry == null && !arg.startsWith("-")) {
+                    if (arg.startsWith("--dump-after=")) {
+                        options.dumpAfter.addAll(Arrays.asList(arg.substring("--dump-after=".length()).split(",")));
+                    } else if (entry == null && !arg.startsWith("-")) {
                         entry = arg;
                     }
                     break;
@@ -51,7 +127,14 @@ public class Ixion {
         System.out.println("Options:");
         System.out.println("  -h, --help        Display this help message");
         System.out.println("  --java            Generate Java source code instead of bytecode");
-        System.out.println("  --compile-only    Only compile, do not run\n");
+        System.out.println("  --compile-only    Only compile, do not run");
+        System.out.println("  --in-memory       Compile and run inside the compiler process without writing files");
+        System.out.println("  --daemon          Start a compiler daemon that keeps modules between builds");
+        System.out.println("  --connect         Send the build to a running compiler daemon");
+        System.out.println("  --parallel-check  Type check the function bodies of a file in parallel");
+        System.out.println("  -O0, -O1, -O2     Optimization level, -O0 for fast debug builds, -O2 for release builds (default -O1)");
+        System.out.println("  --time-passes     Report how long each optimization pass takes");
+        System.out.println("  --dump-after=<p>  Print the AST after the passes p, `check` for before any pass or `all`\n");
     }
 
     public void executeBytecode(String className) throws IOException, InterruptedException {
@@ -121,6 +204,23 @@ public class Ixion {
         File[] javaFiles = dir.listFiles((d, name) -> name.endsWith(".java"));
 
         if (javaFiles != null) {
+            var hashes = new Properties();
+            for (File javaFile : javaFiles) {
+                hashes.setProperty(javaFile.getName(), ModuleCache.hash(javaFile));
+            }
+
+            File hashFile = Path.of(IxionConstant.OUT_DIR, STD_HASHES).toFile();
+            if (hashFile.exists()) {
+                var recorded = new Properties();
+                try (var reader = new FileReader(hashFile)) {
+                    recorded.load(reader);
+                }
+                if (recorded.equals(hashes)) {
+                    Debugger.debug("Java sources in `" + directory + "` are up to date");
+                    return;
+                }
+            }
+
             List<String> command = new ArrayList<>();
             command.add("javac");
             command.add("-d");
@@ -140,27 +240,86 @@ public class Ixion {
             if (status != 0) {
                 throw new IOException("Java compilation failed with exit code " + status);
             }
+
+            try (var writer = new FileWriter(hashFile)) {
+                hashes.store(writer, "Hashes of the compiled Java sources");
+            }
         }
     }
 
+    /**
+     * Compiles the Java sources of a directory in memory
+     * @param directory The directory containing the Java files
+     * @return Map of binary class names to class file bytes
+     * @throws IOException If reading or compiling the sources fails
+     */
+    public Map<String, byte[]> compileAllJavaFilesInMemory(String directory) throws IOException {
+        File[] javaFiles = new File(directory).listFiles((d, name) -> name.endsWith(".java"));
+        Map<String, String> sources = new LinkedHashMap<>();
+
+        if (javaFiles != null) {
+            for (File javaFile : javaFiles) {
+                String className = javaFile.getName().substring(0, javaFile.getName().length() - ".java".length());
+                sources.put(className, Files.readString(javaFile.toPath()));
+            }
+        }
+
+        return new InMemoryJavaCompiler().compile(sources);
+    }
+
+    /**
+     * Compiles the entry file and the standard library in memory
+     * @param api The compiler instance
+     * @param moduleLocation The root directory of the project
+     * @param entryFileName The file to compile
+     * @return The compiled program including the standard library classes
+     */
+    private CompiledProgram compileInMemory(IxApi api, String moduleLocation, String entryFileName)
+            throws IOException, IxException.CompilerError {
+        String stdDir = Path.of(moduleLocation, "std").toString();
+        Map<String, byte[]> stdClasses = compileAllJavaFilesInMemory(stdDir);
+
+        var apiTarget = target == CompilationTarget.JAVA_SOURCE
+                ? IxApi.CompilationTarget.JAVA_SOURCE
+                : IxApi.CompilationTarget.JVM_BYTECODE;
+        CompiledProgram program = api.compileInMemory(moduleLocation, entryFileName, apiTarget);
+        program.classes().putAll(stdClasses);
+        return program;
+    }
+
     public void run() {
+        int status = execute();
+        if (status != 0) System.exit(status);
+    }
+
+    /**
+     * Compiles and runs the program selected by the parsed arguments
+     * @return The exit status of the compiler
+     */
+    public int execute() {
         if (helpRequested) {
             printHelp();
-            return;
+            return 0;
         }
 
         if (entry == null) {
             System.err.println("Error: Entry file is required");
             printHelp();
-            System.exit(1);
-            return;
+            return 1;
         }
 
-        var api = new IxApi();
-        String pwd = System.getProperty("user.dir");
-        String moduleLocation = Path.of(pwd).toString();
+        var api = new IxApi(moduleCache, options);
 
         try {
+            if (inMemory) {
+                CompiledProgram program = compileInMemory(api, moduleLocation, entry);
+                if (!compileOnly) {
+                    int status = new InProcessRunner().execute(program);
+                    if (status != 0) System.err.println("Process finished with exit code " + status);
+                }
+                return 0;
+            }
+
             String stdDir = Path.of(moduleLocation, "std").toString();
             compileAllJavaFiles(stdDir);
 
@@ -187,13 +346,15 @@ public class Ixion {
 
         } catch (FileNotFoundException e) {
             System.err.println("File not found: " + e.getMessage());
-            System.exit(2);
+            return 2;
         } catch (IxException.CompilerError e) {
-            IxApi.exit(e.getMessage(), 1);
+            System.err.println(e.getMessage());
+            return 1;
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
-            System.exit(3);
+            return 3;
         }
+        return 0;
     }
 
     public enum CompilationTarget {
@@ -203,23 +364,18 @@ public class Ixion {
 
     // for unit tests:
 
-    public String getCompiledProgramOutput(String entryFileName) throws IOException, InterruptedException {
+    public String getCompiledProgramOutput(String entryFileName) {
         StringBuilder output = new StringBuilder();
 
         if (entryFileName == null || entryFileName.isEmpty()) {
             return "Error: Entry file name is required";
         }
 
-        var api = new IxApi();
-        String moduleLocation = System.getProperty("user.dir");
+        var api = new IxApi(moduleCache, options);
 
         try {
-            String stdDir = Path.of(moduleLocation, "std").toString();
-            compileAllJavaFiles(stdDir);
-
-            String classPath = api.compile(moduleLocation, entryFileName);
-            output.append(executeBytecodeAndGetOutput(classPath));
-
+            CompiledProgram program = compileInMemory(api, moduleLocation, entryFileName);
+            appendResult(output, new InProcessRunner().capture(program));
         } catch (Exception e) {
             output.append("Error: ").append(e.getMessage());
         }
@@ -227,34 +383,40 @@ public class Ixion {
         return output.toString();
     }
 
-    private String executeBytecodeAndGetOutput(String className) throws IOException, InterruptedException {
-        ProcessBuilder processBuilder = new ProcessBuilder(
-                "java",
-                "--enable-preview",
-                "-cp",
-                IxionConstant.OUT_DIR + System.getProperty("path.separator") + "target/classes",
-                className
-        );
-
-        return executeProcessAndGetOutput(processBuilder);
-    }
-
-    private String executeProcessAndGetOutput(ProcessBuilder processBuilder) throws IOException, InterruptedException {
-        Process process = processBuilder.start();
-
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    /**
+     * Builds the entry file into class files under the output directory like a normal run,
+     * then runs the written classes in this process
+     * @param entryFileName The file to compile
+     * @return The output of the program
+     */
+    public String getBuiltProgramOutput(String entryFileName) {
         StringBuilder output = new StringBuilder();
-        String line;
 
-        while ((line = reader.readLine()) != null) {
-            output.append(line).append(System.lineSeparator());
-        }
+        var api = new IxApi(moduleCache, options);
 
-        int status = process.waitFor();
-        if (status != 0) {
-            output.append("Process finished with exit code ").append(status);
+        try {
+            String mainClass = api.compile(moduleLocation, entryFileName);
+            Map<String, byte[]> classes = compileAllJavaFilesInMemory(Path.of(moduleLocation, "std").toString());
+
+            Path outDir = Path.of(moduleLocation, IxionConstant.OUT_DIR);
+            try (var files = Files.walk(outDir)) {
+                for (Path file : files.filter(f -> f.toString().endsWith(".class")).toList()) {
+                    String name = outDir.relativize(file).toString().replace(File.separatorChar, '.');
+                    classes.put(name.substring(0, name.length() - ".class".length()), Files.readAllBytes(file));
+                }
+            }
+            appendResult(output, new InProcessRunner().capture(new CompiledProgram(mainClass, classes)));
+        } catch (Exception e) {
+            output.append("Error: ").append(e.getMessage());
         }
 
         return output.toString();
     }
-}
\ No newline at end of file
+
+    private static void appendResult(StringBuilder output, InProcessRunner.ExecutionResult result) {
+        output.append(result.output());
+        if (result.exitCode() != 0) {
+            output.append("Process finished with exit code ").append(result.exitCode());
+        }
+    }
+}
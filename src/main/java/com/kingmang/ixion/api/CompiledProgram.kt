@@ -0,0 +1,9 @@
+package com.kingmang.ixion.api
+
+/**
+ * Classes of a compiled program kept in memory
+ * @param mainClass Binary name of the class holding `main`
+ * @param classes Map of binary class names to class file bytes
+ */
+@JvmRecord
+data class CompiledProgram(val mainClass: String, val classes: MutableMap<String, ByteArray>)
@@ -0,0 +1,39 @@
+package com.kingmang.ixion.api
+
+import com.kingmang.ixion.optimizer.Pass
+import com.kingmang.ixion.optimizer.PassManager
+
+/**
+ * Switches controlling how a program is compiled
+ */
+class CompilerOptions {
+    /**
+     * Type check the function bodies of a file concurrently once their signatures are resolved
+     */
+    @JvmField
+    var parallelFunctionChecks: Boolean = false
+
+    /**
+     * Passes with a level up to this one run between type checking and code generation, 0 runs none
+     */
+    @JvmField
+    var optimizationLevel: Int = 1
+
+    /**
+     * Passes available to the pipeline, in the order they run
+     */
+    @JvmField
+    val passes: MutableList<Pass> = PassManager.defaultPasses()
+
+    /**
+     * Report how long each pass takes on every file
+     */
+    @JvmField
+    var timePasses: Boolean = false
+
+    /**
+     * Names of the passes after which the AST is printed, see [PassManager.CHECK] and [PassManager.ALL]
+     */
+    @JvmField
+    val dumpAfter: MutableSet<String> = HashSet()
+}
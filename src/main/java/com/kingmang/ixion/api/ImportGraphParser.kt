@@ -0,0 +1,158 @@
+package com.kingmang.ixion.api
+
+import com.kingmang.ixion.api.Debugger.debug
+import com.kingmang.ixion.optimizer.PassManager
+import org.apache.commons.io.FilenameUtils
+import java.io.File
+import java.io.FileNotFoundException
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Phaser
+
+/**
+ * Discovers and parses the import graph of a file concurrently
+ * Files are independent until environment building, so every imported file is lexed and parsed on its own
+ * virtual thread, and each normalized path is parsed at most once
+ */
+class ImportGraphParser(private val ixApi: IxApi, private val projectRoot: String) {
+
+    private class Node(val path: String, val relativePath: String, val name: String) {
+        @Volatile
+        var source: IxFile? = null
+
+        @Volatile
+        var cached: Boolean = false
+        val imports: MutableList<Node> = ArrayList()
+    }
+
+    private val nodes: MutableMap<String, Node> = ConcurrentHashMap()
+    private val pending = Phaser(1)
+    private val failures: MutableCollection<Throwable> = ConcurrentLinkedQueue()
+
+    /**
+     * @param relativePath The relative path of the entry file
+     * @param name The name of the entry file
+     * @return The parsed entry file, with every reachable file added to the compilation set
+     * @throws FileNotFoundException If the entry file is not found
+     */
+    @Throws(FileNotFoundException::class)
+    fun parse(relativePath: String, name: String?): IxFile {
+        val baseName = FilenameUtils.removeExtension(FilenameUtils.removeExtension(name))
+        val entry = Node(pathOf(relativePath, baseName), relativePath, baseName)
+        nodes[entry.path] = entry
+
+        Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+            visit(entry, executor)
+            pending.arriveAndAwaitAdvance()
+        }
+
+        for (failure in failures) {
+            if (failure is FileNotFoundException) {
+                failure.printStackTrace()
+                IxApi.exit("Issues with building import tree.", 67)
+            }
+            throw failure
+        }
+
+        revalidateCached()
+
+        for (node in nodes.values) {
+            val source = node.source!!
+            if (!node.cached) {
+                for (i in node.imports) {
+                    source.addImport(i.path, i.source)
+                }
+            }
+            ixApi.compilationSet!!.put(node.path, source)
+        }
+
+        return entry.source!!
+    }
+
+    /**
+     * Parses one file, or takes it from the module cache, then schedules its imports
+     */
+    @Throws(FileNotFoundException::class)
+    private fun visit(node: Node, executor: ExecutorService) {
+        val cached = lookupCached(node)
+        if (cached != null) {
+            debug("Reusing cached `" + cached.file.getName() + "`")
+            node.source = cached
+            node.cached = true
+            for (imported in cached.imports.values) {
+                node.imports.add(schedule(imported!!.relativePath, imported.name!!, executor))
+            }
+            return
+        }
+
+        val source = IxFile(projectRoot, node.relativePath, node.name)
+        debug("Parsing `" + source.file.getName() + "`")
+        node.source = source
+
+        for (i in ixApi.resolveImports(source)) {
+            val relativePath = Path.of(source.relativePath, i.getValue0()).normalize().toString()
+            val name = FilenameUtils.removeExtension(FilenameUtils.getName(i.getValue1()))
+            node.imports.add(schedule(relativePath, name, executor))
+        }
+    }
+
+    /**
+     * Returns the node of a file, submitting its parse the first time the file is seen
+     */
+    private fun schedule(relativePath: String, name: String, executor: ExecutorService): Node {
+        val path = pathOf(relativePath, name)
+        val created = Node(path, relativePath, name)
+        val existing = nodes.putIfAbsent(path, created)
+        if (existing != null) return existing
+
+        pending.register()
+        executor.execute {
+            try {
+                visit(created, executor)
+            } catch (t: Throwable) {
+                failures.add(t)
+            } finally {
+                pending.arriveAndDeregister()
+            }
+        }
+        return created
+    }
+
+    private fun lookupCached(node: Node): IxFile? {
+        val moduleCache = ixApi.moduleCache ?: return null
+        val file = File(node.path)
+        if (!file.exists()) return null
+        val cached = moduleCache.lookup(node.path, ModuleCache.hash(file)) ?: return null
+        return if (cached.pipeline == PassManager(ixApi.options).pipeline()) cached else null
+    }
+
+    /**
+     * A cached module stays valid only while each of its imports resolved to the very module it was analyzed against
+     * Parsing a module again invalidates the cached modules importing it, so this repeats until nothing changes
+     */
+    @Throws(FileNotFoundException::class)
+    private fun revalidateCached() {
+        var changed = true
+        while (changed) {
+            changed = false
+            for (node in nodes.values) {
+                if (!node.cached) continue
+                val source = node.source!!
+                if (node.imports.all { it.source === source.imports.get(it.path) }) continue
+
+                debug("`" + source.file.getName() + "` depends on a changed module, parsing again")
+                node.source = IxFile(projectRoot, node.relativePath, node.name)
+                node.cached = false
+                changed = true
+            }
+        }
+    }
+
+    private fun pathOf(relativePath: String, name: String): String {
+        val path = Path.of(projectRoot, relativePath, name + IxionConstant.EXT).normalize()
+        return FilenameUtils.separatorsToUnix(path.toString())
+    }
+}
@@ -0,0 +1,430 @@
+package com.kingmang.ixion.api
+
+import com.kingmang.ixion.api.Debugger.debug
+import com.kingmang.ixion.exception.IxException
+import com.kingmang.ixion.exception.IxException.CompilerError
+import com.kingmang.ixion.optimizer.AstPrinter
+import com.kingmang.ixion.optimizer.Inliner
+import com.kingmang.ixion.optimizer.PassManager
+import com.kingmang.ixion.runtime.DefType
+import com.kingmang.ixion.runtime.StructType
+import org.apache.commons.io.FilenameUtils
+import java.io.File
+import java.io.FileNotFoundException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Phaser
+
+/**
+ * Compiles a program to class files under [IxionConstant.OUT_DIR], rebuilding only the modules that changed
+ * Every module gets a manifest next to its classes with the hash of its source, the hash of its export
+ * signatures, the export hashes of its imports, the passes it was optimized with, and what it and other modules
+ * added to each other's classes at the time it was built
+ * A module is skipped entirely while its source, its class files, the exports it imports and what other modules
+ * add to its classes are unchanged. Changed modules are analyzed first, and their importers only follow when
+ * the exports they see differ
+ * Every module that has to be analyzed is analyzed before any class is generated, because checking an importer
+ * can change the classes of the modules it imports
+ */
+class IncrementalBuild(private val ixApi: IxApi, private val projectRoot: String) {
+
+    /**
+     * Build record of one module
+     * @param sourceHash Hash of the source the classes were generated from
+     * @param exportHash Hash of the export signatures of the module
+     * @param imports Export hashes of the imported modules, keyed by module
+     * @param pipeline The passes the module was optimized with, see [PassManager.pipeline]
+     * @param imported What other modules added to the classes, see [IxFile.contributions]
+     * @param contributions What the module added to the classes of other modules, keyed by module
+     * @param classes Binary names of the generated classes
+     */
+    data class Manifest(
+        val sourceHash: String,
+        val exportHash: String,
+        val imports: Map<String, String>,
+        val pipeline: String,
+        val imported: Set<String>,
+        val contributions: Map<String, Set<String>>,
+        val classes: List<String>
+    )
+
+    private class Module(
+        val key: String,
+        val relativePath: String,
+        val name: String,
+        val file: File
+    ) {
+        lateinit var hash: String
+        var manifest: Manifest? = null
+        var source: IxFile? = null
+        val imports: MutableList<Module> = ArrayList()
+        var exportHash: String? = null
+        var visiting = false
+        var sorted = false
+        var loaded = false
+    }
+
+    private class CyclicImportException : RuntimeException(null, null, false, false)
+
+    private val pipeline = PassManager(ixApi.options).pipeline()
+    private val modules: MutableMap<String, Module> = ConcurrentHashMap()
+    private val pending = Phaser(1)
+    private val failures: MutableCollection<Throwable> = ConcurrentLinkedQueue()
+    private val order: MutableList<Module> = ArrayList()
+
+    /**
+     * @param filename The entry file
+     * @return The full name of the generated entry class
+     * @throws FileNotFoundException If a file is not found
+     * @throws IxException.CompilerError If compilation errors occur
+     */
+    @Throws(FileNotFoundException::class, CompilerError::class)
+    fun compile(filename: String?): String {
+        val entry = try {
+            discover(FilenameUtils.getPath(filename), FilenameUtils.getName(filename))
+        } catch (e: CyclicImportException) {
+            debug("Cyclic imports, rebuilding every module")
+            val fresh = IxApi(ixApi.moduleCache, ixApi.options)
+            val source = fresh.analyze(projectRoot, filename)
+            fresh.output(fresh.compilationSet!!)
+            return source.fullRelativePath.replace("/", ".")
+        }
+        IxException.killIfErrors(ixApi, "Correct parser errors before continuing.")
+
+        // dumps and timings are only reported by passes that run, so asking for them analyzes everything again
+        val reporting = ixApi.options.timePasses || ixApi.options.dumpAfter.isNotEmpty()
+        val rebuilt = LinkedHashSet<Module>()
+        order.filterTo(rebuilt) { reporting || isOutdated(it) }
+        while (true) {
+            load(rebuilt + rebuilt.flatMap(::contributorsTo))
+            val affected = order.filter { it !in rebuilt && (importsChanged(it) || contributionsChanged(it)) }
+            if (affected.isEmpty()) break
+            rebuilt.addAll(affected)
+        }
+
+        for (module in order) {
+            if (module in rebuilt) {
+                generate(module)
+            } else {
+                debug("`" + module.file.getName() + "` is up to date")
+            }
+        }
+
+        return entry.key.replace("/", ".")
+    }
+
+    /**
+     * Walks the import graph like [ImportGraphParser], visiting every file on its own virtual thread
+     * Imports of unchanged files are read from their manifest, only files whose source changed are parsed
+     * @return The entry module, with [order] holding every module after the modules it imports
+     */
+    @Throws(FileNotFoundException::class)
+    private fun discover(relativePath: String, name: String): Module {
+        val entry = node(relativePath, name)
+        modules[entry.key] = entry
+
+        Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+            visit(entry, executor)
+            pending.arriveAndAwaitAdvance()
+        }
+        failures.firstOrNull()?.let { throw it }
+
+        sort(entry)
+        return entry
+    }
+
+    /**
+     * Reads the imports of one file, then schedules them
+     */
+    @Throws(FileNotFoundException::class)
+    private fun visit(module: Module, executor: ExecutorService) {
+        if (!module.file.exists()) throw FileNotFoundException(module.file.path)
+
+        module.hash = ModuleCache.hash(module.file)
+        val manifest = readManifest(module.key)?.takeIf { it.sourceHash == module.hash }
+        module.manifest = manifest
+
+        if (manifest != null) {
+            for (importKey in manifest.imports.keys) {
+                module.imports.add(schedule(FilenameUtils.getPath(importKey), FilenameUtils.getName(importKey), executor))
+            }
+        } else {
+            val source = parse(module)
+            for (i in ixApi.resolveImports(source)) {
+                val importPath = Path.of(source.relativePath, i.getValue0()).normalize().toString()
+                val importName = FilenameUtils.removeExtension(FilenameUtils.getName(i.getValue1()))
+                module.imports.add(schedule(importPath, importName, executor))
+            }
+        }
+    }
+
+    /**
+     * Returns the module of a file, submitting its visit the first time the file is seen
+     */
+    private fun schedule(relativePath: String, name: String, executor: ExecutorService): Module {
+        val created = node(relativePath, name)
+        val existing = modules.putIfAbsent(created.key, created)
+        if (existing != null) return existing
+
+        pending.register()
+        executor.execute {
+            try {
+                visit(created, executor)
+            } catch (t: Throwable) {
+                failures.add(t)
+            } finally {
+                pending.arriveAndDeregister()
+            }
+        }
+        return created
+    }
+
+    private fun node(relativePath: String, name: String): Module {
+        val baseName = FilenameUtils.removeExtension(FilenameUtils.removeExtension(name))
+        val key = FilenameUtils.separatorsToUnix(Path.of(relativePath, baseName).toString())
+        val file = File(FilenameUtils.separatorsToUnix(Path.of(projectRoot, relativePath, baseName + IxionConstant.EXT).toString()))
+        return Module(key, relativePath, baseName, file)
+    }
+
+    /**
+     * Adds a module to [order] after its imports and links it to them
+     * @throws CyclicImportException If the module imports itself through other modules
+     */
+    private fun sort(module: Module) {
+        if (module.sorted) return
+        if (module.visiting) throw CyclicImportException()
+        module.visiting = true
+        module.imports.forEach(::sort)
+        module.visiting = false
+        module.sorted = true
+        order.add(module)
+    }
+
+    private fun isOutdated(module: Module): Boolean {
+        val manifest = module.manifest ?: return true
+        return manifest.pipeline != pipeline || !manifest.classes.all { classFile(it).exists() }
+    }
+
+    /**
+     * @return Whether an import of an up to date module now exports something else than the module was built against
+     */
+    private fun importsChanged(module: Module): Boolean {
+        return module.imports.any { exportHashOf(it) != module.manifest!!.imports[it.key] }
+    }
+
+    /**
+     * @return Whether other modules now add something else to the classes of an up to date module
+     */
+    private fun contributionsChanged(module: Module): Boolean {
+        return contributionsTo(module) != module.manifest!!.imported
+    }
+
+    private fun exportHashOf(module: Module): String {
+        return module.exportHash ?: module.manifest!!.exportHash
+    }
+
+    /**
+     * @return What every module adds to the classes of this one, as checked now or as recorded when it was built
+     */
+    private fun contributionsTo(module: Module): Set<String> {
+        val contributions = sortedSetOf<String>()
+        for (other in order) {
+            val given = if (other.loaded) other.source!!.contributions else other.manifest!!.contributions
+            given[module.key]?.let(contributions::addAll)
+        }
+        return contributions
+    }
+
+    /**
+     * Instantiations of generic functions only exist once the module asking for them is type checked,
+     * so generating a module needs every module that recorded one analyzed as well
+     * @return The modules not analyzed yet that instantiate generic functions of this one
+     */
+    private fun contributorsTo(module: Module): List<Module> {
+        return order.filter { other ->
+            !other.loaded && other.manifest?.contributions?.get(module.key).orEmpty().any { !it.startsWith(IxFile.MUTABLE) }
+        }
+    }
+
+    /**
+     * Marks the structs that modules which are not analyzed recorded assigning to, so analyzed modules
+     * generate them, and the instantiations of them they create, with mutable fields
+     */
+    private fun applyRecordedMutations() {
+        for (other in order) {
+            if (other.loaded) continue
+            for ((key, members) in other.manifest?.contributions.orEmpty()) {
+                val declaring = modules[key]?.takeIf { it.loaded } ?: continue
+                for (member in members) {
+                    if (!member.startsWith(IxFile.MUTABLE)) continue
+                    val struct = declaring.source!!.rootContext.getVariable(member.removePrefix(IxFile.MUTABLE))
+                    (struct as? StructType)?.markMutated()
+                }
+            }
+        }
+    }
+
+    @Throws(CompilerError::class)
+    private fun generate(module: Module) {
+        val source = module.source!!
+
+        val classes = ixApi.generateClasses(source)
+        ixApi.writeClasses(projectRoot, classes)
+
+        writeManifest(
+            module.key, Manifest(
+                module.hash,
+                module.exportHash!!,
+                module.imports.associate { it.key to exportHashOf(it) },
+                pipeline,
+                contributionsTo(module),
+                source.contributions.mapValues { it.value.toSortedSet() }.toSortedMap(),
+                classes.keys.toList()
+            )
+        )
+    }
+
+    /**
+     * Analyzes modules along with the imports they need, parsing the ones discovery did not need to
+     * [ModuleScheduler] checks modules that do not depend on each other concurrently
+     * No class is generated here, see [compile]
+     */
+    @Throws(FileNotFoundException::class, CompilerError::class)
+    private fun load(targets: Collection<Module>) {
+        val needed = HashSet<Module>()
+        fun require(module: Module) {
+            if (module.loaded || !needed.add(module)) return
+            module.imports.forEach(::require)
+        }
+        targets.forEach(::require)
+        val batch = order.filter { it in needed }
+        if (batch.isEmpty()) return
+
+        val sources = batch.map { it.source ?: parse(it) }
+        IxException.killIfErrors(ixApi, "Correct parser errors before continuing.")
+        for (module in batch) {
+            for (i in module.imports) {
+                module.source!!.addImport(FilenameUtils.separatorsToUnix(i.file.toPath().normalize().toString()), i.source)
+            }
+        }
+
+        ModuleScheduler(ixApi, sources).run()
+        batch.forEach { it.loaded = true }
+        applyRecordedMutations()
+        sources.forEach(ixApi::optimize)
+        batch.forEach { it.exportHash = exportHash(it.source!!) }
+    }
+
+    @Throws(FileNotFoundException::class)
+    private fun parse(module: Module): IxFile {
+        val source = IxFile(projectRoot, module.relativePath, module.name)
+        debug("Parsing `" + source.file.getName() + "`")
+        ixApi.compilationSet!!.put(FilenameUtils.separatorsToUnix(source.file.getPath()), source)
+        module.source = source
+        return source
+    }
+
+    private fun classFile(className: String): File {
+        return File(Path.of(projectRoot, IxionConstant.OUT_DIR, className.replace(".", "/") + ".class").toString())
+    }
+
+    private fun manifestFile(key: String): File {
+        return File(Path.of(projectRoot, IxionConstant.OUT_DIR, key + MANIFEST_EXT).toString())
+    }
+
+    private fun readManifest(key: String): Manifest? {
+        val file = manifestFile(key)
+        if (!file.exists()) return null
+
+        val lines = Files.readAllLines(file.toPath())
+        if (lines.isEmpty() || lines[0] != MANIFEST_HEADER) return null
+
+        var sourceHash: String? = null
+        var exportHash: String? = null
+        val imports: MutableMap<String, String> = LinkedHashMap()
+        var pipeline: String? = null
+        var imported: Set<String>? = null
+        val contributions: MutableMap<String, Set<String>> = LinkedHashMap()
+        val classes: MutableList<String> = ArrayList()
+        for (line in lines.drop(1)) {
+            val parts = line.split(" ")
+            when (parts[0]) {
+                "source" -> sourceHash = parts[1]
+                "exports" -> exportHash = parts[1]
+                "import" -> imports[parts[1]] = parts[2]
+                "pipeline" -> pipeline = line.substringAfter(" ")
+                "imported" -> imported = members(parts[1])
+                "contributes" -> contributions[parts[1]] = members(parts[2])
+                "class" -> classes.add(parts[1])
+            }
+        }
+        if (sourceHash == null || exportHash == null || pipeline == null || imported == null) return null
+        return Manifest(sourceHash, exportHash, imports, pipeline, imported, contributions, classes)
+    }
+
+    private fun writeManifest(key: String, manifest: Manifest) {
+        val buffer = StringBuilder(MANIFEST_HEADER).append("\n")
+        buffer.append("source ").append(manifest.sourceHash).append("\n")
+        buffer.append("exports ").append(manifest.exportHash).append("\n")
+        for ((importKey, hash) in manifest.imports) {
+            buffer.append("import ").append(importKey).append(" ").append(hash).append("\n")
+        }
+        buffer.append("pipeline ").append(manifest.pipeline).append("\n")
+        buffer.append("imported ").append(manifest.imported.joinToString(",")).append("\n")
+        for ((contributed, members) in manifest.contributions) {
+            buffer.append("contributes ").append(contributed).append(" ").append(members.joinToString(",")).append("\n")
+        }
+        for (className in manifest.classes) {
+            buffer.append("class ").append(className).append("\n")
+        }
+
+        val file = manifestFile(key)
+        file.getParentFile().mkdirs()
+        Files.writeString(file.toPath(), buffer)
+    }
+
+    companion object {
+        private const val MANIFEST_EXT = ".ixc"
+        private const val MANIFEST_HEADER = "ixc 4"
+
+        private fun members(list: String): Set<String> {
+            return list.split(",").filter { it.isNotEmpty() }.toSet()
+        }
+
+        /**
+         * Hashes everything other modules can see of a file, so body-only edits keep the hash stable
+         * @param source An analyzed file
+         * @return Hex encoded hash of the export signatures
+         */
+        @JvmStatic
+        fun exportHash(source: IxFile): String {
+            val signature = StringBuilder()
+            for (name in source.exports.keys) {
+                val type = source.exports.get(name)
+                signature.append(name).append(" ")
+                when (type) {
+                    is DefType -> {
+                        signature.append(type).append(" ").append(type.generics)
+                        // importers inline small functions, so their bodies are visible too
+                        Inliner.inlinableBody(source, type)?.let { signature.append(" = ").append(it.accept(AstPrinter())) }
+                    }
+                    is StructType -> {
+                        signature.append("struct ").append(type.qualifiedName).append(type.generics).append(" {")
+                        for (p in type.parameters) {
+                            signature.append(p.getValue0()).append(": ").append(p.getValue1()?.getName()).append(", ")
+                        }
+                        signature.append("}")
+                    }
+
+                    else -> signature.append(type?.kind()).append(" ").append(type)
+                }
+                signature.append("\n")
+            }
+            return ModuleCache.hash(signature.toString().toByteArray())
+        }
+    }
+}
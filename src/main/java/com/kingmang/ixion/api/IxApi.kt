@@ -3,32 +3,63 @@ package com.kingmang.ixion.api
 import com.kingmang.ixion.api.Debugger.debug
 import com.kingmang.ixion.ast.ExportStatement
 import com.kingmang.ixion.ast.UseStatement
+import com.kingmang.ixion.codegen.BytecodeGenerator
+import com.kingmang.ixion.codegen.InMemoryJavaCompiler
 import com.kingmang.ixion.codegen.JavaCodegenVisitor
 import com.kingmang.ixion.env.EnvironmentVisitor
 import com.kingmang.ixion.exception.IxException
 import com.kingmang.ixion.exception.IxException.CompilerError
 import com.kingmang.ixion.exception.ModuleNotFoundException
 import com.kingmang.ixion.modules.Modules
+import com.kingmang.ixion.optimizer.PassManager
 import com.kingmang.ixion.runtime.DefType
 import com.kingmang.ixion.runtime.IxType
+import com.kingmang.ixion.typechecker.ParallelTypeChecker
 import com.kingmang.ixion.typechecker.TypeCheckVisitor
 import org.apache.commons.io.FilenameUtils
 import org.javatuples.Pair
 import java.io.*
 import java.nio.file.Path
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.IntConsumer
 
 @JvmRecord
 data class IxApi(
     @JvmField val errorData: MutableList<IxException.Data?>?,
     val compilationSet: MutableMap<String?, IxFile>?,
-    @JvmField val developmentMode: Boolean
+    @JvmField val developmentMode: Boolean,
+    @JvmField val moduleCache: ModuleCache?,
+    @JvmField val options: CompilerOptions
 ) {
     /**
      * Default constructor for IxApi
      */
-    constructor() : this(ArrayList<IxException.Data?>(),
-        HashMap<String?, IxFile?>() as MutableMap<String?, IxFile>?, true)
+    constructor() : this(null)
+
+    /**
+     * Creates a compiler that reuses unchanged modules from a cache
+     * @param moduleCache The cache shared between compilations, or null to analyze every file
+     */
+    constructor(moduleCache: ModuleCache?) : this(moduleCache, CompilerOptions())
+
+    /**
+     * @param moduleCache The cache shared between compilations, or null to analyze every file
+     * @param options Switches controlling the compilation
+     */
+    constructor(moduleCache: ModuleCache?, options: CompilerOptions) : this(
+        Collections.synchronizedList(ArrayList<IxException.Data?>()),
+        ConcurrentHashMap<String?, IxFile>(), true, moduleCache, options
+    )
+
+    /**
+     * Creates a compiler sharing everything with this one except its error list,
+     * so work running concurrently can report errors that are merged in a fixed order afterwards
+     * @return The forked compiler
+     */
+    fun fork(): IxApi {
+        return copy(errorData = ArrayList())
+    }
 
     /**
      * Compiles Ixion code to JVM bytecode
@@ -40,60 +71,139 @@ data class IxApi(
      */
     @Throws(FileNotFoundException::class, CompilerError::class)
     fun compile(projectRoot: String, filename: String?): String {
+        return IncrementalBuild(this, projectRoot).compile(filename)
+    }
+
+    /**
+     * Parses, builds environments for and type checks a file and all of its imports
+     * @param projectRoot The root directory of the project
+     * @param filename The filename to compile
+     * @return The parsed entry file
+     * @throws FileNotFoundException If the file is not found
+     * @throws IxException.CompilerError If parser or type errors occur
+     */
+    @Throws(FileNotFoundException::class, CompilerError::class)
+    fun analyze(projectRoot: String, filename: String?): IxFile {
         val relativePath = FilenameUtils.getPath(filename)
         val name = FilenameUtils.getName(filename)
 
         val entry = parse(projectRoot, relativePath, name)
         IxException.killIfErrors(this, "Correct parser errors before continuing.")
 
-        for (filePath in compilationSet!!.keys) {
-            val source: IxFile = compilationSet.get(filePath)!!
-            val environmentVisitor = EnvironmentVisitor(this, source.rootContext, source)
-            source.acceptVisitor<Optional<IxType?>?>(environmentVisitor)
-
-            for (stmt in source.statements) {
-                if (stmt is ExportStatement) {
-                    if (stmt.stmt is PublicAccess) {
-                        val identifier: String? = (stmt.stmt as PublicAccess).identifier()
-                        val type = source.rootContext.getVariable(identifier)
-                        if (type != null) {
-                            source.exports.put(identifier, type)
-                        }
-                    }
-                }
-            }
+        val fresh = compilationSet!!.values.filter { moduleCache?.isCached(it) != true }
 
-            IxException.killIfErrors(this, "Correct syntax errors before type checking can continue.")
+        ModuleScheduler(this, fresh).run()
+
+        fresh.forEach(::optimize)
+
+        if (moduleCache != null) {
+            fresh.forEach(moduleCache::store)
         }
 
-        for (filePath in compilationSet.keys) {
-            val source: IxFile = compilationSet.get(filePath)!!
-            for (s in source.imports.keys) {
-                val sourceFile = source.imports.get(s)
-                val exportedMembers = sourceFile!!.exports
-                for (exportedName in exportedMembers.keys) {
-                    val exportedType = exportedMembers.get(exportedName)
-                    val qualifiedName = sourceFile.name + "::" + exportedName
-                    if (exportedType is DefType) {
-                        exportedType.external = sourceFile
+        return entry
+    }
+
+    /**
+     * Builds the root environment of a file and collects its exports
+     * Errors are added to [errorData], callers decide when to stop
+     * @param source The parsed file
+     */
+    fun buildEnvironment(source: IxFile) {
+        val environmentVisitor = EnvironmentVisitor(this, source.rootContext, source)
+        source.acceptVisitor<Optional<IxType?>?>(environmentVisitor)
+
+        for (stmt in source.statements) {
+            if (stmt is ExportStatement) {
+                if (stmt.stmt is PublicAccess) {
+                    val identifier: String? = (stmt.stmt as PublicAccess).identifier()
+                    val type = source.rootContext.getVariable(identifier)
+                    if (type != null) {
+                        source.exports.put(identifier, type)
                     }
-                    source.rootContext.addVariable(qualifiedName, exportedType)
                 }
             }
         }
+    }
 
-        for (filePath in compilationSet.keys) {
-            val source: IxFile = compilationSet.get(filePath)!!
-            val typeCheckVisitor = TypeCheckVisitor(this, source.rootContext, source)
-            source.acceptVisitor<Optional<IxType?>?>(typeCheckVisitor)
+    /**
+     * Makes the exports of every imported file visible under their qualified names
+     * @param source A file whose imports have their environments built
+     */
+    fun linkImports(source: IxFile) {
+        for (s in source.imports.keys) {
+            val sourceFile = source.imports.get(s)
+            val exportedMembers = sourceFile!!.exports
+            for (exportedName in exportedMembers.keys) {
+                val exportedType = exportedMembers.get(exportedName)
+                val qualifiedName = sourceFile.name + "::" + exportedName
+                if (exportedType is DefType) {
+                    exportedType.external = sourceFile
+                }
+                source.rootContext.addVariable(qualifiedName, exportedType)
+            }
+        }
+    }
 
-            IxException.killIfErrors(this, "Correct type errors before compilation can continue.")
+    /**
+     * Type checks a file
+     * Errors are added to [errorData], callers decide when to stop
+     * @param source A file with a built environment and linked imports
+     */
+    fun typeCheck(source: IxFile) {
+        if (options.parallelFunctionChecks) {
+            ParallelTypeChecker.check(this, source)
+            return
         }
-        //output(compilationSet)
 
-        val base = entry.fullRelativePath
+        val typeCheckVisitor = TypeCheckVisitor(this, source.rootContext, source)
+        source.acceptVisitor<Optional<IxType?>?>(typeCheckVisitor)
+    }
 
-        return base.replace("/", ".")
+    /**
+     * Runs the passes enabled in [options] over a type checked file
+     * @param source A file without type errors
+     */
+    fun optimize(source: IxFile) {
+        PassManager(options).run(source)
+    }
+
+    /**
+     * Compiles Ixion code into classes held in memory, without writing anything to disk
+     * @param projectRoot The root directory of the project
+     * @param filename The filename to compile
+     * @param target The backend used to produce the classes
+     * @return The compiled program
+     * @throws FileNotFoundException If the file is not found
+     * @throws IxException.CompilerError If compilation errors occur
+     * @throws IOException If the in-memory Java compiler fails
+     */
+    @Throws(FileNotFoundException::class, CompilerError::class, IOException::class)
+    fun compileInMemory(projectRoot: String, filename: String?, target: CompilationTarget): CompiledProgram {
+        val entry = analyze(projectRoot, filename)
+
+        val classes: MutableMap<String, ByteArray> = LinkedHashMap()
+        when (target) {
+            CompilationTarget.JVM_BYTECODE -> {
+                for (source in compilationSet!!.values) {
+                    var generated = moduleCache?.classes(source)
+                    if (generated == null) {
+                        generated = generateClasses(source)
+                        moduleCache?.storeClasses(source, generated)
+                    }
+                    classes.putAll(generated)
+                }
+            }
+
+            CompilationTarget.JAVA_SOURCE -> {
+                val sources: MutableMap<String, String> = LinkedHashMap()
+                for (source in compilationSet!!.values) {
+                    sources.putAll(generateJavaSources(source))
+                }
+                classes.putAll(InMemoryJavaCompiler().compile(sources))
+            }
+        }
+
+        return CompiledProgram(entry.fullRelativePath.replace("/", "."), classes)
     }
 
     /**
@@ -101,53 +211,54 @@ data class IxApi(
      * @param compilationSet The set of files to output
      * @throws IxException.CompilerError If output errors occur
      */
-    /*
     @Throws(CompilerError::class)
     fun output(compilationSet: MutableMap<String?, out IxFile>) {
-        val bytecodeGenerator = BytecodeGenerator()
         for (key in compilationSet.keys) {
             val source: IxFile = compilationSet.get(key)!!
-            val allByteUnits = bytecodeGenerator.generate(this, source)
-            IxException.killIfErrors(this, "Correct build errors before compilation can complete.")
+            writeClasses(source.projectRoot, generateClasses(source))
+        }
+    }
 
-            val byteUnit = allByteUnits.getValue0()!!.toByteArray()
-            val base = FilenameUtils.removeExtension(source.fullRelativePath)
-            var fileName = Path.of(source.projectRoot, IxionConstant.OUT_DIR, base + ".class").toString()
-            var tmp = File(fileName)
+    /**
+     * Writes class files under the output directory of a project
+     * @param projectRoot The root directory of the project
+     * @param classes Map of binary class names to class file bytes
+     */
+    fun writeClasses(projectRoot: String, classes: MutableMap<String, ByteArray>) {
+        for ((className, bytes) in classes) {
+            val fileName = Path.of(projectRoot, IxionConstant.OUT_DIR, className.replace(".", "/") + ".class").toString()
+            val tmp = File(fileName)
             tmp.getParentFile().mkdirs()
-            var output: OutputStream?
             try {
-                output = FileOutputStream(fileName)
-                output.write(byteUnit)
-                output.close()
+                FileOutputStream(fileName).use { output -> output.write(bytes) }
             } catch (e: IOException) {
                 System.err.println("The above call to mkdirs() should have worked.")
                 System.exit(9)
             }
+        }
+    }
 
-            for (p in allByteUnits.getValue1()!!.entries) {
-                val st = p.key
-                val innerCw = p.value
+    /**
+     * Generates the module class and the struct classes of a source file
+     * @param source The type checked source file
+     * @return Map of binary class names to class file bytes
+     * @throws IxException.CompilerError If code generation errors occur
+     */
+    @Throws(CompilerError::class)
+    fun generateClasses(source: IxFile): MutableMap<String, ByteArray> {
+        val allByteUnits = BytecodeGenerator().generate(this, source)
+        IxException.killIfErrors(this, "Correct build errors before compilation can complete.")
 
-                val innerName = source.fullRelativePath + "$" + st.name
+        val classes: MutableMap<String, ByteArray> = LinkedHashMap()
+        val base = FilenameUtils.removeExtension(source.fullRelativePath)
+        classes.put(base.replace("/", "."), allByteUnits.getValue0()!!.toByteArray())
 
-                fileName = Path.of(source.projectRoot, IxionConstant.OUT_DIR, innerName + ".class").toString()
-                tmp = File(fileName)
-                tmp.getParentFile().mkdirs()
-                try {
-                    output = FileOutputStream(fileName)
-                    output.write(innerCw.toByteArray())
-                    output.close()
-                } catch (e: IOException) {
-                    System.err.println("The above call to mkdirs() should have worked.")
-                    System.exit(9)
-                }
-            }
+        for (p in allByteUnits.getValue1()!!.entries) {
+            classes.put(p.key.qualifiedName.replace("/", "."), p.value.toByteArray())
         }
+        return classes
     }
 
-     */
-
     /**
      * Compiles Ixion code to Java source code
      * @param projectRoot The root directory of the project
@@ -158,55 +269,9 @@ data class IxApi(
      */
     @Throws(FileNotFoundException::class, CompilerError::class)
     fun compileToJava(projectRoot: String, filename: String?): String {
-        val relativePath = FilenameUtils.getPath(filename)
-        val name = FilenameUtils.getName(filename)
-
-        val entry = parse(projectRoot, relativePath, name)
-        IxException.killIfErrors(this, "Correct parser errors before continuing.")
+        val entry = analyze(projectRoot, filename)
 
-        for (filePath in compilationSet!!.keys) {
-            val source: IxFile = compilationSet.get(filePath)!!
-            val environmentVisitor = EnvironmentVisitor(this, source.rootContext, source)
-            source.acceptVisitor<Optional<IxType?>?>(environmentVisitor)
-
-            for (stmt in source.statements) {
-                if (stmt is ExportStatement) {
-                    if (stmt.stmt is PublicAccess) {
-                        val identifier: String? = (stmt.stmt as PublicAccess).identifier()
-                        val type = source.rootContext.getVariable(identifier)
-                        if (type != null) {
-                            source.exports.put(identifier, type)
-                        }
-                    }
-                }
-            }
-            IxException.killIfErrors(this, "Correct syntax errors before type checking can continue.")
-        }
-
-        for (filePath in compilationSet.keys) {
-            val source: IxFile = compilationSet.get(filePath)!!
-            for (s in source.imports.keys) {
-                val sourceFile = source.imports.get(s)
-                val exportedMembers = sourceFile!!.exports
-                for (exportedName in exportedMembers.keys) {
-                    val exportedType = exportedMembers.get(exportedName)
-                    val qualifiedName = sourceFile.name + "::" + exportedName
-                    if (exportedType is DefType) {
-                        exportedType.external = sourceFile
-                    }
-                    source.rootContext.addVariable(qualifiedName, exportedType)
-                }
-            }
-        }
-
-        for (filePath in compilationSet.keys) {
-            val source: IxFile = compilationSet.get(filePath)!!
-            val typeCheckVisitor = TypeCheckVisitor(this, source.rootContext, source)
-            source.acceptVisitor<Optional<IxType?>?>(typeCheckVisitor)
-            IxException.killIfErrors(this, "Correct type errors before compilation can continue.")
-        }
-
-        outputJava(compilationSet)
+        outputJava(compilationSet!!)
 
         val base = entry.fullRelativePath
         return base.replace("/", ".")
@@ -222,61 +287,75 @@ data class IxApi(
         for (key in compilationSet.keys) {
             val source: IxFile = compilationSet.get(key)!!
 
-            val javaGenerator = JavaCodegenVisitor(this, source)
-            source.acceptVisitor<Optional<String?>?>(javaGenerator)
+            for ((className, javaCode) in generateJavaSources(source)) {
+                val fileName = Path.of(source.projectRoot, IxionConstant.OUT_DIR, className.replace(".", "/") + ".java").toString()
+                val javaFile = File(fileName)
+                javaFile.getParentFile().mkdirs()
 
-            val javaCode = javaGenerator.getGeneratedCode()
-            val base = FilenameUtils.removeExtension(source.fullRelativePath)
-            val packageName = if (base.contains("/"))
-                base.substring(0, base.lastIndexOf("/")).replace("/", ".")
-            else
-                ""
-
-            val fullJavaFile = StringBuilder()
-
-            if (!packageName.isEmpty()) {
-                fullJavaFile.append("package ").append(packageName).append(";\n\n")
+                try {
+                    FileWriter(javaFile).use { writer ->
+                        writer.write(javaCode)
+                    }
+                } catch (e: IOException) {
+                    System.err.println("Error writing Java file: " + e.message)
+                    System.exit(9)
+                }
             }
+        }
+    }
 
-            fullJavaFile.append("import java.util.*;\n")
-            fullJavaFile.append("import java.lang.*;\n\n")
+    /**
+     * Generates the Java sources of a source file
+     * @param source The type checked source file
+     * @return Map of fully qualified class names to Java source code
+     */
+    fun generateJavaSources(source: IxFile): MutableMap<String, String> {
+        val javaGenerator = JavaCodegenVisitor(this, source)
+        source.acceptVisitor<Optional<String?>?>(javaGenerator)
+
+        val javaCode = javaGenerator.getGeneratedCode()
+        val base = FilenameUtils.removeExtension(source.fullRelativePath)
+        val packageName = if (base.contains("/"))
+            base.substring(0, base.lastIndexOf("/")).replace("/", ".")
+        else
+            ""
 
-            val className = if (base.contains("/"))
-                base.substring(base.lastIndexOf("/") + 1)
-            else
-                base
-            fullJavaFile.append("public class ").append(className).append(" {\n")
-            fullJavaFile.append(javaCode)
-            fullJavaFile.append("}\n")
+        val fullJavaFile = StringBuilder()
 
-            val fileName = Path.of(source.projectRoot, IxionConstant.OUT_DIR, base + ".java").toString()
-            val javaFile = File(fileName)
-            javaFile.getParentFile().mkdirs()
+        if (!packageName.isEmpty()) {
+            fullJavaFile.append("package ").append(packageName).append(";\n\n")
+        }
 
-            try {
-                FileWriter(javaFile).use { writer ->
-                    writer.write(fullJavaFile.toString())
-                }
-            } catch (e: IOException) {
-                System.err.println("Error writing Java file: " + e.message)
-                System.exit(9)
-            }
+        fullJavaFile.append("import java.util.*;\n")
+        fullJavaFile.append("import java.lang.*;\n\n")
 
-            generateStructJavaFiles(source, javaGenerator.getStructClasses())
-        }
+        val className = if (base.contains("/"))
+            base.substring(base.lastIndexOf("/") + 1)
+        else
+            base
+        fullJavaFile.append("public class ").append(className).append(" {\n")
+        fullJavaFile.append(javaCode)
+        fullJavaFile.append("}\n")
+
+        val sources: MutableMap<String, String> = LinkedHashMap()
+        sources.put(base.replace("/", "."), fullJavaFile.toString())
+        sources.putAll(generateStructJavaSources(source, javaGenerator.getStructClasses()))
+        return sources
     }
 
     /**
-     * Generates separate Java files for structures
+     * Generates separate Java sources for structures
      * @param source The source file containing structures
      * @param structClasses Map of structure names to their generated code
+     * @return Map of fully qualified class names to Java source code
      */
-    private fun generateStructJavaFiles(source: IxFile, structClasses: MutableMap<String?, String?>) {
+    private fun generateStructJavaSources(source: IxFile, structClasses: MutableMap<String?, String?>): MutableMap<String, String> {
         val basePackage = if (source.fullRelativePath.contains("/"))
             source.fullRelativePath.substring(0, source.fullRelativePath.lastIndexOf("/")).replace("/", ".")
         else
             ""
 
+        val sources: MutableMap<String, String> = LinkedHashMap()
         for (entry in structClasses.entries) {
             val structName = entry.key
             val structCode = entry.value
@@ -291,22 +370,10 @@ data class IxApi(
             fullStructFile.append(structCode)
             fullStructFile.append("}\n")
 
-            val fileName = Path.of(
-                source.projectRoot, IxionConstant.OUT_DIR,
-                basePackage.replace(".", "/"), structName + ".java"
-            ).toString()
-            val structFile = File(fileName)
-            structFile.getParentFile().mkdirs()
-
-            try {
-                FileWriter(structFile).use { writer ->
-                    writer.write(fullStructFile.toString())
-                }
-            } catch (e: IOException) {
-                System.err.println("Error writing struct Java file: " + e.message)
-                System.exit(9)
-            }
+            val className = if (basePackage.isEmpty()) structName!! else basePackage + "." + structName
+            sources.put(className, fullStructFile.toString())
         }
+        return sources
     }
 
     /**
@@ -344,11 +411,15 @@ data class IxApi(
      */
     @Throws(FileNotFoundException::class)
     fun parse(projectRoot: String, relativePath: String, name: String?): IxFile {
-        val source = IxFile(projectRoot, relativePath, name)
-        debug("Parsing `" + source.file.getName() + "`")
-
-        compilationSet!!.put(FilenameUtils.separatorsToUnix(source.file.getPath()), source)
+        return ImportGraphParser(this, projectRoot).parse(relativePath, name)
+    }
 
+    /**
+     * Finds the source files requested by the `use` statements of a file
+     * @param source The parsed file
+     * @return Pairs of the path relative to the file and the normalized path of each imported file
+     */
+    fun resolveImports(source: IxFile): MutableList<Pair<String?, String?>> {
         val imports: MutableList<Pair<String?, String?>> = ArrayList<Pair<String?, String?>>()
 
         for (statement in source.statements) {
@@ -369,26 +440,7 @@ data class IxApi(
             }
         }
 
-        for (i in imports) {
-            val relative: String = i.getValue0()!!
-            val normalizedPath = i.getValue1()
-            val n = FilenameUtils.removeExtension(FilenameUtils.getName(normalizedPath))
-            if (!compilationSet.containsKey(normalizedPath)) {
-                debug("triggered parse, no key exists `" + normalizedPath + "`")
-                val next: IxFile?
-                try {
-                    next = parse(projectRoot, Path.of(source.relativePath, relative).normalize().toString(), n)
-                    source.addImport(normalizedPath, next)
-                } catch (e: FileNotFoundException) {
-                    e.printStackTrace()
-                    exit("Issues with building import tree.", 67)
-                }
-            } else {
-                source.addImport(normalizedPath, compilationSet.get(normalizedPath))
-            }
-        }
-
-        return source
+        return imports
     }
 
     companion object {
@@ -419,7 +471,15 @@ data class IxApi(
         @JvmStatic
         fun exit(message: String?, code: Int) {
             System.err.println(message)
-            System.exit(code)
+            exitHandler.accept(code)
         }
+
+        /**
+         * Called with the exit code when compilation is aborted
+         * A long running compiler replaces it so a failed build does not terminate the process
+         */
+        @JvmStatic
+        @Volatile
+        var exitHandler: IntConsumer = IntConsumer { code -> System.exit(code) }
     }
 }
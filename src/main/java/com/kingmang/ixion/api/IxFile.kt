@@ -1,14 +1,26 @@
 package com.kingmang.ixion.api
 
 import com.kingmang.ixion.Visitor
+import com.kingmang.ixion.ast.DefStatement
+import com.kingmang.ixion.ast.ExportStatement
 import com.kingmang.ixion.ast.Statement
+import com.kingmang.ixion.ast.StructStatement
 import com.kingmang.ixion.lexer.LexerImpl
+import com.kingmang.ixion.optimizer.PassManager
 import com.kingmang.ixion.parser.Parser
+import com.kingmang.ixion.runtime.DefType
 import com.kingmang.ixion.runtime.IxType
+import com.kingmang.ixion.runtime.MonomorphizedStruct
+import com.kingmang.ixion.runtime.StructType
 import org.apache.commons.collections4.map.LinkedMap
 import org.apache.commons.io.FilenameUtils
 import java.io.File
+import java.io.FileNotFoundException
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
 import java.nio.file.Path
+import java.util.TreeSet
+import java.util.concurrent.ConcurrentHashMap
 import java.util.function.Function
 
 class IxFile(projectRoot: String, relativePath: String, name: String?) {
@@ -32,13 +44,41 @@ class IxFile(projectRoot: String, relativePath: String, name: String?) {
     @JvmField
     val imports: LinkedMap<String?, IxFile?> = LinkedMap<String?, IxFile?>()
 
+    @JvmField
+    val sourceHash: String
+
+    /**
+     * Instantiations of generic structs created by this file, which its classes are generated with
+     */
+    @JvmField
+    val specializations: MutableSet<MonomorphizedStruct> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * What type checking this file added to the classes of other files, keyed by their [fullRelativePath]:
+     * the names of instantiations of their generic functions, and [MUTABLE] followed by the name of each of their
+     * structs it assigns to
+     */
+    @JvmField
+    val contributions: MutableMap<String, MutableSet<String>> = ConcurrentHashMap()
+
+    /**
+     * The passes the file was optimized with, see [PassManager.pipeline]
+     */
+    @JvmField
+    @Volatile
+    var pipeline: String? = null
+
     init {
 
         val fullPath =
             FilenameUtils.separatorsToUnix(Path.of(projectRoot, relativePath, this.name + IxionConstant.EXT).toString())
         this.file = File(fullPath)
 
-        val lexer = LexerImpl(file)
+        if (!file.exists()) throw FileNotFoundException(fullPath)
+        val bytes = Files.readAllBytes(file.toPath())
+        this.sourceHash = ModuleCache.hash(bytes)
+
+        val lexer = LexerImpl(String(bytes, StandardCharsets.UTF_8))
         val parser = Parser(lexer)
         this.statements = parser.parse()
     }
@@ -66,10 +106,82 @@ class IxFile(projectRoot: String, relativePath: String, name: String?) {
         }
     }
 
+    /**
+     * Files importing this one can record instantiations of its generic functions and assign to its structs
+     * after its classes were generated, which changes the classes it needs
+     * @return A summary of what importers contributed to the classes of this file
+     */
+    fun importedState(): String {
+        val specializedFunctions = TreeSet<String>()
+        val mutatedStructs = TreeSet<String>()
+        for (exported in statements) {
+            val statement = if (exported is ExportStatement) exported.stmt else exported
+            val name = when (statement) {
+                is DefStatement -> statement.name.source
+                is StructStatement -> statement.name.source
+                else -> continue
+            }
+            when (val declared = rootContext.getVariable(name)) {
+                is DefType -> synchronized(declared) {
+                    declared.specializations.forEach { specializedFunctions.add(declared.specializationName(it!!)) }
+                }
+                is StructType -> if (declared.isMutated) mutatedStructs.add(declared.name)
+            }
+        }
+        return specializedFunctions.joinToString(",") + ";" + mutatedStructs.joinToString(",")
+    }
+
+    /**
+     * Records an instantiation of a generic function, see [contributions]
+     * @param function The called function
+     * @param specialization Bindings of its generics
+     */
+    fun contributeSpecialization(function: DefType, specialization: Map<String?, IxType?>) {
+        val declaring = function.external ?: return
+        contribute(declaring, function.specializationName(specialization))
+    }
+
+    /**
+     * Records an assignment to a field of a struct, see [contributions]
+     * @param struct The struct assigned to, or one of its instantiations
+     */
+    fun contributeMutation(struct: StructType) {
+        val declared = if (struct is MonomorphizedStruct) struct.struct else struct
+        val declaring = declaringImport(declared) ?: return
+        contribute(declaring, MUTABLE + declared.name)
+    }
+
+    private fun contribute(declaring: IxFile, member: String) {
+        if (declaring === this) return
+        contributions.computeIfAbsent(declaring.fullRelativePath) { ConcurrentHashMap.newKeySet() }.add(member)
+    }
+
+    /**
+     * @return The file among the direct and indirect imports of this one that declares the struct, or null if none does
+     */
+    private fun declaringImport(struct: StructType): IxFile? {
+        val seen = HashSet<IxFile>()
+        val queue = ArrayDeque(imports.values.filterNotNull())
+        while (queue.isNotEmpty()) {
+            val file = queue.removeFirst()
+            if (!seen.add(file)) continue
+            if (file.rootContext.getVariable(struct.name) === struct) return file
+            queue.addAll(file.imports.values.filterNotNull())
+        }
+        return null
+    }
+
     val fullRelativePath: String
         get() = FilenameUtils.separatorsToUnix(Path.of(relativePath, name).toString())
 
     override fun toString(): String {
         return file.getName()
     }
+
+    companion object {
+        /**
+         * Prefix of the [contributions] that make the fields of a struct mutable
+         */
+        const val MUTABLE = "mutable:"
+    }
 }
@@ -3,6 +3,8 @@ package com.kingmang.ixion.api
 object IxionConstant {
     const val EXT: String = ".ix"
     const val OUT_DIR: String = ".out"
+    const val DAEMON_DIR: String = ".ixion"
+    const val DAEMON_SOCKET: String = "daemon.sock"
 
     enum class Mutability {
         IMMUTABLE,
@@ -0,0 +1,116 @@
+package com.kingmang.ixion.api
+
+import org.apache.commons.io.FilenameUtils
+import java.io.File
+import java.nio.file.Files
+import java.security.MessageDigest
+import java.util.HexFormat
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Keeps parsed and type checked modules alive between compilations of a long running compiler
+ * A module is reused while its source and the modules it imports are unchanged
+ */
+class ModuleCache {
+    private val entries: MutableMap<String, Entry> = ConcurrentHashMap()
+
+    /**
+     * A successfully analyzed module
+     * @param hash Content hash of the source the module was built from
+     * @param source The analyzed file
+     */
+    class Entry(val hash: String, val source: IxFile) {
+        @Volatile
+        var classes: MutableMap<String, ByteArray>? = null
+
+        /**
+         * What importing modules had contributed when the classes were generated, see [IxFile.importedState]
+         */
+        @Volatile
+        var importedState: String? = null
+    }
+
+    /**
+     * @param path Normalized path of the source file
+     * @param hash Content hash of the current source
+     * @return The cached module if it was built from the same source, null otherwise
+     */
+    fun lookup(path: String, hash: String): IxFile? {
+        val entry = entries[path] ?: return null
+        return if (entry.hash == hash) entry.source else null
+    }
+
+    /**
+     * @param source The file to check
+     * @return Whether the file is the analyzed instance held by the cache
+     */
+    fun isCached(source: IxFile): Boolean {
+        return entries[pathOf(source)]?.source === source
+    }
+
+    /**
+     * Remembers an analyzed module, replacing the previous version of the same file
+     * @param source The analyzed file
+     */
+    fun store(source: IxFile) {
+        if (!isCached(source)) {
+            entries[pathOf(source)] = Entry(source.sourceHash, source)
+        }
+    }
+
+    /**
+     * @param source An analyzed file
+     * @return The classes generated for the file, or null if none were generated yet
+     * or files importing it changed what its classes need since
+     */
+    fun classes(source: IxFile): MutableMap<String, ByteArray>? {
+        val entry = entries[pathOf(source)] ?: return null
+        if (entry.source !== source || entry.importedState != source.importedState()) return null
+        return entry.classes
+    }
+
+    /**
+     * @param source An analyzed file held by the cache
+     * @param classes Map of binary class names to class file bytes
+     */
+    fun storeClasses(source: IxFile, classes: MutableMap<String, ByteArray>) {
+        val entry = entries[pathOf(source)] ?: return
+        if (entry.source === source) {
+            entry.importedState = source.importedState()
+            entry.classes = classes
+        }
+    }
+
+    /**
+     * Drops every cached module
+     */
+    fun clear() {
+        entries.clear()
+    }
+
+    val size: Int
+        get() = entries.size
+
+    companion object {
+        private fun pathOf(source: IxFile): String = FilenameUtils.separatorsToUnix(source.file.toPath().normalize().toString())
+
+        /**
+         * @param file The file to hash
+         * @return Hex encoded SHA-256 of the file contents
+         */
+        @JvmStatic
+        fun hash(file: File): String {
+            return hash(Files.readAllBytes(file.toPath()))
+        }
+
+        /**
+         * @param bytes The content to hash
+         * @return Hex encoded SHA-256 of the content
+         */
+        @JvmStatic
+        fun hash(bytes: ByteArray): String {
+            val digest = MessageDigest.getInstance("SHA-256")
+            return HexFormat.of().formatHex(digest.digest(bytes))
+        }
+    }
+}
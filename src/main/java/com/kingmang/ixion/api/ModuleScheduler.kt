@@ -0,0 +1,100 @@
+package com.kingmang.ixion.api
+
+import com.kingmang.ixion.exception.IxException
+import com.kingmang.ixion.exception.IxException.CompilerError
+import org.apache.commons.io.FilenameUtils
+import org.jgrapht.Graph
+import org.jgrapht.Graphs
+import org.jgrapht.alg.cycle.CycleDetector
+import org.jgrapht.graph.DefaultDirectedGraph
+import org.jgrapht.graph.DefaultEdge
+import org.jgrapht.traverse.TopologicalOrderIterator
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+
+/**
+ * Builds environments and type checks a set of modules in dependency order
+ * Environments only depend on their own file and are built concurrently, while a module is
+ * type checked as soon as every module it imports has been
+ * Each module reports into its own error list, merged by path so diagnostics are stable between runs
+ */
+class ModuleScheduler(private val ixApi: IxApi, modules: Collection<IxFile>) {
+    private val modules: List<IxFile> = modules.sortedBy { pathOf(it) }
+    private val graph: Graph<IxFile, DefaultEdge> = DefaultDirectedGraph(DefaultEdge::class.java)
+
+    init {
+        this.modules.forEach(graph::addVertex)
+        for (module in this.modules) {
+            for (imported in module.imports.values) {
+                if (imported != null && graph.containsVertex(imported) && imported !== module) {
+                    graph.addEdge(imported, module)
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws IxException.CompilerError If declaration or type errors occur
+     */
+    @Throws(CompilerError::class)
+    fun run() {
+        if (CycleDetector(graph).detectCycles()) {
+            runSequentially()
+            return
+        }
+
+        var apis = forEachModule()
+        await(modules.map { module -> CompletableFuture.runAsync { apis[module]!!.buildEnvironment(module) } })
+        collect(apis)
+        IxException.killIfErrors(ixApi, "Correct syntax errors before type checking can continue.")
+
+        apis = forEachModule()
+        val checked: MutableMap<IxFile, CompletableFuture<Void>> = HashMap()
+        for (module in TopologicalOrderIterator(graph)) {
+            val imports = Graphs.predecessorListOf(graph, module).map { checked[it]!! }
+            checked[module] = CompletableFuture.allOf(*imports.toTypedArray()).thenRunAsync {
+                val api = apis[module]!!
+                api.linkImports(module)
+                api.typeCheck(module)
+            }
+        }
+        await(checked.values)
+        collect(apis)
+        IxException.killIfErrors(ixApi, "Correct type errors before compilation can continue.")
+    }
+
+    /**
+     * Falls back to running each pass over every module in turn, which is how cyclic imports always worked
+     */
+    @Throws(CompilerError::class)
+    private fun runSequentially() {
+        modules.forEach(ixApi::buildEnvironment)
+        IxException.killIfErrors(ixApi, "Correct syntax errors before type checking can continue.")
+
+        modules.forEach(ixApi::linkImports)
+        modules.forEach(ixApi::typeCheck)
+        IxException.killIfErrors(ixApi, "Correct type errors before compilation can continue.")
+    }
+
+    private fun forEachModule(): Map<IxFile, IxApi> {
+        return modules.associateWith { ixApi.fork() }
+    }
+
+    private fun collect(apis: Map<IxFile, IxApi>) {
+        for (module in modules) {
+            ixApi.errorData!!.addAll(apis[module]!!.errorData!!)
+        }
+    }
+
+    private fun await(tasks: Collection<CompletableFuture<*>>) {
+        try {
+            CompletableFuture.allOf(*tasks.toTypedArray()).join()
+        } catch (e: CompletionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    companion object {
+        private fun pathOf(source: IxFile): String = FilenameUtils.separatorsToUnix(source.file.path)
+    }
+}
@@ -3,11 +3,25 @@ package com.kingmang.ixion.ast
 import com.kingmang.ixion.ExprVisitor
 import com.kingmang.ixion.lexer.Position
 import com.kingmang.ixion.lexer.Token
+import com.kingmang.ixion.runtime.IxType
+import com.kingmang.ixion.typechecker.Intrinsic
 
 class CallExpression(pos: Position?, @JvmField val item: Expression?, @JvmField val arguments: MutableList<Expression?>?) :
     Expression(pos) {
     var foreign: Token? = null
 
+    /**
+     * Set by the type checker when the call is emitted inline instead of calling the prelude
+     */
+    @JvmField
+    var intrinsic: Intrinsic? = null
+
+    /**
+     * Set by the type checker to the bindings of the generic function instantiation the call is linked to
+     */
+    @JvmField
+    var specialization: MutableMap<String?, IxType?>? = null
+
     override fun <R> accept(visitor: ExprVisitor<R>): R {
         return visitor.visitCall(this)
     }
@@ -7,7 +7,7 @@ import org.javatuples.Pair
 
 class CaseStatement(
     pos: Position?,
-    @JvmField val expression: Expression?,
+    @JvmField var expression: Expression?,
     @JvmField val cases: MutableMap<TypeStatement?, Pair<String?, BlockStatement?>?>?
 ) : Statement(pos) {
     @JvmField
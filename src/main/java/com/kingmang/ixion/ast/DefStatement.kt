@@ -2,6 +2,7 @@ package com.kingmang.ixion.ast
 
 import com.kingmang.ixion.StatementVisitor
 import com.kingmang.ixion.api.PublicAccess
+import com.kingmang.ixion.ir.IrFunction
 import com.kingmang.ixion.lexer.Position
 import com.kingmang.ixion.lexer.Token
 
@@ -14,6 +15,12 @@ class DefStatement(
     @JvmField val generics: MutableList<Token?>?
 ) : Statement(pos), PublicAccess {
 
+    /**
+     * Set by the lowering pass when the backends emit the function from its IR instead of its body
+     */
+    @JvmField
+    var ir: IrFunction? = null
+
     override fun <R> accept(visitor: StatementVisitor<R?>?): R? {
         return visitor?.visitFunctionStmt(this)
     }
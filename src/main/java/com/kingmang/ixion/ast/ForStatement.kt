@@ -4,7 +4,7 @@ import com.kingmang.ixion.StatementVisitor
 import com.kingmang.ixion.lexer.Position
 import com.kingmang.ixion.lexer.Token
 
-class ForStatement(pos: Position?, @JvmField val name: Token?, @JvmField val expression: Expression?, @JvmField val block: BlockStatement?) :
+class ForStatement(pos: Position?, @JvmField val name: Token?, @JvmField var expression: Expression?, @JvmField val block: BlockStatement?) :
     Statement(pos) {
     var localNameIndex: Int = -1
     var localExprIndex: Int = -1
@@ -3,7 +3,7 @@ package com.kingmang.ixion.ast
 import com.kingmang.ixion.ExprVisitor
 import com.kingmang.ixion.lexer.Position
 
-class GroupingExpression(pos: Position?, @JvmField val expression: Expression?) : Expression(pos) {
+class GroupingExpression(pos: Position?, @JvmField var expression: Expression?) : Expression(pos) {
     override fun <R> accept(visitor: ExprVisitor<R>): R {
         return visitor.visitGroupingExpr(this)
     }
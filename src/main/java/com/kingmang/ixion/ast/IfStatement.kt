@@ -5,9 +5,9 @@ import com.kingmang.ixion.lexer.Position
 
 class IfStatement(
     pos: Position?,
-    @JvmField val condition: Expression?,
+    @JvmField var condition: Expression?,
     @JvmField val trueBlock: BlockStatement?,
-    @JvmField val falseStatement: Statement?
+    @JvmField var falseStatement: Statement?
 ) : Statement(pos) {
     override fun <R> accept(visitor: StatementVisitor<R?>?): R? {
         return visitor?.visitIf(this)
@@ -3,7 +3,7 @@ package com.kingmang.ixion.ast
 import com.kingmang.ixion.ExprVisitor
 import com.kingmang.ixion.lexer.Position
 
-class IndexAccessExpression(pos: Position?, @JvmField val left: Expression?, @JvmField val right: Expression?) : Expression(pos) {
+class IndexAccessExpression(pos: Position?, @JvmField var left: Expression?, @JvmField var right: Expression?) : Expression(pos) {
     override fun <R> accept(visitor: ExprVisitor<R>): R {
         return visitor.visitIndexAccess(this)
     }
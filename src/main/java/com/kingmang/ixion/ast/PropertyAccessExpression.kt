@@ -6,7 +6,7 @@ import com.kingmang.ixion.runtime.IxType
 
 class PropertyAccessExpression(
     pos: Position?,
-    @JvmField val expression: Expression?,
+    @JvmField var expression: Expression?,
     @JvmField val identifiers: MutableList<IdentifierExpression?>?
 ) : Expression(pos) {
     @JvmField
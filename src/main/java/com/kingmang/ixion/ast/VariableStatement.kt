@@ -10,7 +10,7 @@ class VariableStatement(
     pos: Position?,
     @JvmField val mutability: Token?,
     @JvmField val name: Token,
-    @JvmField val expression: Expression?,
+    @JvmField var expression: Expression?,
     val type: Optional<TypeStatement?>?
 ) : Statement(pos), PublicAccess {
     var localIndex: Int = -1
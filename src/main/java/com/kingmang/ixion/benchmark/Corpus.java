@@ -0,0 +1,109 @@
+package com.kingmang.ixion.benchmark;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.api.IxionConstant;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generated source shared by the compiler benchmarks
+ * Every size repeats the same unit of structs, loops, conditionals and calls under fresh names,
+ * so the inputs type check and only differ in length
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+    static final String NAME = "corpus";
+
+    private static final String UNIT = """
+            type point_%1$d = struct {
+                x : int
+                y : int
+            }
+
+            def add_%1$d(a : point_%1$d, b : point_%1$d) : point_%1$d {
+                return point_%1$d(a.x + b.x, a.y + b.y)
+            }
+
+            def sum_%1$d(n : int) : int {
+                var total = 0
+                var i = 0
+                while i < n {
+                    if i %% 2 == 0 {
+                        total = total + i
+                    } else {
+                        total = total - 1
+                    }
+                    i++
+                }
+                return total
+            }
+
+            def walk_%1$d() : int {
+                var list = [1, 2, 3, 4, 5]
+                var total = 0
+                for v : list {
+                    total = total + v
+                }
+                return total + sum_%1$d(10) + add_%1$d(point_%1$d(1, 2), point_%1$d(3, 4)).x
+            }
+
+            """;
+
+    /**
+     * small is a single unit (about 0.7 KB), medium 40 units (about 30 KB), large 4000 units (about 3 MB)
+     */
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    public Path root;
+    public String source;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        int units = switch (size) {
+            case "small" -> 1;
+            case "medium" -> 40;
+            case "large" -> 4000;
+            default -> throw new IllegalArgumentException("Unknown corpus size `" + size + "`");
+        };
+
+        var text = new StringBuilder();
+        for (int i = 0; i < units; i++) {
+            text.append(UNIT.formatted(i));
+        }
+        text.append("pub def main() {\n    var result = walk_0()\n}\n");
+        source = text.toString();
+
+        root = Files.createTempDirectory("ixion-bench");
+        Files.writeString(root.resolve(NAME + IxionConstant.EXT), source);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(root.resolve(NAME + IxionConstant.EXT));
+        Files.deleteIfExists(root);
+    }
+
+    /**
+     * @return A freshly parsed copy of the corpus
+     */
+    public IxFile parse() throws FileNotFoundException {
+        return new IxFile(root.toString(), "", NAME);
+    }
+
+    /**
+     * @param ixApi The API instance for error reporting
+     * @return A freshly parsed copy of the corpus with its environment built and imports linked
+     */
+    public IxFile declare(IxApi ixApi) throws FileNotFoundException {
+        var file = parse();
+        ixApi.buildEnvironment(file);
+        ixApi.linkImports(file);
+        return file;
+    }
+}
@@ -0,0 +1,65 @@
+package com.kingmang.ixion.benchmark;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.env.EnvironmentVisitor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to build the root environment of a parsed file
+ * The visitor declares into the file, so every call consumes its own parsed copy
+ * Copies for the measurement are parsed before the first warmup iteration,
+ * so {@code gc.alloc.rate.norm} counts the environment alone; {@code large} holds about 1.5 GB of them, hence the heap size
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 40, batchSize = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class EnvironmentBenchmark {
+
+    @State(Scope.Thread)
+    public static class Input {
+        private final ArrayDeque<Parsed> measured = new ArrayDeque<>();
+        ArrayDeque<Parsed> copies = new ArrayDeque<>();
+
+        @Setup(Level.Trial)
+        public void parseMeasured(Corpus corpus, BenchmarkParams params) throws FileNotFoundException {
+            var measurement = params.getMeasurement();
+            parse(corpus, measured, measurement.getCount() * measurement.getBatchSize());
+        }
+
+        @Setup(Level.Iteration)
+        public void parseWarmup(Corpus corpus, IterationParams params) throws FileNotFoundException {
+            if (params.getType() == IterationType.MEASUREMENT) {
+                copies = measured;
+            } else {
+                parse(corpus, copies, params.getBatchSize());
+            }
+        }
+
+        private static void parse(Corpus corpus, ArrayDeque<Parsed> into, int count) throws FileNotFoundException {
+            into.clear();
+            for (int i = 0; i < count; i++) {
+                into.add(new Parsed(new IxApi(), corpus.parse()));
+            }
+        }
+    }
+
+    record Parsed(IxApi ixApi, IxFile source) {
+    }
+
+    @Benchmark
+    public Object buildEnvironment(Input input) {
+        var parsed = input.copies.poll();
+        var visitor = new EnvironmentVisitor(parsed.ixApi(), parsed.source().rootContext, parsed.source());
+        return parsed.source().acceptVisitor(visitor);
+    }
+}
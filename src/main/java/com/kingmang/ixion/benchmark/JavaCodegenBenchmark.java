@@ -0,0 +1,41 @@
+package com.kingmang.ixion.benchmark;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.codegen.JavaCodegenVisitor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of generating Java source from a type checked file
+ * Code generation only reads the analyzed file, so it is analyzed once per trial
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavaCodegenBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Input {
+        IxApi ixApi;
+        IxFile source;
+
+        @Setup(Level.Trial)
+        public void analyze(Corpus corpus) throws FileNotFoundException {
+            ixApi = new IxApi();
+            source = corpus.declare(ixApi);
+            ixApi.typeCheck(source);
+        }
+    }
+
+    @Benchmark
+    public String generate(Input input) {
+        var visitor = new JavaCodegenVisitor(input.ixApi, input.source);
+        input.source.acceptVisitor(visitor);
+        return visitor.getGeneratedCode();
+    }
+}
@@ -0,0 +1,30 @@
+package com.kingmang.ixion.benchmark;
+
+import com.kingmang.ixion.lexer.LexerImpl;
+import com.kingmang.ixion.lexer.Token;
+import com.kingmang.ixion.lexer.TokenType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of turning a whole file into tokens
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Benchmark
+    public void tokenize(Corpus corpus, Blackhole blackhole) {
+        var lexer = new LexerImpl(corpus.source);
+        Token token;
+        do {
+            token = lexer.tokenize();
+            blackhole.consume(token);
+        } while (token.type() != TokenType.EOF);
+    }
+}
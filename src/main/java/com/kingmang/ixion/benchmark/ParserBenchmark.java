@@ -0,0 +1,26 @@
+package com.kingmang.ixion.benchmark;
+
+import com.kingmang.ixion.ast.Statement;
+import com.kingmang.ixion.lexer.LexerImpl;
+import com.kingmang.ixion.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of lexing and parsing a whole file
+ * With {@code -prof gc}, {@code gc.alloc.rate.norm} divided by the corpus size gives the allocations per kilobyte of source
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Benchmark
+    public List<Statement> parse(Corpus corpus) {
+        return new Parser(new LexerImpl(corpus.source)).parse();
+    }
+}
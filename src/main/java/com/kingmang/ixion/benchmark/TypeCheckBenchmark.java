@@ -0,0 +1,66 @@
+package com.kingmang.ixion.benchmark;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.typechecker.TypeCheckVisitor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to type check a file whose environment is built
+ * Type checking resolves types in place, so every call consumes its own declared copy
+ * Copies for the measurement are declared before the first warmup iteration,
+ * so {@code gc.alloc.rate.norm} counts the type check alone; {@code large} holds about 1.5 GB of them, hence the heap size
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 40, batchSize = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TypeCheckBenchmark {
+
+    @State(Scope.Thread)
+    public static class Input {
+        private final ArrayDeque<Declared> measured = new ArrayDeque<>();
+        ArrayDeque<Declared> copies = new ArrayDeque<>();
+
+        @Setup(Level.Trial)
+        public void declareMeasured(Corpus corpus, BenchmarkParams params) throws FileNotFoundException {
+            var measurement = params.getMeasurement();
+            declare(corpus, measured, measurement.getCount() * measurement.getBatchSize());
+        }
+
+        @Setup(Level.Iteration)
+        public void declareWarmup(Corpus corpus, IterationParams params) throws FileNotFoundException {
+            if (params.getType() == IterationType.MEASUREMENT) {
+                copies = measured;
+            } else {
+                declare(corpus, copies, params.getBatchSize());
+            }
+        }
+
+        private static void declare(Corpus corpus, ArrayDeque<Declared> into, int count) throws FileNotFoundException {
+            into.clear();
+            for (int i = 0; i < count; i++) {
+                var ixApi = new IxApi();
+                into.add(new Declared(ixApi, corpus.declare(ixApi)));
+            }
+        }
+    }
+
+    record Declared(IxApi ixApi, IxFile source) {
+    }
+
+    @Benchmark
+    public Object typeCheck(Input input) {
+        var declared = input.copies.poll();
+        var visitor = new TypeCheckVisitor(declared.ixApi(), declared.source().rootContext, declared.source());
+        return declared.source().acceptVisitor(visitor);
+    }
+}
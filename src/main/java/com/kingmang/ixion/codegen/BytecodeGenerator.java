@@ -0,0 +1,39 @@
+package com.kingmang.ixion.codegen;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.runtime.StructType;
+import org.javatuples.Pair;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates JVM class files directly from a type checked source file
+ */
+public class BytecodeGenerator {
+
+    public static final int CLASS_VERSION = Opcodes.V17;
+
+    /**
+     * @param ixApi The API instance for error reporting
+     * @param source The type checked source file
+     * @return The class writer of the module class and the class writers of every struct declared or instantiated in it
+     */
+    public Pair<ClassWriter, Map<StructType, ClassWriter>> generate(IxApi ixApi, IxFile source) {
+        var cw = new IxClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(CLASS_VERSION, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, source.getFullRelativePath(), null, "java/lang/Object", null);
+        cw.visitSource(source.file.getName(), null);
+
+        Map<StructType, ClassWriter> structWriters = new LinkedHashMap<>();
+        var codegenVisitor = new CodegenVisitor(ixApi, source, cw, structWriters);
+        source.acceptVisitor(codegenVisitor);
+        codegenVisitor.generateSpecializations();
+        codegenVisitor.finish();
+
+        cw.visitEnd();
+        return Pair.with(cw, structWriters);
+    }
+}
@@ -0,0 +1,1615 @@
+package com.kingmang.ixion.codegen;
+
+import com.kingmang.ixion.Visitor;
+import com.kingmang.ixion.api.Context;
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.*;
+import com.kingmang.ixion.exception.ImplementationException;
+import com.kingmang.ixion.lexer.TokenType;
+import com.kingmang.ixion.modules.Prelude;
+import com.kingmang.ixion.runtime.*;
+import com.kingmang.ixion.typechecker.TypeResolver;
+import com.kingmang.ixion.typechecker.TypeUtils;
+import org.javatuples.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Visitor that emits JVM bytecode for a type checked source file
+ * Functions become static methods of the module class, structs become separate classes
+ */
+public class CodegenVisitor implements Visitor<Optional<ClassWriter>> {
+
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    private static final Type STRING_BUILDER_TYPE = Type.getType(StringBuilder.class);
+    private static final Type LIST_TYPE = Type.getType(List.class);
+    private static final Type ITERATOR_TYPE = Type.getType(Iterator.class);
+    private static final Type INT_RANGE_TYPE = Type.getType(IntRange.class);
+    private static final Type INDEXED_COLLECTION_TYPE = Type.getType(IndexedCollection.class);
+    private static final Type PACKED_UNION_TYPE = Type.getType(PackedUnion.class);
+    private static final Handle TYPE_SWITCH = new Handle(Opcodes.H_INVOKESTATIC, "java/lang/runtime/SwitchBootstraps", "typeSwitch",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;", false);
+
+    private final IxApi ixApi;
+    private final IxFile source;
+    private final File file;
+    private final String owner;
+    private final ClassWriter cw;
+    private final Map<StructType, ClassWriter> structWriters;
+    private final Stack<DefType> functionStack = new Stack<>();
+    private final Deque<Map<String, Local>> scopes = new ArrayDeque<>();
+    private final Map<String, IxType> globals = new HashMap<>();
+    private final GeneratorAdapter staticInitializer;
+    /**
+     * Bindings of the generics of the function instantiation being generated, empty elsewhere
+     */
+    private Map<String, IxType> bindings = Map.of();
+    private GeneratorAdapter ga;
+    /**
+     * Start of the body of the function being generated, where self calls in tail position jump back to
+     */
+    private Label functionStart;
+    private Context currentContext;
+
+    /**
+     * @param ixApi The API instance for error reporting
+     * @param source The source file being compiled
+     * @param cw The class writer of the module class
+     * @param structWriters Map receiving the class writers of generated structs
+     */
+    public CodegenVisitor(IxApi ixApi, IxFile source, ClassWriter cw, Map<StructType, ClassWriter> structWriters) {
+        this.ixApi = ixApi;
+        this.source = source;
+        this.file = source.file;
+        this.owner = source.getFullRelativePath();
+        this.cw = cw;
+        this.structWriters = structWriters;
+        this.currentContext = source.rootContext;
+
+        this.staticInitializer = new GeneratorAdapter(
+                Opcodes.ACC_STATIC,
+                Method.getMethod("void <clinit> ()"),
+                null,
+                null,
+                cw
+        );
+        this.ga = staticInitializer;
+        scopes.push(new HashMap<>());
+    }
+
+    /**
+     * Completes the static initializer that holds top level statements
+     */
+    public void finish() {
+        staticInitializer.returnValue();
+        staticInitializer.endMethod();
+    }
+
+    @Override
+    public Optional<ClassWriter> visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitAssignExpr(AssignExpression expr) {
+        switch (expr.left) {
+            case IdentifierExpression id -> {
+                String name = id.identifier.source();
+                var local = lookup(name);
+                if (local != null) {
+                    generate(expr.right, local.type());
+                    if (local.argument()) {
+                        ga.storeArg(local.index());
+                    } else {
+                        ga.storeLocal(local.index());
+                    }
+                } else if (globals.containsKey(name)) {
+                    var type = globals.get(name);
+                    generate(expr.right, type);
+                    ga.putStatic(Type.getObjectType(owner), name, asmType(type));
+                } else {
+                    new ImplementationException().send(ixApi, file, expr, "Cannot assign to `" + name + "`.");
+                }
+            }
+            case PropertyAccessExpression pa -> {
+                pa.expression.accept(this);
+                IxType pointer = typeOf(pa.expression);
+                var identifiers = pa.identifiers;
+                for (int i = 0; i < identifiers.size() - 1; i++) {
+                    pointer = getField(pointer, identifiers.get(i));
+                }
+                var last = identifiers.getLast();
+                var struct = structOf(pointer);
+                var fieldType = fieldType(struct, last.identifier.source());
+                generate(expr.right, fieldType);
+                if (isGenericField(struct, fieldType)) {
+                    ga.invokeVirtual(Type.getObjectType(struct.qualifiedName), new Method(setter(last.identifier.source()), Type.VOID_TYPE, new Type[]{asmType(fieldType)}));
+                } else {
+                    ga.putField(Type.getObjectType(struct.qualifiedName), last.identifier.source(), asmType(fieldType));
+                }
+            }
+            default -> new ImplementationException().send(ixApi, file, expr, "Assignment target is not supported.");
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitBad(BadExpression expr) {
+        new ImplementationException().send(ixApi, file, expr, "Cannot generate code for a malformed expression.");
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitBinaryExpr(BinaryExpression expr) {
+        var totalType = typeOf(expr);
+        switch (expr.operator.type()) {
+            case AND, OR -> {
+                Label shortCircuit = ga.newLabel();
+                Label end = ga.newLabel();
+                int mode = expr.operator.type() == TokenType.AND ? GeneratorAdapter.EQ : GeneratorAdapter.NE;
+
+                generate(expr.left, BuiltInType.BOOLEAN);
+                ga.ifZCmp(mode, shortCircuit);
+                generate(expr.right, BuiltInType.BOOLEAN);
+                ga.goTo(end);
+                ga.mark(shortCircuit);
+                ga.push(expr.operator.type() == TokenType.OR);
+                ga.mark(end);
+            }
+            case XOR -> {
+                generate(expr.left, BuiltInType.BOOLEAN);
+                generate(expr.right, BuiltInType.BOOLEAN);
+                ga.math(GeneratorAdapter.XOR, Type.BOOLEAN_TYPE);
+            }
+            case ADD, SUB, MUL, DIV, MOD -> {
+                if (totalType == BuiltInType.STRING) {
+                    ga.newInstance(STRING_BUILDER_TYPE);
+                    ga.dup();
+                    ga.invokeConstructor(STRING_BUILDER_TYPE, Method.getMethod("void <init> ()"));
+                    appendConcatenation(expr);
+                    ga.invokeVirtual(STRING_BUILDER_TYPE, Method.getMethod("String toString ()"));
+                } else {
+                    generate(expr.left, totalType);
+                    generate(expr.right, totalType);
+                    ga.math(mathOperation(expr.operator.type()), asmType(totalType));
+                }
+            }
+            case EQUAL, NOTEQUAL, LT, GT, LE, GE -> generateComparison(expr);
+            case RANGE -> {
+                ga.newInstance(INT_RANGE_TYPE);
+                ga.dup();
+                generate(expr.left, BuiltInType.INT);
+                generate(expr.right, BuiltInType.INT);
+                ga.invokeConstructor(INT_RANGE_TYPE, Method.getMethod("void <init> (int, int)"));
+            }
+            default -> new ImplementationException().send(ixApi, file, expr, "Operator `" + expr.operator.source() + "` is not supported.");
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitCall(CallExpression expr) {
+        IxType callee = expr.item.getRealType();
+        if (expr.item instanceof IdentifierExpression identifier) {
+            callee = currentContext.getVariable(identifier.identifier.source());
+        }
+
+        if (expr.intrinsic != null) {
+            generateIntrinsic(expr);
+            return Optional.empty();
+        }
+
+        switch (callee) {
+            case DefType callType -> {
+                String callOwner;
+                String name = callType.name;
+                if (callType.glue) {
+                    callOwner = callType.owner;
+                    if (callType.isPrefixed) name = "_" + name;
+                } else if (callType.external != null && !callType.external.equals(source)) {
+                    callOwner = callType.external.getFullRelativePath();
+                } else {
+                    callOwner = owner;
+                }
+
+                var parameters = callType.parameters;
+                var returnType = callType.returnType;
+                var specialization = specializationOf(expr, callType);
+                if (specialization != null) {
+                    name = callType.specializationName(specialization);
+                    parameters = callType.buildParametersFromSpecialization(specialization);
+                    returnType = MonomorphizedStruct.substitute(returnType, specialization);
+                }
+
+                CollectionUtil.zip(parameters, expr.arguments, (param, arg) -> generate(arg, param.getValue1()));
+
+                String descriptor = TypeUtils.getMethodDescriptor(parameters, returnType);
+                ga.visitMethodInsn(Opcodes.INVOKESTATIC, callOwner, name, descriptor, false);
+
+                if (returnType != BuiltInType.VOID) {
+                    coerce(returnType, typeOf(expr));
+                }
+            }
+            case StructType struct -> {
+                var structType = expr.getRealType() instanceof MonomorphizedStruct mt && mt.struct == struct ? mt : struct;
+                var structAsmType = Type.getObjectType(structType.qualifiedName);
+                ga.newInstance(structAsmType);
+                ga.dup();
+                CollectionUtil.zip(structType.parameters, expr.arguments, (param, arg) -> generate(arg, param.getValue1()));
+                ga.invokeConstructor(structAsmType, new Method("<init>", constructorDescriptor(structType.parameters)));
+            }
+            case null, default -> new ImplementationException().send(ixApi, file, expr, "Cannot call `" + callee + "`.");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Calls of generic functions made from an instantiation are linked once the generics of the caller are known
+     * @return The bindings of the instantiation the call uses, or null for the erased function
+     */
+    private Map<String, IxType> specializationOf(CallExpression expr, DefType callType) {
+        if (expr.specialization != null) return expr.specialization;
+        if (bindings.isEmpty() || !callType.hasGenerics() || callType.glue) return null;
+        return callType.specializationOf(expr.arguments.stream().map(this::typeOf).toList());
+    }
+
+    /**
+     * Emits a prelude list or string function as a direct call on the statically known collection class
+     */
+    private void generateIntrinsic(CallExpression expr) {
+        var receiver = expr.arguments.getFirst();
+        var collectionType = typeOf(receiver);
+        generate(receiver, collectionType);
+
+        if (collectionType == BuiltInType.STRING) {
+            ga.invokeVirtual(Type.getType(String.class), Method.getMethod("int length ()"));
+            return;
+        }
+        if (!(collectionType instanceof ListType listType)) {
+            switch (expr.intrinsic) {
+                case LEN -> ga.invokeInterface(INDEXED_COLLECTION_TYPE, Method.getMethod("int size ()"));
+                case LIST_GET -> {
+                    generate(expr.arguments.get(1), BuiltInType.INT);
+                    ga.invokeInterface(INDEXED_COLLECTION_TYPE, Method.getMethod("Object get (int)"));
+                }
+                default -> new ImplementationException().send(ixApi, file, expr, "`" + expr.intrinsic.function + "` is not supported on `" + collectionType + "`.");
+            }
+            return;
+        }
+
+        var contentType = listType.contentType();
+        if (listType.primitiveList() != null) {
+            var primitiveList = asmType(listType);
+            var suffix = primitiveSuffix(contentType);
+            var element = asmType(contentType);
+            switch (expr.intrinsic) {
+                case LEN -> ga.invokeVirtual(primitiveList, Method.getMethod("int size ()"));
+                case LIST_GET -> {
+                    generate(expr.arguments.get(1), BuiltInType.INT);
+                    ga.invokeVirtual(primitiveList, new Method("get" + suffix, element, new Type[]{Type.INT_TYPE}));
+                }
+                case LIST_APPEND -> {
+                    generate(expr.arguments.get(1), contentType);
+                    ga.invokeVirtual(primitiveList, new Method("add" + suffix, Type.VOID_TYPE, new Type[]{element}));
+                }
+                case LIST_POP -> ga.invokeVirtual(primitiveList, new Method("pop" + suffix, element, new Type[0]));
+            }
+            return;
+        }
+
+        switch (expr.intrinsic) {
+            case LEN -> ga.invokeInterface(LIST_TYPE, Method.getMethod("int size ()"));
+            case LIST_GET -> {
+                generate(expr.arguments.get(1), BuiltInType.INT);
+                ga.invokeInterface(LIST_TYPE, Method.getMethod("Object get (int)"));
+                coerce(BuiltInType.ANY, contentType);
+            }
+            case LIST_APPEND -> {
+                generate(expr.arguments.get(1), contentType);
+                coerce(contentType, BuiltInType.ANY);
+                ga.invokeInterface(LIST_TYPE, Method.getMethod("boolean add (Object)"));
+                ga.pop();
+            }
+            case LIST_POP -> {
+                ga.invokeInterface(LIST_TYPE, Method.getMethod("Object removeLast ()"));
+                coerce(BuiltInType.ANY, contentType);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitEmpty(EmptyExpression empty) {
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitEmptyList(EmptyListExpression emptyList) {
+        var listType = listClass(typeOf(emptyList));
+        ga.newInstance(listType);
+        ga.dup();
+        ga.invokeConstructor(listType, Method.getMethod("void <init> ()"));
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitGroupingExpr(GroupingExpression expr) {
+        return expr.expression.accept(this);
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitIdentifierExpr(IdentifierExpression expr) {
+        String name = expr.identifier.source();
+        var local = lookup(name);
+        if (local != null) {
+            if (local.argument()) {
+                ga.loadArg(local.index());
+            } else {
+                ga.loadLocal(local.index());
+            }
+        } else if (globals.containsKey(name)) {
+            ga.getStatic(Type.getObjectType(owner), name, asmType(globals.get(name)));
+        } else {
+            new ImplementationException().send(ixApi, file, expr, "Identifier `" + name + "` has no storage.");
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitIndexAccess(IndexAccessExpression expr) {
+        var listType = typeOf(expr.left);
+        generate(expr.left, listType);
+        generate(expr.right, BuiltInType.INT);
+        if (listType instanceof ListType lt && lt.primitiveList() != null) {
+            var contentType = lt.contentType();
+            ga.invokeVirtual(asmType(lt), new Method("get" + primitiveSuffix(contentType), asmType(contentType), new Type[]{Type.INT_TYPE}));
+            coerce(contentType, expr.getRealType());
+        } else {
+            ga.invokeInterface(LIST_TYPE, Method.getMethod("Object get (int)"));
+            coerce(BuiltInType.ANY, expr.getRealType());
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitLiteralExpr(LiteralExpression expr) {
+        if (expr.getRealType() instanceof BuiltInType bt) {
+            String literal = expr.literal.source();
+            switch (bt) {
+                case BOOLEAN -> ga.push(Boolean.parseBoolean(literal));
+                case CHAR -> ga.push((int) literal.charAt(0));
+                case STRING -> ga.push(literal);
+                case INT, FLOAT, DOUBLE -> {
+                    var value = TypeResolver.getValueFromString(literal, bt);
+                    switch (value) {
+                        case Integer i -> ga.push(i);
+                        case Float f -> ga.push(f);
+                        case Double d -> ga.push(d);
+                        default -> throw new IllegalStateException("Unexpected value: " + value);
+                    }
+                }
+                default -> new ImplementationException().send(ixApi, file, expr, "Literal of type `" + bt + "` is not supported.");
+            }
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitLiteralList(LiteralListExpression expr) {
+        var type = typeOf(expr);
+        var listType = listClass(type);
+        ga.newInstance(listType);
+        ga.dup();
+        ga.push(expr.entries.size());
+        ga.invokeConstructor(listType, Method.getMethod("void <init> (int)"));
+
+        if (type instanceof ListType lt && lt.primitiveList() != null) {
+            var contentType = lt.contentType();
+            var add = new Method("add" + primitiveSuffix(contentType), Type.VOID_TYPE, new Type[]{asmType(contentType)});
+            for (var entry : expr.entries) {
+                ga.dup();
+                generate(entry, contentType);
+                ga.invokeVirtual(listType, add);
+            }
+            return Optional.empty();
+        }
+
+        for (var entry : expr.entries) {
+            ga.dup();
+            generate(entry, BuiltInType.ANY);
+            ga.invokeInterface(LIST_TYPE, Method.getMethod("boolean add (Object)"));
+            ga.pop();
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitModuleAccess(ModuleAccessExpression expr) {
+        new ImplementationException().send(ixApi, file, expr, "Module access is resolved through qualified identifiers.");
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitPostfixExpr(PostfixExpression expr) {
+        generateIncrement(expr, true);
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitPrefix(PrefixExpression expr) {
+        var type = typeOf(expr);
+        generate(expr.right, type);
+        switch (expr.operator.type()) {
+            case SUB -> ga.math(GeneratorAdapter.NEG, asmType(type));
+            case NOT -> ga.not();
+            case ADD -> {
+            }
+            default -> new ImplementationException().send(ixApi, file, expr, "Prefix operator `" + expr.operator.source() + "` is not supported.");
+        }
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitPropertyAccess(PropertyAccessExpression expr) {
+        expr.expression.accept(this);
+        IxType pointer = typeOf(expr.expression);
+        for (var identifier : expr.identifiers) {
+            pointer = getField(pointer, identifier);
+        }
+        coerce(pointer, expr.getRealType());
+        return Optional.empty();
+    }
+
+    @NotNull
+    @Override
+    public Optional<ClassWriter> visitLambda(@NotNull LambdaExpression expression) {
+        new ImplementationException().send(ixApi, file, expression, "Lambdas are not supported by the bytecode backend yet.");
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitTypeAlias(TypeAliasStatement statement) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitBlockStmt(BlockStatement statement) {
+        var previous = currentContext;
+        currentContext = statement.context;
+        scopes.push(new HashMap<>());
+        for (var stmt : statement.statements) {
+            stmt.accept(this);
+        }
+        scopes.pop();
+        currentContext = previous;
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitEnum(EnumStatement statement) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitExport(ExportStatement statement) {
+        return statement.stmt.accept(this);
+    }
+
+    @Override
+    public Optional<ClassWriter> visitExpressionStmt(ExpressionStatement statement) {
+        var expression = statement.expression;
+        if (expression instanceof PostfixExpression postfix) {
+            generateIncrement(postfix, false);
+            return Optional.empty();
+        }
+
+        expression.accept(this);
+        var type = asmType(typeOf(expression));
+        if (type.getSize() == 2) {
+            ga.pop2();
+        } else if (type.getSize() == 1) {
+            ga.pop();
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitFor(ForStatement statement) {
+        currentContext = statement.block.context;
+
+        var iterableType = typeOf(statement.expression);
+        var bounds = rangeBounds(statement.expression, currentContext);
+        if (bounds != null) {
+            generate(bounds.getValue0(), BuiltInType.INT);
+            generate(bounds.getValue1(), BuiltInType.INT);
+            generateCountedFor(statement);
+        } else if (iterableType instanceof ExternalType et && et.foundClass == IntRange.class) {
+            generate(statement.expression, iterableType);
+            int range = ga.newLocal(INT_RANGE_TYPE);
+            ga.storeLocal(range);
+            ga.loadLocal(range);
+            ga.invokeVirtual(INT_RANGE_TYPE, Method.getMethod("int start ()"));
+            ga.loadLocal(range);
+            ga.invokeVirtual(INT_RANGE_TYPE, Method.getMethod("int end ()"));
+            generateCountedFor(statement);
+        } else if (iterableType instanceof ListType || TypeUtils.isIndexedCollection(iterableType)) {
+            generate(statement.expression, iterableType);
+            generateIndexedFor(statement, iterableType);
+        } else {
+            generate(statement.expression, iterableType);
+            generateIteratorFor(statement);
+        }
+
+        currentContext = currentContext.parent;
+        return Optional.empty();
+    }
+
+    /**
+     * Counts from the start to the exclusive end on top of the stack, without creating a range or boxing the counter
+     */
+    private void generateCountedFor(ForStatement statement) {
+        int end = ga.newLocal(Type.INT_TYPE);
+        ga.storeLocal(end);
+        int counter = ga.newLocal(Type.INT_TYPE);
+        ga.storeLocal(counter);
+
+        Label start = ga.newLabel();
+        Label done = ga.newLabel();
+        ga.mark(start);
+        ga.loadLocal(counter);
+        ga.loadLocal(end);
+        ga.ifICmp(GeneratorAdapter.GE, done);
+
+        scopes.push(new HashMap<>());
+        ga.loadLocal(counter);
+        declareLocal(statement.name.source(), BuiltInType.INT);
+
+        statement.block.accept(this);
+        scopes.pop();
+
+        ga.iinc(counter, 1);
+        ga.goTo(start);
+        ga.mark(done);
+    }
+
+    /**
+     * Walks the list or indexed collection on top of the stack by index, reading primitive lists through their unboxed getter
+     * The size is read on every iteration, so the body may grow or shrink the list
+     */
+    private void generateIndexedFor(ForStatement statement, IxType iterableType) {
+        var collectionType = asmType(iterableType);
+        IxType elementType = BuiltInType.ANY;
+        Runnable size;
+        Runnable get;
+        if (iterableType instanceof ListType listType && listType.primitiveList() != null) {
+            var contentType = listType.contentType();
+            elementType = contentType;
+            size = () -> ga.invokeVirtual(collectionType, Method.getMethod("int size ()"));
+            get = () -> ga.invokeVirtual(collectionType, new Method("get" + primitiveSuffix(contentType), asmType(contentType), new Type[]{Type.INT_TYPE}));
+        } else {
+            var owner = iterableType instanceof ListType ? LIST_TYPE : INDEXED_COLLECTION_TYPE;
+            if (iterableType instanceof ListType listType) {
+                elementType = listType.contentType();
+            }
+            var target = elementType;
+            size = () -> ga.invokeInterface(owner, Method.getMethod("int size ()"));
+            get = () -> {
+                ga.invokeInterface(owner, Method.getMethod("Object get (int)"));
+                coerce(BuiltInType.ANY, target);
+            };
+        }
+
+        int collection = ga.newLocal(collectionType);
+        ga.storeLocal(collection);
+        int index = ga.newLocal(Type.INT_TYPE);
+        ga.push(0);
+        ga.storeLocal(index);
+
+        Label start = ga.newLabel();
+        Label end = ga.newLabel();
+        ga.mark(start);
+        ga.loadLocal(index);
+        ga.loadLocal(collection);
+        size.run();
+        ga.ifICmp(GeneratorAdapter.GE, end);
+
+        scopes.push(new HashMap<>());
+        ga.loadLocal(collection);
+        ga.loadLocal(index);
+        get.run();
+        declareLocal(statement.name.source(), elementType);
+
+        statement.block.accept(this);
+        scopes.pop();
+
+        ga.iinc(index, 1);
+        ga.goTo(start);
+        ga.mark(end);
+    }
+
+    /**
+     * Walks the iterator on top of the stack, used for iterators returned by external functions
+     */
+    private void generateIteratorFor(ForStatement statement) {
+        int iterator = ga.newLocal(ITERATOR_TYPE);
+        ga.storeLocal(iterator);
+
+        Label start = ga.newLabel();
+        Label end = ga.newLabel();
+        ga.mark(start);
+        ga.loadLocal(iterator);
+        ga.invokeInterface(ITERATOR_TYPE, Method.getMethod("boolean hasNext ()"));
+        ga.ifZCmp(GeneratorAdapter.EQ, end);
+
+        scopes.push(new HashMap<>());
+        ga.loadLocal(iterator);
+        ga.invokeInterface(ITERATOR_TYPE, Method.getMethod("Object next ()"));
+        coerce(BuiltInType.ANY, BuiltInType.INT);
+        declareLocal(statement.name.source(), BuiltInType.INT);
+
+        statement.block.accept(this);
+        scopes.pop();
+
+        ga.goTo(start);
+        ga.mark(end);
+    }
+
+    @Override
+    public Optional<ClassWriter> visitFunctionStmt(DefStatement statement) {
+        var funcType = currentContext.getVariableTyped(statement.name.source(), DefType.class);
+        if (funcType == null) return Optional.empty();
+
+        generateFunction(statement, funcType, funcType.name, funcType.parameters, funcType.returnType);
+
+        List<Map<String, IxType>> specializations;
+        synchronized (funcType) {
+            specializations = new ArrayList<>(funcType.specializations);
+        }
+        for (var specialization : specializations) {
+            bindings = specialization;
+            generateFunction(statement, funcType, funcType.specializationName(specialization),
+                    funcType.buildParametersFromSpecialization(specialization),
+                    MonomorphizedStruct.substitute(funcType.returnType, specialization));
+            bindings = Map.of();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Generates a method for a function, or for an instantiation of a generic function when {@link #bindings} are set
+     */
+    private void generateFunction(DefStatement statement, DefType funcType, String name, List<Pair<String, IxType>> parameterTypes, IxType returnType) {
+        boolean isMain = funcType.name.equals("main");
+        String descriptor = isMain
+                ? "([Ljava/lang/String;)V"
+                : TypeUtils.getMethodDescriptor(parameterTypes, returnType);
+
+        var previous = ga;
+        ga = new GeneratorAdapter(
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+                new Method(name, descriptor),
+                null,
+                null,
+                cw
+        );
+        funcType.setGa(ga);
+
+        if (statement.ir != null && bindings.isEmpty()) {
+            new IrBytecodeEmitter(ga, source, owner).emit(statement.ir);
+            ga.endMethod();
+            ga = previous;
+            return;
+        }
+        functionStack.push(funcType);
+
+        var parameters = new HashMap<String, Local>();
+        if (!isMain) {
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                var param = parameterTypes.get(i);
+                parameters.put(param.getValue0(), new Local(i, param.getValue1(), true));
+            }
+        }
+        scopes.push(parameters);
+
+        var previousStart = functionStart;
+        functionStart = ga.mark();
+        currentContext = statement.body.context;
+        statement.body.accept(this);
+
+        if (!endsWithReturn(statement.body)) {
+            pushDefaultValue(isMain ? BuiltInType.VOID : returnType);
+            ga.returnValue();
+        }
+        ga.endMethod();
+
+        scopes.pop();
+        functionStack.pop();
+        currentContext = currentContext.parent;
+        functionStart = previousStart;
+        ga = previous;
+    }
+
+    @Override
+    public Optional<ClassWriter> visitIf(IfStatement statement) {
+        currentContext = statement.trueBlock.context;
+
+        Label falseLabel = ga.newLabel();
+        Label end = ga.newLabel();
+
+        generate(statement.condition, BuiltInType.BOOLEAN);
+        ga.ifZCmp(GeneratorAdapter.EQ, falseLabel);
+        statement.trueBlock.accept(this);
+        ga.goTo(end);
+        ga.mark(falseLabel);
+        if (statement.falseStatement != null) {
+            statement.falseStatement.accept(this);
+        }
+        ga.mark(end);
+
+        currentContext = currentContext.parent;
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitUse(UseStatement statement) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitMatch(CaseStatement statement) {
+        var arms = new ArrayList<>(statement.cases.entrySet());
+        var armTypes = new ArrayList<IxType>();
+        for (var arm : arms) {
+            var caseType = statement.types.get(arm.getKey());
+            if (caseType instanceof UnknownType ukt) {
+                caseType = currentContext.getVariable(ukt.typeName);
+            }
+            armTypes.add(caseType);
+        }
+
+        var scrutineeType = typeOf(statement.expression);
+        boolean packed = isPacked(scrutineeType);
+        statement.expression.accept(this);
+        int scrutinee = ga.newLocal(packed ? Type.LONG_TYPE : OBJECT_TYPE);
+        ga.storeLocal(scrutinee);
+
+        Label end = ga.newLabel();
+        Label[] labels = new Label[arms.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = ga.newLabel();
+        }
+
+        ga.loadLocal(scrutinee);
+        if (packed) {
+            // the tag of a primitive union selects the arm directly
+            ga.invokeStatic(PACKED_UNION_TYPE, Method.getMethod("int tag (long)"));
+            var byTag = new TreeMap<Integer, Label>();
+            for (int i = 0; i < arms.size(); i++) {
+                byTag.put(PackedUnion.tagOf((BuiltInType) armTypes.get(i)), labels[i]);
+            }
+            ga.visitLookupSwitchInsn(end, byTag.keySet().stream().mapToInt(Integer::intValue).toArray(), byTag.values().toArray(Label[]::new));
+        } else {
+            // one type switch selects the arm, instead of an instanceof test per arm
+            ga.push(0);
+            ga.invokeDynamic("typeSwitch", "(Ljava/lang/Object;I)I", TYPE_SWITCH,
+                    armTypes.stream().map(CodegenVisitor::boxedType).toArray());
+            ga.visitTableSwitchInsn(0, labels.length - 1, end, labels);
+        }
+
+        for (int i = 0; i < arms.size(); i++) {
+            var caseType = armTypes.get(i);
+            var scopedName = arms.get(i).getValue().getValue0();
+            var block = arms.get(i).getValue().getValue1();
+
+            ga.mark(labels[i]);
+            scopes.push(new HashMap<>());
+            ga.loadLocal(scrutinee);
+            coerce(packed ? scrutineeType : BuiltInType.ANY, caseType);
+            declareLocal(scopedName, caseType);
+
+            currentContext = block.context;
+            block.accept(this);
+            currentContext = currentContext.parent;
+            scopes.pop();
+
+            ga.goTo(end);
+        }
+        ga.mark(end);
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitParameterStmt(ParameterStatement statement) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitReturnStmt(ReturnStatement statement) {
+        var tailCall = functionStack.isEmpty() ? null : selfTailCall(statement, functionStack.peek(), currentContext);
+        if (tailCall != null && bindings.isEmpty()) {
+            var parameters = functionStack.peek().parameters;
+            // every argument is evaluated before the parameters change
+            CollectionUtil.zip(parameters, tailCall.arguments, (param, arg) -> generate(arg, param.getValue1()));
+            for (int i = parameters.size() - 1; i >= 0; i--) {
+                ga.storeArg(i);
+            }
+            ga.goTo(functionStart);
+            return Optional.empty();
+        }
+        if (!(statement.expression instanceof EmptyExpression) && !functionStack.isEmpty()) {
+            generate(statement.expression, bound(functionStack.peek().returnType));
+        }
+        ga.returnValue();
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitStruct(StructStatement statement) {
+        var structType = currentContext.getVariableTyped(statement.name.source(), StructType.class);
+        if (structType == null) return Optional.empty();
+
+        if (structType.hasGenerics()) {
+            generateGenericStruct(structType);
+        } else {
+            generateStruct(structType, null);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Generates the classes of the generic struct instantiations created by the file
+     * Their names only depend on the struct and the bindings, so files instantiating the same one generate the same class
+     */
+    public void generateSpecializations() {
+        source.specializations.stream()
+                .sorted(Comparator.comparing(specialization -> specialization.qualifiedName))
+                .forEach(specialization -> generateStruct(specialization, specialization.struct));
+    }
+
+    /**
+     * Generates the abstract class of a generic struct
+     * It holds the fields that do not depend on the generics and declares accessors for the others,
+     * which every instantiation implements over its own fields
+     */
+    private void generateGenericStruct(StructType structType) {
+        var scw = new IxClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        scw.visit(BytecodeGenerator.CLASS_VERSION, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_ABSTRACT, structType.qualifiedName, null, "java/lang/Object", null);
+        scw.visitSource(file.getName(), null);
+
+        var structAsmType = Type.getObjectType(structType.qualifiedName);
+        var sharedFields = sharedFields(structType);
+        for (var field : sharedFields) {
+            scw.visitField(fieldAccess(structType), field.getValue0(), asmType(field.getValue1()).getDescriptor(), null, null).visitEnd();
+        }
+
+        var constructor = new GeneratorAdapter(Opcodes.ACC_PROTECTED, new Method("<init>", constructorDescriptor(sharedFields)), null, null, scw);
+        constructor.loadThis();
+        constructor.invokeConstructor(OBJECT_TYPE, Method.getMethod("void <init> ()"));
+        for (int i = 0; i < sharedFields.size(); i++) {
+            var field = sharedFields.get(i);
+            constructor.loadThis();
+            constructor.loadArg(i);
+            constructor.putField(structAsmType, field.getValue0(), asmType(field.getValue1()));
+        }
+        constructor.returnValue();
+        constructor.endMethod();
+
+        for (var field : structType.parameters) {
+            if (!MonomorphizedStruct.dependsOnGenerics(field.getValue1())) continue;
+            var fieldType = asmType(field.getValue1());
+            scw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, getter(field.getValue0()), Type.getMethodDescriptor(fieldType), null, null).visitEnd();
+            if (structType.isMutated()) {
+                scw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, setter(field.getValue0()), Type.getMethodDescriptor(Type.VOID_TYPE, fieldType), null, null).visitEnd();
+            }
+        }
+
+        scw.visitEnd();
+        structWriters.put(structType, scw);
+    }
+
+    /**
+     * Generates the class of a struct, or of an instantiation of a generic struct
+     * @param structType The struct, with concrete field types
+     * @param generic The generic struct being instantiated, or null for a plain struct
+     */
+    private void generateStruct(StructType structType, StructType generic) {
+        var scw = new IxClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        var superName = generic != null ? generic.qualifiedName : "java/lang/Object";
+        scw.visit(BytecodeGenerator.CLASS_VERSION, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER | Opcodes.ACC_FINAL, structType.qualifiedName, null, superName, null);
+        scw.visitSource(file.getName(), null);
+
+        var ownFields = new ArrayList<Pair<String, IxType>>();
+        for (int i = 0; i < structType.parameters.size(); i++) {
+            if (generic == null || MonomorphizedStruct.dependsOnGenerics(generic.parameters.get(i).getValue1())) {
+                ownFields.add(structType.parameters.get(i));
+            }
+        }
+        for (var field : ownFields) {
+            scw.visitField(fieldAccess(structType), field.getValue0(), asmType(field.getValue1()).getDescriptor(), null, null).visitEnd();
+        }
+
+        var structAsmType = Type.getObjectType(structType.qualifiedName);
+        var constructor = new GeneratorAdapter(Opcodes.ACC_PUBLIC, new Method("<init>", constructorDescriptor(structType.parameters)), null, null, scw);
+        constructor.loadThis();
+        if (generic != null) {
+            var sharedFields = sharedFields(generic);
+            for (int i = 0; i < structType.parameters.size(); i++) {
+                if (!ownFields.contains(structType.parameters.get(i))) {
+                    constructor.loadArg(i);
+                }
+            }
+            constructor.invokeConstructor(Type.getObjectType(superName), new Method("<init>", constructorDescriptor(sharedFields)));
+        } else {
+            constructor.invokeConstructor(OBJECT_TYPE, Method.getMethod("void <init> ()"));
+        }
+        for (int i = 0; i < structType.parameters.size(); i++) {
+            var field = structType.parameters.get(i);
+            if (!ownFields.contains(field)) continue;
+            constructor.loadThis();
+            constructor.loadArg(i);
+            constructor.putField(structAsmType, field.getValue0(), asmType(field.getValue1()));
+        }
+        constructor.returnValue();
+        constructor.endMethod();
+
+        if (generic != null) {
+            generateAccessors(scw, structAsmType, generic, ownFields);
+        }
+        if (!structType.isMutated()) {
+            generateEquality(scw, structAsmType, structType.parameters);
+        }
+
+        var toString = new GeneratorAdapter(Opcodes.ACC_PUBLIC, Method.getMethod("String toString ()"), null, null, scw);
+        toString.newInstance(STRING_BUILDER_TYPE);
+        toString.dup();
+        toString.push((generic != null ? generic.name : structType.name) + "{");
+        toString.invokeConstructor(STRING_BUILDER_TYPE, Method.getMethod("void <init> (String)"));
+        for (int i = 0; i < structType.parameters.size(); i++) {
+            var field = structType.parameters.get(i);
+            var fieldAsmType = asmType(field.getValue1());
+            toString.push((i > 0 ? ", " : "") + field.getValue0() + "=");
+            appendTo(toString, Type.getType(String.class));
+            toString.loadThis();
+            toString.getField(structAsmType, field.getValue0(), fieldAsmType);
+            appendTo(toString, field.getValue1());
+        }
+        toString.push("}");
+        appendTo(toString, Type.getType(String.class));
+        toString.invokeVirtual(STRING_BUILDER_TYPE, Method.getMethod("String toString ()"));
+        toString.returnValue();
+        toString.endMethod();
+
+        scw.visitEnd();
+        structWriters.put(structType, scw);
+    }
+
+    /**
+     * Implements the accessors a generic struct declares for its generic fields, converting to and from the concrete field types
+     */
+    private void generateAccessors(ClassWriter scw, Type structAsmType, StructType generic, List<Pair<String, IxType>> ownFields) {
+        var previous = ga;
+        for (var field : ownFields) {
+            var name = field.getValue0();
+            var genericType = fieldType(generic, name);
+
+            ga = new GeneratorAdapter(Opcodes.ACC_PUBLIC, new Method(getter(name), asmType(genericType), new Type[0]), null, null, scw);
+            ga.loadThis();
+            ga.getField(structAsmType, name, asmType(field.getValue1()));
+            coerce(field.getValue1(), BuiltInType.ANY);
+            ga.returnValue();
+            ga.endMethod();
+
+            if (!generic.isMutated()) continue;
+            ga = new GeneratorAdapter(Opcodes.ACC_PUBLIC, new Method(setter(name), Type.VOID_TYPE, new Type[]{asmType(genericType)}), null, null, scw);
+            ga.loadThis();
+            ga.loadArg(0);
+            coerce(BuiltInType.ANY, field.getValue1());
+            ga.putField(structAsmType, name, asmType(field.getValue1()));
+            ga.returnValue();
+            ga.endMethod();
+        }
+        ga = previous;
+    }
+
+    /**
+     * Generates value equality over the fields of a struct no file assigns to
+     */
+    private static void generateEquality(ClassWriter scw, Type structAsmType, List<Pair<String, IxType>> fields) {
+        var equals = new GeneratorAdapter(Opcodes.ACC_PUBLIC, Method.getMethod("boolean equals (Object)"), null, null, scw);
+        Label equal = equals.newLabel();
+        Label notEqual = equals.newLabel();
+        equals.loadThis();
+        equals.loadArg(0);
+        equals.ifCmp(OBJECT_TYPE, GeneratorAdapter.EQ, equal);
+        equals.loadArg(0);
+        equals.instanceOf(structAsmType);
+        equals.ifZCmp(GeneratorAdapter.EQ, notEqual);
+        equals.loadArg(0);
+        equals.checkCast(structAsmType);
+        int other = equals.newLocal(structAsmType);
+        equals.storeLocal(other);
+        for (var field : fields) {
+            var fieldType = asmType(field.getValue1());
+            equals.loadThis();
+            equals.getField(structAsmType, field.getValue0(), fieldType);
+            equals.loadLocal(other);
+            equals.getField(structAsmType, field.getValue0(), fieldType);
+            switch (fieldType.getSort()) {
+                case Type.BOOLEAN, Type.CHAR, Type.INT, Type.LONG -> equals.ifCmp(fieldType, GeneratorAdapter.NE, notEqual);
+                case Type.FLOAT, Type.DOUBLE -> {
+                    equals.invokeStatic(wrapperOf(fieldType), new Method("compare", Type.INT_TYPE, new Type[]{fieldType, fieldType}));
+                    equals.ifZCmp(GeneratorAdapter.NE, notEqual);
+                }
+                default -> {
+                    equals.invokeStatic(Type.getType(Objects.class), Method.getMethod("boolean equals (Object, Object)"));
+                    equals.ifZCmp(GeneratorAdapter.EQ, notEqual);
+                }
+            }
+        }
+        equals.mark(equal);
+        equals.push(true);
+        equals.returnValue();
+        equals.mark(notEqual);
+        equals.push(false);
+        equals.returnValue();
+        equals.endMethod();
+
+        var hashCode = new GeneratorAdapter(Opcodes.ACC_PUBLIC, Method.getMethod("int hashCode ()"), null, null, scw);
+        hashCode.push(0);
+        for (var field : fields) {
+            var fieldType = asmType(field.getValue1());
+            hashCode.push(31);
+            hashCode.math(GeneratorAdapter.MUL, Type.INT_TYPE);
+            hashCode.loadThis();
+            hashCode.getField(structAsmType, field.getValue0(), fieldType);
+            if (isPrimitive(fieldType)) {
+                hashCode.invokeStatic(wrapperOf(fieldType), new Method("hashCode", Type.INT_TYPE, new Type[]{fieldType}));
+            } else {
+                hashCode.invokeStatic(Type.getType(Objects.class), Method.getMethod("int hashCode (Object)"));
+            }
+            hashCode.math(GeneratorAdapter.ADD, Type.INT_TYPE);
+        }
+        hashCode.returnValue();
+        hashCode.endMethod();
+    }
+
+    /**
+     * Fields of structs no file assigns to are final, so the JIT can trust them
+     */
+    private static int fieldAccess(StructType structType) {
+        return structType.isMutated() ? Opcodes.ACC_PUBLIC : Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL;
+    }
+
+    private static List<Pair<String, IxType>> sharedFields(StructType generic) {
+        return generic.parameters.stream().filter(p -> !MonomorphizedStruct.dependsOnGenerics(p.getValue1())).toList();
+    }
+
+    private static String getter(String field) {
+        return "get$" + field;
+    }
+
+    private static String setter(String field) {
+        return "set$" + field;
+    }
+
+    @Override
+    public Optional<ClassWriter> visitTypeAlias(TypeStatement statement) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitUnionType(UnionTypeStatement statement) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitVariable(VariableStatement statement) {
+        String name = statement.identifier();
+        var type = typeOf(statement.expression);
+        if (type instanceof UnknownType) {
+            type = currentContext.getVariable(name);
+        }
+
+        if (functionStack.isEmpty()) {
+            globals.put(name, type);
+            cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, name, asmType(type).getDescriptor(), null, null).visitEnd();
+            generate(statement.expression, type);
+            ga.putStatic(Type.getObjectType(owner), name, asmType(type));
+        } else {
+            generate(statement.expression, type);
+            declareLocal(name, type);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ClassWriter> visitWhile(WhileStatement statement) {
+        currentContext = statement.block.context;
+
+        Label start = ga.newLabel();
+        Label end = ga.newLabel();
+        ga.mark(start);
+        generate(statement.condition, BuiltInType.BOOLEAN);
+        ga.ifZCmp(GeneratorAdapter.EQ, end);
+        statement.block.accept(this);
+        ga.goTo(start);
+        ga.mark(end);
+
+        currentContext = currentContext.parent;
+        return Optional.empty();
+    }
+
+    /**
+     * Generates an expression and converts the pushed value to the expected type
+     * @param expression The expression to generate
+     * @param expected The type the consumer of the value expects
+     */
+    private void generate(Expression expression, IxType expected) {
+        expression.accept(this);
+        coerce(typeOf(expression), expected);
+    }
+
+    /**
+     * Converts the value on top of the stack between two Ixion types, boxing or unboxing where required
+     * @param from The type of the value on the stack
+     * @param to The requested type
+     */
+    private void coerce(IxType from, IxType to) {
+        if (from == null || to == null || to == BuiltInType.VOID) return;
+        if (isPacked(from) || isPacked(to)) {
+            coercePacked(from, to);
+            return;
+        }
+        var fromType = asmType(from);
+        var toType = asmType(to);
+        if (fromType.equals(toType) || fromType.getSort() == Type.VOID) return;
+
+        boolean fromPrimitive = isPrimitive(fromType);
+        boolean toPrimitive = isPrimitive(toType);
+        if (fromPrimitive && toPrimitive) {
+            ga.cast(fromType, toType);
+        } else if (fromPrimitive) {
+            box(from, fromType);
+        } else if (toPrimitive) {
+            if (to instanceof BuiltInType bt) {
+                bt.doUnboxing(ga);
+            } else {
+                ga.unbox(toType);
+            }
+        } else if (fromType.equals(OBJECT_TYPE)) {
+            ga.checkCast(toType);
+        }
+    }
+
+    /**
+     * Converts between primitive unions, stored as {@link PackedUnion} longs, and every other representation
+     */
+    private void coercePacked(IxType from, IxType to) {
+        if (isPacked(from) && isPacked(to)) return;
+        if (isPacked(to)) {
+            if (from instanceof BuiltInType bt && PackedUnion.tagOf(bt) >= 0) {
+                ga.invokeStatic(PACKED_UNION_TYPE, new Method("of" + packedSuffix(bt), Type.LONG_TYPE, new Type[]{asmType(bt)}));
+            } else {
+                ga.invokeStatic(PACKED_UNION_TYPE, Method.getMethod("long pack (Object)"));
+            }
+        } else if (to instanceof BuiltInType bt && PackedUnion.tagOf(bt) >= 0) {
+            ga.invokeStatic(PACKED_UNION_TYPE, new Method("as" + packedSuffix(bt), asmType(bt), new Type[]{Type.LONG_TYPE}));
+        } else {
+            ga.invokeStatic(PACKED_UNION_TYPE, Method.getMethod("Object box (long)"));
+            coerce(BuiltInType.ANY, to);
+        }
+    }
+
+    private void box(IxType from, Type fromType) {
+        if (from instanceof BuiltInType bt) {
+            bt.doBoxing(ga);
+        } else {
+            ga.valueOf(fromType);
+        }
+    }
+
+    /**
+     * Appends every operand of a string concatenation chain to the builder on top of the stack
+     * @param expr The concatenation to flatten
+     */
+    private void appendConcatenation(Expression expr) {
+        if (expr instanceof BinaryExpression binary
+                && binary.operator.type() == TokenType.ADD
+                && binary.getRealType() == BuiltInType.STRING) {
+            appendConcatenation(binary.left);
+            appendConcatenation(binary.right);
+        } else {
+            var type = typeOf(expr);
+            expr.accept(this);
+            appendTo(ga, type);
+        }
+    }
+
+    private static void appendTo(GeneratorAdapter adapter, IxType type) {
+        if (isPacked(type)) {
+            adapter.invokeStatic(PACKED_UNION_TYPE, Method.getMethod("String toString (long)"));
+            appendTo(adapter, Type.getType(String.class));
+        } else {
+            appendTo(adapter, asmType(type));
+        }
+    }
+
+    private static void appendTo(GeneratorAdapter adapter, Type type) {
+        var argument = switch (type.getSort()) {
+            case Type.BOOLEAN, Type.CHAR, Type.INT, Type.FLOAT, Type.DOUBLE, Type.LONG -> type;
+            case Type.BYTE, Type.SHORT -> Type.INT_TYPE;
+            default -> type.equals(Type.getType(String.class)) ? type : OBJECT_TYPE;
+        };
+        adapter.invokeVirtual(STRING_BUILDER_TYPE, new Method("append", STRING_BUILDER_TYPE, new Type[]{argument}));
+    }
+
+    private void generateComparison(BinaryExpression expr) {
+        var leftType = typeOf(expr.left);
+        var rightType = typeOf(expr.right);
+        var mode = switch (expr.operator.type()) {
+            case EQUAL -> GeneratorAdapter.EQ;
+            case NOTEQUAL -> GeneratorAdapter.NE;
+            case LT -> GeneratorAdapter.LT;
+            case GT -> GeneratorAdapter.GT;
+            case LE -> GeneratorAdapter.LE;
+            default -> GeneratorAdapter.GE;
+        };
+
+        if (leftType instanceof BuiltInType bt1 && rightType instanceof BuiltInType bt2
+                && isPrimitive(asmType(bt1)) && isPrimitive(asmType(bt2))) {
+            var operandType = BuiltInType.widen(bt1, bt2);
+            Label isTrue = ga.newLabel();
+            Label end = ga.newLabel();
+            generate(expr.left, operandType);
+            generate(expr.right, operandType);
+            ga.ifCmp(asmType(operandType), mode, isTrue);
+            ga.push(false);
+            ga.goTo(end);
+            ga.mark(isTrue);
+            ga.push(true);
+            ga.mark(end);
+        } else {
+            generate(expr.left, BuiltInType.ANY);
+            generate(expr.right, BuiltInType.ANY);
+            ga.invokeStatic(Type.getType(Objects.class), Method.getMethod("boolean equals (Object, Object)"));
+            if (mode == GeneratorAdapter.NE) {
+                ga.not();
+            }
+        }
+    }
+
+    /**
+     * Emits `++` or `--` on a variable
+     * @param expr The postfix expression
+     * @param keepValue Whether the value before the increment stays on the stack
+     */
+    private void generateIncrement(PostfixExpression expr, boolean keepValue) {
+        if (!(expr.expression instanceof IdentifierExpression id) || lookup(id.identifier.source()) == null) {
+            new ImplementationException().send(ixApi, file, expr, "Only local variables can be incremented.");
+            return;
+        }
+        var local = lookup(id.identifier.source());
+        var type = local.type();
+        int operation = expr.operator.type() == TokenType.PLUSPLUS ? GeneratorAdapter.ADD : GeneratorAdapter.SUB;
+
+        if (type == BuiltInType.INT && !local.argument() && !keepValue) {
+            ga.iinc(local.index(), operation == GeneratorAdapter.ADD ? 1 : -1);
+            return;
+        }
+
+        expr.expression.accept(this);
+        if (keepValue) {
+            if (asmType(type).getSize() == 2) ga.dup2();
+            else ga.dup();
+        }
+        if (type instanceof BuiltInType bt) {
+            bt.pushOne(ga);
+        }
+        ga.math(operation, asmType(type));
+        if (local.argument()) {
+            ga.storeArg(local.index());
+        } else {
+            ga.storeLocal(local.index());
+        }
+    }
+
+    /**
+     * Loads a struct field of the object on top of the stack
+     * @param pointer The type of the object on the stack
+     * @param identifier The field to load
+     * @return The declared type of the field
+     */
+    private IxType getField(IxType pointer, IdentifierExpression identifier) {
+        var struct = structOf(pointer);
+        if (struct == null) {
+            new ImplementationException().send(ixApi, file, identifier, "Property access on `" + pointer + "` is not supported.");
+            return BuiltInType.ANY;
+        }
+        String name = identifier.identifier.source();
+        var fieldType = fieldType(struct, name);
+        if (isGenericField(struct, fieldType)) {
+            ga.invokeVirtual(Type.getObjectType(struct.qualifiedName), new Method(getter(name), asmType(fieldType), new Type[0]));
+        } else {
+            ga.getField(Type.getObjectType(struct.qualifiedName), name, asmType(fieldType));
+        }
+        return fieldType;
+    }
+
+    /**
+     * Fields of a generic struct whose type depends on its generics are only reachable through accessors,
+     * since each instantiation stores them with its own types
+     */
+    private static boolean isGenericField(StructType struct, IxType fieldType) {
+        return struct.hasGenerics() && MonomorphizedStruct.dependsOnGenerics(fieldType);
+    }
+
+    private static StructType structOf(IxType type) {
+        return switch (type) {
+            case DefType ignored -> null;
+            case StructType st -> st;
+            case null, default -> null;
+        };
+    }
+
+    private static IxType fieldType(StructType struct, String name) {
+        return struct.parameters.stream()
+                .filter(p -> p.getValue0().equals(name))
+                .findFirst()
+                .map(p -> p.getValue1())
+                .orElse(BuiltInType.ANY);
+    }
+
+    private static String constructorDescriptor(List<Pair<String, IxType>> fields) {
+        var fieldTypes = fields.stream().map(p -> asmType(p.getValue1())).toArray(Type[]::new);
+        return Type.getMethodDescriptor(Type.VOID_TYPE, fieldTypes);
+    }
+
+    private void declareLocal(String name, IxType type) {
+        int index = ga.newLocal(asmType(type));
+        ga.storeLocal(index);
+        scopes.peek().put(name, new Local(index, type, false));
+    }
+
+    private Local lookup(String name) {
+        for (var scope : scopes) {
+            var local = scope.get(name);
+            if (local != null) return local;
+        }
+        return null;
+    }
+
+    private IxType typeOf(Expression expression) {
+        return bound(switch (expression) {
+            case AssignExpression ignored -> BuiltInType.VOID;
+            case EmptyExpression ignored -> BuiltInType.VOID;
+            case GroupingExpression grouping -> typeOf(grouping.expression);
+            case IdentifierExpression id -> {
+                var local = lookup(id.identifier.source());
+                if (local != null) yield local.type();
+                var global = globals.get(id.identifier.source());
+                yield global != null ? global : id.getRealType();
+            }
+            default -> expression.getRealType();
+        });
+    }
+
+    /**
+     * @param type A type computed by the type checker
+     * @return The type with the generics of the instantiation being generated replaced
+     */
+    private IxType bound(IxType type) {
+        return bindings.isEmpty() ? type : MonomorphizedStruct.substitute(type, bindings);
+    }
+
+    private void pushDefaultValue(IxType type) {
+        if (type == BuiltInType.VOID) return;
+        var asmType = asmType(type);
+        switch (asmType.getSort()) {
+            case Type.BOOLEAN, Type.CHAR, Type.INT -> ga.push(0);
+            case Type.FLOAT -> ga.push(0f);
+            case Type.DOUBLE -> ga.push(0d);
+            case Type.LONG -> ga.push(0L);
+            default -> ga.visitInsn(Opcodes.ACONST_NULL);
+        }
+    }
+
+    /**
+     * Recognizes a return of a call of the enclosing function itself, which compiles to a jump back to the start of the function
+     * with the arguments in the parameters, so self recursion in tail position runs in constant stack space
+     * @param statement A statement of the body of the function
+     * @param function The function the statement belongs to
+     * @param context The context the statement is resolved in
+     * @return The self call, or null if the statement is not a return of one
+     */
+    static CallExpression selfTailCall(Statement statement, DefType function, Context context) {
+        if (!(statement instanceof ReturnStatement ret) || !(ret.expression instanceof CallExpression call)) return null;
+        if (function.glue || function.hasGenerics() || function.name.equals("main")) return null;
+        if (call.intrinsic != null || call.specialization != null || call.arguments.size() != function.parameters.size()) return null;
+
+        var callee = call.item instanceof IdentifierExpression identifier
+                ? context.getVariable(identifier.identifier.source())
+                : call.item.getRealType();
+        return callee == function ? call : null;
+    }
+
+    /**
+     * @param statement A statement of the body of the function
+     * @param function The function the statement belongs to
+     * @param context The context the statement is resolved in
+     * @return Whether the statement contains a return {@link #selfTailCall} recognizes
+     */
+    static boolean hasSelfTailCall(Statement statement, DefType function, Context context) {
+        return switch (statement) {
+            case null -> false;
+            case BlockStatement block -> block.statements.stream().anyMatch(s -> hasSelfTailCall(s, function, block.context));
+            case IfStatement ifStatement -> hasSelfTailCall(ifStatement.trueBlock, function, context)
+                    || hasSelfTailCall(ifStatement.falseStatement, function, ifStatement.trueBlock.context);
+            case WhileStatement whileStatement -> hasSelfTailCall(whileStatement.block, function, context);
+            case ForStatement forStatement -> hasSelfTailCall(forStatement.block, function, context);
+            case CaseStatement caseStatement -> caseStatement.cases.values().stream()
+                    .anyMatch(arm -> hasSelfTailCall(arm.getValue1(), function, context));
+            default -> selfTailCall(statement, function, context) != null;
+        };
+    }
+
+    /**
+     * Recognizes `start..end` and calls to the prelude `range`, whose bounds loops use directly without creating a range
+     * @param expression The iterated expression of a loop
+     * @param context The context the expression is resolved in
+     * @return The start and exclusive end expressions, or null if the expression is not a range
+     */
+    static Pair<Expression, Expression> rangeBounds(Expression expression, Context context) {
+        if (expression instanceof BinaryExpression binary && binary.operator.type() == TokenType.RANGE) {
+            return Pair.with(binary.left, binary.right);
+        }
+        if (expression instanceof CallExpression call
+                && call.item instanceof IdentifierExpression identifier
+                && call.arguments.size() == 2
+                && context.getVariable(identifier.identifier.source()) instanceof DefType callType
+                && callType.glue
+                && callType.name.equals("range")
+                && callType.owner.equals(Type.getInternalName(Prelude.class))) {
+            return Pair.with(call.arguments.get(0), call.arguments.get(1));
+        }
+        return null;
+    }
+
+    /**
+     * @param type The type of a list expression
+     * @return The class instantiated for a new list of that type
+     */
+    private static Type listClass(IxType type) {
+        if (type instanceof ListType lt && lt.primitiveList() != null) {
+            return Type.getType(lt.primitiveList());
+        }
+        return Type.getType(ArrayList.class);
+    }
+
+    /**
+     * @param contentType The element type of a primitive list
+     * @return The suffix of the unboxed accessors of the list, as in {@code getInt}
+     */
+    static String primitiveSuffix(IxType contentType) {
+        return switch (contentType) {
+            case BuiltInType.INT -> "Int";
+            case BuiltInType.FLOAT -> "Float";
+            case BuiltInType.DOUBLE -> "Double";
+            case BuiltInType.BOOLEAN -> "Bool";
+            case UnionType ignored -> "Packed";
+            default -> throw new IllegalStateException("Unexpected value: " + contentType);
+        };
+    }
+
+    /**
+     * @param type A member of a primitive union
+     * @return The suffix of the {@link PackedUnion} methods for the member, as in {@code ofInt}
+     */
+    private static String packedSuffix(BuiltInType type) {
+        return switch (type) {
+            case INT -> "Int";
+            case FLOAT -> "Float";
+            case DOUBLE -> "Double";
+            case BOOLEAN -> "Boolean";
+            case CHAR -> "Char";
+            default -> throw new IllegalStateException("Unexpected value: " + type);
+        };
+    }
+
+    private static boolean isPacked(IxType type) {
+        return type instanceof UnionType ut && ut.isPacked();
+    }
+
+    private static boolean endsWithReturn(BlockStatement block) {
+        return !block.statements.isEmpty() && block.statements.getLast() instanceof ReturnStatement;
+    }
+
+    private static int mathOperation(TokenType type) {
+        return switch (type) {
+            case ADD -> GeneratorAdapter.ADD;
+            case SUB -> GeneratorAdapter.SUB;
+            case MUL -> GeneratorAdapter.MUL;
+            case DIV -> GeneratorAdapter.DIV;
+            case MOD -> GeneratorAdapter.REM;
+            default -> throw new IllegalStateException("Unexpected value: " + type);
+        };
+    }
+
+    /**
+     * @param type A primitive JVM type
+     * @return The wrapper class holding its static helpers
+     */
+    private static Type wrapperOf(Type type) {
+        return Type.getType(switch (type.getSort()) {
+            case Type.BOOLEAN -> Boolean.class;
+            case Type.CHAR -> Character.class;
+            case Type.FLOAT -> Float.class;
+            case Type.DOUBLE -> Double.class;
+            case Type.LONG -> Long.class;
+            default -> Integer.class;
+        });
+    }
+
+    private static boolean isPrimitive(Type type) {
+        return type.getSort() != Type.OBJECT && type.getSort() != Type.ARRAY && type.getSort() != Type.VOID;
+    }
+
+    /**
+     * @param type The type matched by a case arm
+     * @return The reference type that values of the given type are stored as
+     */
+    private static Type boxedType(IxType type) {
+        if (type instanceof BuiltInType bt) {
+            return switch (bt) {
+                case BOOLEAN -> Type.getType(Boolean.class);
+                case CHAR -> Type.getType(Character.class);
+                case INT -> Type.getType(Integer.class);
+                case FLOAT -> Type.getType(Float.class);
+                case DOUBLE -> Type.getType(Double.class);
+                default -> asmType(bt);
+            };
+        }
+        return asmType(type);
+    }
+
+    /**
+     * Maps an Ixion type to the JVM type used to store it
+     * @param type The Ixion type
+     * @return The corresponding ASM type
+     */
+    static Type asmType(IxType type) {
+        return switch (type) {
+            case null -> OBJECT_TYPE;
+            case BuiltInType bt -> bt == BuiltInType.VOID ? Type.VOID_TYPE : Type.getType(bt.getDescriptor());
+            case DefType ignored -> OBJECT_TYPE;
+            case StructType st -> Type.getObjectType(st.qualifiedName);
+            case UnknownType ignored -> OBJECT_TYPE;
+            default -> Type.getType(type.getDescriptor());
+        };
+    }
+
+    private record Local(int index, IxType type, boolean argument) {}
+}
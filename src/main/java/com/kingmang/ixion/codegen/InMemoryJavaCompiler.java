@@ -0,0 +1,107 @@
+package com.kingmang.ixion.codegen;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles Java sources with the system compiler of the running JVM
+ * Sources are read from strings and class files are kept in memory, nothing touches the disk
+ */
+public class InMemoryJavaCompiler {
+
+    /**
+     * @param sources Map of fully qualified class names to their Java source code
+     * @return Map of binary class names to class file bytes
+     * @throws IOException If no system compiler is available or compilation fails
+     */
+    public Map<String, byte[]> compile(Map<String, String> sources) throws IOException {
+        if (sources.isEmpty()) return new LinkedHashMap<>();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("No system Java compiler available, run the compiler on a JDK.");
+        }
+
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var standardFileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        var fileManager = new MemoryFileManager(standardFileManager);
+
+        List<JavaFileObject> units = new ArrayList<>();
+        for (var entry : sources.entrySet()) {
+            units.add(new SourceObject(entry.getKey(), entry.getValue()));
+        }
+
+        List<String> options = List.of(
+                "-classpath", System.getProperty("java.class.path"),
+                "-proc:none"
+        );
+
+        boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+        fileManager.close();
+        if (!success) {
+            String message = diagnostics.getDiagnostics().stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n"));
+            throw new IOException("Java compilation failed:\n" + message);
+        }
+        return fileManager.classes;
+    }
+
+    private static final class SourceObject extends SimpleJavaFileObject {
+        private final String code;
+
+        SourceObject(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private static final class ClassObject extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        ClassObject(String className, Map<String, byte[]> classes) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    classes.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassObject(className, classes);
+        }
+    }
+}
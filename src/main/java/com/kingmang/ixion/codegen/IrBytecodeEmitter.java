@@ -0,0 +1,249 @@
+package com.kingmang.ixion.codegen;
+
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ir.BasicBlock;
+import com.kingmang.ixion.ir.Instruction;
+import com.kingmang.ixion.ir.Instruction.*;
+import com.kingmang.ixion.ir.IrFunction;
+import com.kingmang.ixion.ir.IrLocal;
+import com.kingmang.ixion.ir.Terminator;
+import com.kingmang.ixion.ir.Terminator.*;
+import com.kingmang.ixion.lexer.TokenType;
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.typechecker.TypeUtils;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Emits the body of a lowered function as bytecode
+ * Blocks are emitted in layout order, a jump to the block that follows is left out
+ */
+final class IrBytecodeEmitter {
+    private final GeneratorAdapter ga;
+    private final IxFile source;
+    private final String owner;
+    private final Map<BasicBlock, Label> labels = new HashMap<>();
+    private final Map<IrLocal, Integer> slots = new HashMap<>();
+    private BasicBlock next;
+
+    /**
+     * @param ga The adapter of the method, whose arguments are the parameters of the function
+     * @param source The file declaring the function
+     * @param owner Internal name of the module class
+     */
+    IrBytecodeEmitter(GeneratorAdapter ga, IxFile source, String owner) {
+        this.ga = ga;
+        this.source = source;
+        this.owner = owner;
+    }
+
+    void emit(IrFunction function) {
+        for (var block : function.blocks) {
+            labels.put(block, ga.newLabel());
+        }
+        var blocks = function.blocks;
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+            next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            ga.mark(labels.get(block));
+            block.instructions.forEach(this::instruction);
+            terminator(block.terminator);
+        }
+    }
+
+    private void instruction(Instruction instruction) {
+        switch (instruction) {
+            case Const c -> {
+                switch (c.value()) {
+                    case Integer value -> ga.push(value);
+                    case Float value -> ga.push(value);
+                    case Double value -> ga.push(value);
+                    case Boolean value -> ga.push(value);
+                    default -> throw new IllegalStateException("Unexpected constant " + c.value());
+                }
+                store(c.target());
+            }
+            case Copy c -> {
+                load(c.source());
+                store(c.target());
+            }
+            case Binary b -> {
+                load(b.left());
+                load(b.right());
+                var type = asmType(b.left());
+                if (b.isComparison()) {
+                    Label isTrue = ga.newLabel();
+                    Label end = ga.newLabel();
+                    ga.ifCmp(type, mode(b.operator()), isTrue);
+                    ga.push(false);
+                    ga.goTo(end);
+                    ga.mark(isTrue);
+                    ga.push(true);
+                    ga.mark(end);
+                } else if (b.operator() == TokenType.XOR) {
+                    ga.math(GeneratorAdapter.XOR, Type.INT_TYPE);
+                } else {
+                    ga.math(arithmetic(b.operator()), type);
+                }
+                store(b.target());
+            }
+            case Unary u -> {
+                load(u.operand());
+                if (u.operator() == TokenType.NOT) {
+                    ga.push(1);
+                    ga.math(GeneratorAdapter.XOR, Type.INT_TYPE);
+                } else {
+                    ga.math(GeneratorAdapter.NEG, asmType(u.operand()));
+                }
+                store(u.target());
+            }
+            case Convert c -> {
+                load(c.source());
+                ga.cast(asmType(c.source()), asmType(c.target()));
+                store(c.target());
+            }
+            case Call c -> {
+                var callee = c.callee();
+                c.arguments().forEach(this::load);
+                var callOwner = callee.external != null && !callee.external.equals(source)
+                        ? callee.external.getFullRelativePath()
+                        : owner;
+                var descriptor = TypeUtils.getMethodDescriptor(callee.parameters, callee.returnType);
+                ga.visitMethodInsn(Opcodes.INVOKESTATIC, callOwner, callee.name, descriptor, false);
+
+                if (c.target() != null) {
+                    store(c.target());
+                } else if (callee.returnType != BuiltInType.VOID) {
+                    if (CodegenVisitor.asmType(callee.returnType).getSize() == 2) {
+                        ga.pop2();
+                    } else {
+                        ga.pop();
+                    }
+                }
+            }
+        }
+    }
+
+    private void terminator(Terminator terminator) {
+        switch (terminator) {
+            case Jump jump -> jumpTo(jump.target());
+            case Branch branch -> {
+                load(branch.condition());
+                if (branch.ifTrue() == next) {
+                    ga.ifZCmp(GeneratorAdapter.EQ, labels.get(branch.ifFalse()));
+                } else {
+                    ga.ifZCmp(GeneratorAdapter.NE, labels.get(branch.ifTrue()));
+                    jumpTo(branch.ifFalse());
+                }
+            }
+            case CompareBranch branch -> {
+                load(branch.left());
+                load(branch.right());
+                var type = asmType(branch.left());
+                if (branch.ifTrue() == next) {
+                    jumpUnless(branch.operator(), type, labels.get(branch.ifFalse()));
+                } else {
+                    ga.ifCmp(type, mode(branch.operator()), labels.get(branch.ifTrue()));
+                    jumpTo(branch.ifFalse());
+                }
+            }
+            case Return ret -> {
+                if (ret.value() != null) load(ret.value());
+                ga.returnValue();
+            }
+        }
+    }
+
+    private void jumpTo(BasicBlock target) {
+        if (target != next) ga.goTo(labels.get(target));
+    }
+
+    /**
+     * Jumps when a comparison does not hold, which for floating point numbers includes comparisons with NaN
+     */
+    private void jumpUnless(TokenType operator, Type type, Label label) {
+        if (type.getSort() != Type.FLOAT && type.getSort() != Type.DOUBLE) {
+            ga.ifCmp(type, negate(mode(operator)), label);
+            return;
+        }
+        boolean isFloat = type.getSort() == Type.FLOAT;
+        // NaN compares as 1 with the G variant and as -1 with the L variant, so every comparison with NaN fails
+        switch (operator) {
+            case LT, LE -> ga.visitInsn(isFloat ? Opcodes.FCMPG : Opcodes.DCMPG);
+            default -> ga.visitInsn(isFloat ? Opcodes.FCMPL : Opcodes.DCMPL);
+        }
+        int opcode = switch (operator) {
+            case LT -> Opcodes.IFGE;
+            case LE -> Opcodes.IFGT;
+            case GT -> Opcodes.IFLE;
+            case GE -> Opcodes.IFLT;
+            case EQUAL -> Opcodes.IFNE;
+            case NOTEQUAL -> Opcodes.IFEQ;
+            default -> throw new IllegalStateException("Unexpected comparison " + operator);
+        };
+        ga.visitJumpInsn(opcode, label);
+    }
+
+    private void load(IrLocal local) {
+        if (local.kind() == IrLocal.Kind.PARAMETER) {
+            ga.loadArg(local.index());
+        } else {
+            ga.loadLocal(slot(local));
+        }
+    }
+
+    private void store(IrLocal local) {
+        if (local.kind() == IrLocal.Kind.PARAMETER) {
+            ga.storeArg(local.index());
+        } else {
+            ga.storeLocal(slot(local));
+        }
+    }
+
+    private int slot(IrLocal local) {
+        return slots.computeIfAbsent(local, l -> ga.newLocal(asmType(l)));
+    }
+
+    private static Type asmType(IrLocal local) {
+        return CodegenVisitor.asmType(local.type());
+    }
+
+    private static int mode(TokenType operator) {
+        return switch (operator) {
+            case EQUAL -> GeneratorAdapter.EQ;
+            case NOTEQUAL -> GeneratorAdapter.NE;
+            case LT -> GeneratorAdapter.LT;
+            case GT -> GeneratorAdapter.GT;
+            case LE -> GeneratorAdapter.LE;
+            case GE -> GeneratorAdapter.GE;
+            default -> throw new IllegalStateException("Unexpected comparison " + operator);
+        };
+    }
+
+    private static int negate(int mode) {
+        return switch (mode) {
+            case GeneratorAdapter.EQ -> GeneratorAdapter.NE;
+            case GeneratorAdapter.NE -> GeneratorAdapter.EQ;
+            case GeneratorAdapter.LT -> GeneratorAdapter.GE;
+            case GeneratorAdapter.GE -> GeneratorAdapter.LT;
+            case GeneratorAdapter.GT -> GeneratorAdapter.LE;
+            default -> GeneratorAdapter.GT;
+        };
+    }
+
+    private static int arithmetic(TokenType operator) {
+        return switch (operator) {
+            case ADD -> GeneratorAdapter.ADD;
+            case SUB -> GeneratorAdapter.SUB;
+            case MUL -> GeneratorAdapter.MUL;
+            case DIV -> GeneratorAdapter.DIV;
+            case MOD -> GeneratorAdapter.REM;
+            default -> throw new IllegalStateException("Unexpected operator " + operator);
+        };
+    }
+}
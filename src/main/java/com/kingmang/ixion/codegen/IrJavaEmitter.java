@@ -0,0 +1,165 @@
+package com.kingmang.ixion.codegen;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ir.BasicBlock;
+import com.kingmang.ixion.ir.Instruction;
+import com.kingmang.ixion.ir.Instruction.*;
+import com.kingmang.ixion.ir.IrFunction;
+import com.kingmang.ixion.ir.IrLocal;
+import com.kingmang.ixion.ir.Terminator;
+import com.kingmang.ixion.ir.Terminator.*;
+import com.kingmang.ixion.runtime.BuiltInType;
+
+import java.util.HashSet;
+import java.util.stream.Collectors;
+
+/**
+ * Prints the body of a lowered function as Java source
+ * A function of a single block is printed as straight code, others dispatch on the current block in a loop
+ * where a jump to the block that follows falls through to its case
+ */
+final class IrJavaEmitter {
+    private static final String INDENT = "    ";
+    private static final String BLOCK = "$block";
+
+    private final IxFile source;
+    private final StringBuilder output = new StringBuilder();
+    private int depth;
+    private BasicBlock next;
+
+    /**
+     * @param source The file declaring the function
+     * @param depth Indentation of the statements of the method body
+     */
+    IrJavaEmitter(IxFile source, int depth) {
+        this.source = source;
+        this.depth = depth;
+    }
+
+    String emit(IrFunction function) {
+        var referenced = new HashSet<IrLocal>();
+        for (var block : function.blocks) {
+            for (var instruction : block.instructions) {
+                referenced.add(instruction.target());
+                referenced.addAll(instruction.operands());
+            }
+            referenced.addAll(block.terminator.operands());
+        }
+        for (var local : function.locals) {
+            if (local.kind() != IrLocal.Kind.PARAMETER && referenced.contains(local)) {
+                line(javaType(local.type()) + " " + name(local) + " = " + defaultValue(local.type()) + ";");
+            }
+        }
+
+        var blocks = function.blocks;
+        if (blocks.size() == 1 && blocks.getFirst().terminator instanceof Return) {
+            blocks.getFirst().instructions.forEach(this::instruction);
+            terminator(blocks.getFirst().terminator);
+            return output.toString();
+        }
+
+        line("int " + BLOCK + " = " + blocks.getFirst().id + ";");
+        line("while (true) {");
+        depth++;
+        line("switch (" + BLOCK + ") {");
+        depth++;
+        for (int i = 0; i < blocks.size(); i++) {
+            var block = blocks.get(i);
+            next = i + 1 < blocks.size() ? blocks.get(i + 1) : null;
+            line("case " + block.id + ":");
+            depth++;
+            block.instructions.forEach(this::instruction);
+            terminator(block.terminator);
+            depth--;
+        }
+        depth--;
+        line("}");
+        depth--;
+        line("}");
+        return output.toString();
+    }
+
+    private void instruction(Instruction instruction) {
+        switch (instruction) {
+            case Const c -> assign(c.target(), literal(c.value()));
+            case Copy c -> assign(c.target(), name(c.source()));
+            case Binary b -> assign(b.target(), name(b.left()) + " " + b.operator().representation + " " + name(b.right()));
+            case Unary u -> assign(u.target(), u.operator().representation + name(u.operand()));
+            case Convert c -> assign(c.target(), "(" + javaType(c.target().type()) + ") " + name(c.source()));
+            case Call c -> {
+                var callee = c.callee();
+                var method = "_" + callee.name;
+                if (callee.external != null && !callee.external.equals(source)) {
+                    method = IxApi.getClassName(callee.external) + "." + method;
+                }
+                var call = method + "(" + c.arguments().stream().map(IrJavaEmitter::name).collect(Collectors.joining(", ")) + ")";
+                if (c.target() == null) {
+                    line(call + ";");
+                } else {
+                    assign(c.target(), call);
+                }
+            }
+        }
+    }
+
+    private void terminator(Terminator terminator) {
+        switch (terminator) {
+            case Jump jump -> jumpTo(jump.target());
+            case Branch branch -> branch(name(branch.condition()), branch.ifTrue(), branch.ifFalse());
+            case CompareBranch branch -> branch(name(branch.left()) + " " + branch.operator().representation + " " + name(branch.right()),
+                    branch.ifTrue(), branch.ifFalse());
+            case Return ret -> line(ret.value() == null ? "return;" : "return " + name(ret.value()) + ";");
+        }
+    }
+
+    private void branch(String condition, BasicBlock ifTrue, BasicBlock ifFalse) {
+        // negating the whole condition keeps comparisons with NaN taking the false branch
+        boolean negate = ifTrue == next;
+        line(negate ? "if (!(" + condition + ")) {" : "if (" + condition + ") {");
+        depth++;
+        jumpTo(negate ? ifFalse : ifTrue);
+        depth--;
+        line("}");
+        if (!negate) jumpTo(ifFalse);
+    }
+
+    private void jumpTo(BasicBlock target) {
+        if (target == next) return;
+        line(BLOCK + " = " + target.id + ";");
+        line("continue;");
+    }
+
+    private void assign(IrLocal target, String value) {
+        line(name(target) + " = " + value + ";");
+    }
+
+    private void line(String text) {
+        output.append(INDENT.repeat(depth)).append(text).append('\n');
+    }
+
+    private static String name(IrLocal local) {
+        return switch (local.kind()) {
+            case PARAMETER -> local.name();
+            case VARIABLE -> local.name() + "$" + local.index();
+            case TEMPORARY -> "$t" + local.index();
+        };
+    }
+
+    private static String literal(Object value) {
+        return value instanceof Float ? value + "f" : String.valueOf(value);
+    }
+
+    private static String javaType(BuiltInType type) {
+        return switch (type) {
+            case INT -> "int";
+            case FLOAT -> "float";
+            case DOUBLE -> "double";
+            default -> "boolean";
+        };
+    }
+
+    private static String defaultValue(BuiltInType type) {
+        return type == BuiltInType.BOOLEAN ? "false" : "0";
+    }
+}
@@ -0,0 +1,23 @@
+package com.kingmang.ixion.codegen;
+
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * Class writer that does not require generated classes to be loadable while frames are computed
+ * Types produced by the compiler itself are merged to java/lang/Object
+ */
+public class IxClassWriter extends ClassWriter {
+
+    public IxClassWriter(int flags) {
+        super(flags);
+    }
+
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+        try {
+            return super.getCommonSuperClass(type1, type2);
+        } catch (TypeNotPresentException e) {
+            return "java/lang/Object";
+        }
+    }
+}
@@ -6,23 +6,35 @@ import com.kingmang.ixion.api.IxApi;
 import com.kingmang.ixion.api.IxFile;
 import com.kingmang.ixion.ast.*;
 import com.kingmang.ixion.exception.Panic;
+import com.kingmang.ixion.lexer.TokenType;
 import com.kingmang.ixion.runtime.*;
+import com.kingmang.ixion.typechecker.TypeUtils;
 import org.jetbrains.annotations.NotNull;
 
+import org.javatuples.Pair;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
 
 public class JavaCodegenVisitor implements Visitor<Optional<String>> {
+    private static final String TAIL_LOOP = "$tail";
     private final IxApi ixApi;
     private final IxFile source;
     private Context currentContext;
     private final StringBuilder output = new StringBuilder();
     private int indentLevel = 0;
+    private int loopCounter = 0;
     private final Stack<DefType> functionStack = new Stack<>();
     private final Map<String, String> structClasses = new HashMap<>();
     private final Map<DefType, Map<String, Integer>> localMaps = new HashMap<>();
+    /**
+     * Bindings of the generics of the function instantiation being printed, empty elsewhere
+     */
+    private Map<String, IxType> bindings = Map.of();
 
     public JavaCodegenVisitor(IxApi ixApi, IxFile source) {
         this.ixApi = ixApi;
@@ -59,9 +71,17 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
             print(id.identifier.source() + " = ");
             expr.right.accept(this);
         } else if (expr.left instanceof PropertyAccessExpression pa) {
-            pa.accept(this);
-            print(" = ");
-            expr.right.accept(this);
+            int last = pa.identifiers.size() - 1;
+            if (isGenericField(pa, last)) {
+                printPropertyAccess(pa, last);
+                print(".set$" + pa.identifiers.get(last).identifier.source() + "(");
+                expr.right.accept(this);
+                print(")");
+            } else {
+                pa.accept(this);
+                print(" = ");
+                expr.right.accept(this);
+            }
         }
         return Optional.empty();
     }
@@ -76,6 +96,25 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     @NotNull
     @Override
     public Optional<String> visitBinaryExpr(BinaryExpression expr) {
+        if (expr.operator.type() == TokenType.RANGE) {
+            print("new " + IntRange.class.getName() + "(");
+            expr.left.accept(this);
+            print(", ");
+            expr.right.accept(this);
+            print(")");
+            return Optional.empty();
+        }
+
+        boolean equality = expr.operator.type() == TokenType.EQUAL || expr.operator.type() == TokenType.NOTEQUAL;
+        if (equality && !(isPrimitive(expr.left.getRealType()) && isPrimitive(expr.right.getRealType()))) {
+            print(expr.operator.type() == TokenType.NOTEQUAL ? "!java.util.Objects.equals(" : "java.util.Objects.equals(");
+            expr.left.accept(this);
+            print(", ");
+            expr.right.accept(this);
+            print(")");
+            return Optional.empty();
+        }
+
         expr.left.accept(this);
 
         String operator = switch (expr.operator.type()) {
@@ -108,7 +147,10 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
             expr.item.setRealType(currentContext.getVariable(identifier.identifier.source()));
         }
 
-        if (expr.item.getRealType() instanceof DefType callType) {
+        if (expr.intrinsic != null) {
+            generateIntrinsic(expr);
+        } else if (expr.item.getRealType() instanceof DefType callType) {
+            boolean erasedResult = false;
             if (callType.glue) {
                 String owner = callType.owner.replace('/', '.');
                 String name = callType.name;
@@ -116,7 +158,12 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
                 print(owner + "." + name + "(");
             } else {
-                String name = "_" + callType.name;
+                var specialization = specializationOf(expr, callType);
+                String name = "_" + (specialization != null ? callType.specializationName(specialization) : callType.name);
+                erasedResult = specialization == null && !bindings.isEmpty() && callType.returnType instanceof GenericType;
+                if (erasedResult) {
+                    print("((" + getWrapperTypeName(expr.getRealType()) + ") ");
+                }
 
                 if (callType.external != null && !callType.external.equals(source)) {
                     String className = IxApi.getClassName(callType.external);
@@ -130,9 +177,10 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
                 if (i > 0) print(", ");
                 expr.arguments.get(i).accept(this);
             }
-            print(")");
+            print(erasedResult ? "))" : ")");
         } else if (expr.item.getRealType() instanceof StructType st) {
-            print("new " + st.name + "(");
+            var structType = expr.getRealType() instanceof MonomorphizedStruct mt && mt.struct == st ? mt : st;
+            print("new " + structType.name + "(");
             for (int i = 0; i < expr.arguments.size(); i++) {
                 if (i > 0) print(", ");
                 expr.arguments.get(i).accept(this);
@@ -152,6 +200,33 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     }
 
 
+    /**
+     * Emits a prelude list or string function as a method call on the statically known collection
+     */
+    private void generateIntrinsic(CallExpression expr) {
+        var receiver = expr.arguments.getFirst();
+        var collectionType = receiver.getRealType();
+        String suffix = collectionType instanceof ListType lt ? unboxedSuffix(lt) : "";
+
+        print("(");
+        receiver.accept(this);
+        print(")");
+        switch (expr.intrinsic) {
+            case LEN -> print(collectionType == BuiltInType.STRING ? ".length()" : ".size()");
+            case LIST_GET -> {
+                print(".get" + suffix + "(");
+                expr.arguments.get(1).accept(this);
+                print(")");
+            }
+            case LIST_APPEND -> {
+                print(".add" + suffix + "(");
+                expr.arguments.get(1).accept(this);
+                print(")");
+            }
+            case LIST_POP -> print(suffix.isEmpty() ? ".removeLast()" : ".pop" + suffix + "()");
+        }
+    }
+
     @NotNull
     @Override
     public Optional<String> visitEmpty(EmptyExpression empty) {
@@ -161,6 +236,10 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     @NotNull
     @Override
     public Optional<String> visitEmptyList(EmptyListExpression emptyList) {
+        if (emptyList.getRealType() instanceof ListType lt && lt.primitiveList() != null) {
+            print("new " + lt.primitiveList().getName() + "()");
+            return Optional.empty();
+        }
         print("new java.util.ArrayList<>()");
         return Optional.empty();
     }
@@ -185,7 +264,11 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     @Override
     public Optional<String> visitIndexAccess(IndexAccessExpression expr) {
         expr.left.accept(this);
-        print(".get(");
+        if (expr.left.getRealType() instanceof ListType lt) {
+            print(".get" + unboxedSuffix(lt) + "(");
+        } else {
+            print(".get(");
+        }
         expr.right.accept(this);
         print(")");
         return Optional.empty();
@@ -202,6 +285,10 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
                     ;
                     print("'" + escapedChar + "'");
                 }
+                case FLOAT -> {
+                    String literal = expr.literal.source();
+                    print(literal.endsWith("f") ? literal : literal + "f");
+                }
                 default -> print(expr.literal.source());
             }
         } else {
@@ -236,18 +323,25 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     @NotNull
     @Override
     public Optional<String> visitLiteralList(LiteralListExpression expr) {
-        if (expr.entries.isEmpty()) {
+        if (expr.getRealType() instanceof ListType lt && lt.primitiveList() != null) {
+            print(lt.primitiveList().getName() + ".of(");
+            for (int i = 0; i < expr.entries.size(); i++) {
+                if (i > 0) print(", ");
+                expr.entries.get(i).accept(this);
+            }
+            print(")");
+        } else if (expr.entries.isEmpty()) {
             print("new java.util.ArrayList<>()");
         } else {
             IxType elementType = expr.entries.getFirst().getRealType();
             String wrapperType = getWrapperTypeName(elementType);
 
-            print("java.util.Arrays.<" + wrapperType + ">asList(");
+            print("new java.util.ArrayList<>(java.util.Arrays.<" + wrapperType + ">asList(");
             for (int i = 0; i < expr.entries.size(); i++) {
                 if (i > 0) print(", ");
                 expr.entries.get(i).accept(this);
             }
-            print(")");
+            print("))");
         }
         return Optional.empty();
     }
@@ -280,11 +374,33 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     @NotNull
     @Override
     public Optional<String> visitPropertyAccess(PropertyAccessExpression expr) {
+        printPropertyAccess(expr, expr.identifiers.size());
+        return Optional.empty();
+    }
+
+    /**
+     * Prints the object and the first fields of a property access
+     * @param expr The property access
+     * @param count The number of fields to access
+     */
+    private void printPropertyAccess(PropertyAccessExpression expr, int count) {
         expr.expression.accept(this);
-        for (var identifier : expr.identifiers) {
-            print("." + identifier.identifier.source());
+        for (int i = 0; i < count; i++) {
+            var name = expr.identifiers.get(i).identifier.source();
+            print(isGenericField(expr, i) ? ".get$" + name + "()" : "." + name);
         }
-        return Optional.empty();
+    }
+
+    /**
+     * Fields of a generic struct whose type depends on its generics are only reachable through accessors,
+     * since each instantiation declares them with its own types
+     */
+    private static boolean isGenericField(PropertyAccessExpression expr, int index) {
+        if (index >= expr.typeChain.size() || !(expr.typeChain.get(index) instanceof StructType st) || !st.hasGenerics()) {
+            return false;
+        }
+        var name = expr.identifiers.get(index).identifier.source();
+        return st.parameters.stream().anyMatch(p -> p.getValue0().equals(name) && MonomorphizedStruct.dependsOnGenerics(p.getValue1()));
     }
 
     @NotNull
@@ -300,13 +416,18 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
     @Override
     public Optional<String> visitBlockStmt(BlockStatement statement) {
+        var previous = currentContext;
+        currentContext = statement.context;
         println("{");
         indentLevel++;
         for (var stmt : statement.statements) {
             stmt.accept(this);
+            // javac rejects statements after one that always returns, unfolded code can still have them
+            if (hasReturnStatementInStatement(stmt)) break;
         }
         indentLevel--;
         println("}");
+        currentContext = previous;
         return Optional.empty();
     }
 
@@ -339,41 +460,72 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     public Optional<String> visitFor(ForStatement statement) {
         indent();
 
-        IxType elementType = BuiltInType.ANY;
-        if (statement.expression.getRealType() instanceof ListType(IxType contentType)) {
-            elementType = contentType;
-        } else if (statement.expression instanceof IdentifierExpression idExpr) {
+        IxType iterableType = statement.expression.getRealType();
+        if (statement.expression instanceof IdentifierExpression idExpr) {
             var varType = currentContext.getVariable(idExpr.identifier.source());
-            if (varType instanceof ListType(IxType contentType)) {
-                elementType = contentType;
+            if (varType instanceof ListType) {
+                iterableType = varType;
             }
         }
 
-        String javaElementType = getJavaTypeName(elementType);
+        var bounds = CodegenVisitor.rangeBounds(statement.expression, currentContext);
+        if (bounds != null || iterableType instanceof ExternalType et && et.foundClass == IntRange.class) {
+            String counter = "__i" + loopCounter;
+            String end = "__end" + loopCounter;
+            loopCounter++;
+
+            if (bounds != null) {
+                print("for (int " + counter + " = ");
+                bounds.getValue0().accept(this);
+                print(", " + end + " = ");
+                bounds.getValue1().accept(this);
+            } else {
+                String range = "__range" + (loopCounter - 1);
+                print(IntRange.class.getName() + " " + range + " = ");
+                statement.expression.accept(this);
+                println(";");
+                indent();
+                print("for (int " + counter + " = " + range + ".start(), " + end + " = " + range + ".end()");
+            }
+            println("; " + counter + " < " + end + "; " + counter + "++) {");
 
-        if (elementType instanceof BuiltInType builtIn && builtIn.isNumeric()) {
-            String wrapperType = getWrapperTypeName(elementType);
-            print("for (java.util.Iterator<" + wrapperType + "> iter = ");
+            indentLevel++;
+            println("int " + statement.name.source() + " = " + counter + ";");
+        } else if (TypeUtils.isIndexedCollection(iterableType)) {
+            String collection = "__list" + loopCounter;
+            String index = "__i" + loopCounter;
+            loopCounter++;
+
+            print(IndexedCollection.class.getName() + "<?> " + collection + " = ");
             statement.expression.accept(this);
-            println(".iterator(); iter.hasNext(); ) {");
+            println(";");
+            println("for (int " + index + " = 0; " + index + " < " + collection + ".size(); " + index + "++) {");
+            indentLevel++;
+            println("Object " + statement.name.source() + " = " + collection + ".get(" + index + ");");
+        } else if (iterableType instanceof ListType listType) {
+            String list = "__list" + loopCounter;
+            String index = "__i" + loopCounter;
+            loopCounter++;
+
+            print(getJavaTypeName(listType) + " " + list + " = ");
+            statement.expression.accept(this);
+            println(";");
+            println("for (int " + index + " = 0; " + index + " < " + list + ".size(); " + index + "++) {");
 
             indentLevel++;
             indent();
-            print(javaElementType + " " + statement.name.source() + " = ");
-            switch (builtIn) {
-                case INT -> print("iter.next().intValue()");
-                case FLOAT -> print("iter.next().floatValue()");
-                case DOUBLE -> print("iter.next().doubleValue()");
-                case BOOLEAN -> print("iter.next().booleanValue()");
-                default -> print("iter.next()");
-            }
+            IxType elementType = listType.contentType();
+            print(getJavaTypeName(elementType) + " " + statement.name.source() + " = " + list);
+            print(".get" + unboxedSuffix(listType) + "(" + index + ")");
             println(";");
-
         } else {
-            print("for (" + javaElementType + " " + statement.name.source() + " : ");
+            String iterator = "__it" + loopCounter;
+            loopCounter++;
+            print("for (java.util.Iterator<Integer> " + iterator + " = ");
             statement.expression.accept(this);
-            println(") {");
+            println("; " + iterator + ".hasNext(); ) {");
             indentLevel++;
+            println("int " + statement.name.source() + " = " + iterator + ".next();");
         }
 
         currentContext = statement.block.context;
@@ -387,6 +539,21 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     @Override
     public Optional<String> visitFunctionStmt(DefStatement statement) {
         var funcType = currentContext.getVariableTyped(statement.name.source(), DefType.class);
+        printFunction(statement, funcType, funcType.name);
+
+        for (var specialization : funcType.specializations) {
+            bindings = specialization;
+            println("");
+            printFunction(statement, funcType, funcType.specializationName(specialization));
+            bindings = Map.of();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Prints a method for a function, or for an instantiation of a generic function when {@link #bindings} are set
+     */
+    private void printFunction(DefStatement statement, DefType funcType, String name) {
         functionStack.push(funcType);
         localMaps.put(funcType, new HashMap<>());
 
@@ -397,7 +564,7 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
             print("void main(String[] args)");
         } else {
             String returnType = getJavaTypeName(funcType.returnType);
-            String functionName = funcType.glue ? funcType.name : "_" + funcType.name;
+            String functionName = funcType.glue ? name : "_" + name;
 
             print(returnType + " " + functionName + "(");
 
@@ -413,12 +580,28 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
         indentLevel++;
         currentContext = statement.body.context;
-        statement.body.accept(this);
+        if (statement.ir != null && bindings.isEmpty()) {
+            print(new IrJavaEmitter(source, indentLevel).emit(statement.ir));
+        } else {
+            // self calls in tail position continue this loop with the parameters reassigned
+            boolean tailLoop = CodegenVisitor.hasSelfTailCall(statement.body, funcType, currentContext);
+            if (tailLoop) {
+                println(TAIL_LOOP + ": while (true) {");
+                indentLevel++;
+            }
+            statement.body.accept(this);
 
-        if (!funcType.name.equals("main") && !hasReturnStatement(statement.body) && !funcType.returnType.equals(BuiltInType.VOID)) {
-            indent();
-            String defaultValue = getDefaultValue(funcType.returnType);
-            println("return " + defaultValue + ";");
+            if (!funcType.name.equals("main") && !hasReturnStatement(statement.body) && !funcType.returnType.equals(BuiltInType.VOID)) {
+                indent();
+                String defaultValue = getDefaultValue(funcType.returnType);
+                println("return " + defaultValue + ";");
+            } else if (tailLoop && !hasReturnStatement(statement.body)) {
+                println("return;");
+            }
+            if (tailLoop) {
+                indentLevel--;
+                println("}");
+            }
         }
 
         indentLevel--;
@@ -426,7 +609,24 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
         functionStack.pop();
         currentContext = currentContext.parent;
-        return Optional.empty();
+    }
+
+    /**
+     * Calls of generic functions made from an instantiation are linked once the generics of the caller are known
+     * @return The bindings of the instantiation the call uses, or null for the erased function
+     */
+    private Map<String, IxType> specializationOf(CallExpression expr, DefType callType) {
+        if (expr.specialization != null) return expr.specialization;
+        if (bindings.isEmpty() || !callType.hasGenerics()) return null;
+        return callType.specializationOf(expr.arguments.stream().map(arg -> bound(arg.getRealType())).toList());
+    }
+
+    /**
+     * @param type A type computed by the type checker
+     * @return The type with the generics of the instantiation being printed replaced
+     */
+    private IxType bound(IxType type) {
+        return bindings.isEmpty() ? type : MonomorphizedStruct.substitute(type, bindings);
     }
 
     private boolean hasReturnStatement(BlockStatement body) {
@@ -457,7 +657,7 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     }
 
     private String getWrapperTypeName(IxType type) {
-        switch (type) {
+        switch (bound(type)) {
             case null -> {
                 return "Object";
             }
@@ -474,8 +674,7 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
                 };
             }
             case ListType listType -> {
-                String elementType = getWrapperTypeName(listType.contentType());
-                return "java.util.List<" + elementType + ">";
+                return getJavaTypeName(listType);
             }
             default -> {
             }
@@ -514,63 +713,40 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
     @Override
     public Optional<String> visitMatch(CaseStatement statement) {
+        indent();
+        print("switch (");
+        statement.expression.accept(this);
+        println(") {");
+        indentLevel++;
+
         for (var entry : statement.cases.entrySet()) {
             var typeStmt = entry.getKey();
             var pair = entry.getValue();
             var scopedName = pair.getValue0();
             var block = pair.getValue1();
 
-            indent();
-            print("if (");
-            statement.expression.accept(this);
-            print(" instanceof ");
-
             var actualType = statement.types.get(typeStmt);
-            String javaTypeName = getJavaTypeName(actualType);
-
-            String tempVarName = "temp_" + scopedName;
-            if (actualType instanceof BuiltInType builtIn) {
-                switch (builtIn) {
-                    case INT -> javaTypeName = "Integer";
-                    case FLOAT -> javaTypeName = "Float";
-                    case DOUBLE -> javaTypeName = "Double";
-                    case BOOLEAN -> javaTypeName = "Boolean";
-                    default -> {}
-                }
+            if (actualType instanceof UnknownType ukt) {
+                actualType = currentContext.getVariable(ukt.typeName);
             }
+            String tempVarName = "temp_" + scopedName;
 
-            print(javaTypeName + " " + tempVarName);
-            println(") {");
-
+            println("case " + getWrapperTypeName(actualType) + " " + tempVarName + " -> {");
             indentLevel++;
-
-            if (actualType instanceof BuiltInType builtIn && builtIn != BuiltInType.STRING) {
-                indent();
-                print(getJavaTypeName(actualType) + " " + scopedName + " = ");
-                print(tempVarName);
-
-                switch (builtIn) {
-                    case INT -> print(".intValue()");
-                    case FLOAT -> print(".floatValue()");
-                    case DOUBLE -> print(".doubleValue()");
-                    case BOOLEAN -> print(".booleanValue()");
-                    default -> {}
-                }
-                println(";");
-            } else {
-                indent();
-                print(getJavaTypeName(actualType) + " " + scopedName + " = ");
-                print("(" + javaTypeName + ") " + tempVarName);
-                println(";");
-            }
+            println(getJavaTypeName(actualType) + " " + scopedName + " = " + tempVarName + ";");
 
             currentContext = block.context;
             block.accept(this);
+            currentContext = currentContext.parent;
             indentLevel--;
 
             println("}");
         }
 
+        println("default -> {");
+        println("}");
+        indentLevel--;
+        println("}");
         return Optional.empty();
     }
 
@@ -581,6 +757,11 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
     @Override
     public Optional<String> visitReturnStmt(ReturnStatement statement) {
+        var tailCall = functionStack.isEmpty() ? null : CodegenVisitor.selfTailCall(statement, functionStack.peek(), currentContext);
+        if (tailCall != null && bindings.isEmpty()) {
+            printTailCall(tailCall);
+            return Optional.empty();
+        }
         indent();
         print("return");
         if (!(statement.expression instanceof EmptyExpression)) {
@@ -591,43 +772,143 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
         return Optional.empty();
     }
 
+    /**
+     * Prints a self call in tail position as a reassignment of the parameters and a jump to the start of the function
+     * Every argument is evaluated into a temporary before any parameter changes
+     */
+    private void printTailCall(CallExpression call) {
+        var parameters = functionStack.peek().parameters;
+        println("{");
+        indentLevel++;
+        for (int i = 0; i < parameters.size(); i++) {
+            indent();
+            print(getJavaTypeName(parameters.get(i).getValue1()) + " " + TAIL_LOOP + i + " = ");
+            call.arguments.get(i).accept(this);
+            print(";\n");
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            println(parameters.get(i).getValue0() + " = " + TAIL_LOOP + i + ";");
+        }
+        println("continue " + TAIL_LOOP + ";");
+        indentLevel--;
+        println("}");
+    }
+
     @Override
     public Optional<String> visitStruct(StructStatement statement) {
         var structType = currentContext.getVariableTyped(statement.name.source(), StructType.class);
 
-        println("public static class " + structType.name + " {");
+        if (structType.hasGenerics()) {
+            generateGenericStruct(structType);
+            for (var specialization : structType.specializations()) {
+                println("");
+                generateStruct(specialization, structType);
+            }
+        } else {
+            generateStruct(structType, null);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Prints the abstract class of a generic struct, holding the fields that do not depend on the generics
+     */
+    private void generateGenericStruct(StructType structType) {
+        println("public static abstract class " + structType.name + " {");
 
         indentLevel++;
-        for (var pair : structType.parameters) {
-            String fieldName = pair.getValue0();
-            IxType fieldType = pair.getValue1();
-            String javaType = getJavaTypeName(fieldType);
-            println("public " + javaType + " " + fieldName + ";");
+        var sharedFields = structType.parameters.stream().filter(p -> !MonomorphizedStruct.dependsOnGenerics(p.getValue1())).toList();
+        for (var field : sharedFields) {
+            println(fieldModifiers(structType) + getJavaTypeName(field.getValue1()) + " " + field.getValue0() + ";");
         }
 
         println("");
-        print("public " + structType.name + "(");
+        printConstructorHead(structType.name, sharedFields, "protected");
+        indentLevel++;
+        for (var field : sharedFields) {
+            println("this." + field.getValue0() + " = " + field.getValue0() + ";");
+        }
+        indentLevel--;
+        println("}");
+
+        for (var field : structType.parameters) {
+            if (!MonomorphizedStruct.dependsOnGenerics(field.getValue1())) continue;
+            println("");
+            println("public abstract " + accessorType(field.getValue1()) + " get$" + field.getValue0() + "();");
+            if (structType.isMutated()) {
+                println("public abstract void set$" + field.getValue0() + "(" + accessorType(field.getValue1()) + " value);");
+            }
+        }
+        indentLevel--;
+        println("}");
+    }
+
+    /**
+     * Prints the class of a struct, or of an instantiation of a generic struct
+     * @param structType The struct, with concrete field types
+     * @param generic The generic struct being instantiated, or null for a plain struct
+     */
+    private void generateStruct(StructType structType, StructType generic) {
+        println("public static final class " + structType.name + (generic != null ? " extends " + generic.name : "") + " {");
 
+        indentLevel++;
+        var ownFields = new ArrayList<Pair<String, IxType>>();
+        var superArguments = new ArrayList<String>();
         for (int i = 0; i < structType.parameters.size(); i++) {
-            var param = structType.parameters.get(i);
-            if (i > 0) print(", ");
-            String javaType = getJavaTypeName(param.getValue1());
-            print(javaType + " " + param.getValue0());
+            var field = structType.parameters.get(i);
+            if (generic == null || MonomorphizedStruct.dependsOnGenerics(generic.parameters.get(i).getValue1())) {
+                ownFields.add(field);
+            } else {
+                superArguments.add(field.getValue0());
+            }
+        }
+        for (var field : ownFields) {
+            println(fieldModifiers(structType) + getJavaTypeName(field.getValue1()) + " " + field.getValue0() + ";");
         }
-        println(") {");
 
+        println("");
+        printConstructorHead(structType.name, structType.parameters, "public");
         indentLevel++;
-        for (var param : structType.parameters) {
-            println("this." + param.getValue0() + " = " + param.getValue0() + ";");
+        if (generic != null) {
+            println("super(" + String.join(", ", superArguments) + ");");
+        }
+        for (var field : ownFields) {
+            println("this." + field.getValue0() + " = " + field.getValue0() + ";");
         }
         indentLevel--;
         println("}");
 
+        if (generic != null) {
+            for (var field : ownFields) {
+                var accessorType = accessorType(generic.parameters.get(structType.parameters.indexOf(field)).getValue1());
+                println("");
+                println("@Override");
+                println("public " + accessorType + " get$" + field.getValue0() + "() {");
+                indentLevel++;
+                println("return " + field.getValue0() + ";");
+                indentLevel--;
+                println("}");
+                if (!generic.isMutated()) continue;
+                println("");
+                println("@Override");
+                println("public void set$" + field.getValue0() + "(" + accessorType + " value) {");
+                indentLevel++;
+                println("this." + field.getValue0() + " = (" + getWrapperTypeName(field.getValue1()) + ") value;");
+                indentLevel--;
+                println("}");
+            }
+        }
+
+        if (!structType.isMutated()) {
+            printEquality(structType);
+        }
+
         println("");
         println("@Override");
         println("public String toString() {");
         indentLevel++;
-        print("return \"" + structType.name + "{\" + ");
+        print("return \"" + (generic != null ? generic.name : structType.name) + "{\" + ");
         for (int i = 0; i < structType.parameters.size(); i++) {
             var param = structType.parameters.get(i);
             String fieldName = param.getValue0();
@@ -639,8 +920,73 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
         println("}");
         indentLevel--;
         println("}");
+    }
 
-        return Optional.empty();
+    /**
+     * Prints value equality over the fields of a struct no file assigns to
+     */
+    private void printEquality(StructType structType) {
+        println("");
+        println("@Override");
+        println("public boolean equals(Object o) {");
+        indentLevel++;
+        indent();
+        print("return o instanceof " + structType.name + " other");
+        for (var field : structType.parameters) {
+            String name = field.getValue0();
+            print(" && " + switch (getJavaTypeName(field.getValue1())) {
+                case "int", "boolean", "char" -> name + " == other." + name;
+                case "float" -> "Float.compare(" + name + ", other." + name + ") == 0";
+                case "double" -> "Double.compare(" + name + ", other." + name + ") == 0";
+                default -> "java.util.Objects.equals(" + name + ", other." + name + ")";
+            });
+        }
+        print(";\n");
+        indentLevel--;
+        println("}");
+
+        println("");
+        println("@Override");
+        println("public int hashCode() {");
+        indentLevel++;
+        println("int h = 0;");
+        for (var field : structType.parameters) {
+            String name = field.getValue0();
+            String javaType = getJavaTypeName(field.getValue1());
+            String hash = switch (javaType) {
+                case "int", "boolean", "char", "float", "double" -> getWrapperTypeName(field.getValue1()) + ".hashCode(" + name + ")";
+                default -> "java.util.Objects.hashCode(" + name + ")";
+            };
+            println("h = 31 * h + " + hash + ";");
+        }
+        println("return h;");
+        indentLevel--;
+        println("}");
+    }
+
+    /**
+     * Fields of structs no file assigns to are final, so the JIT can trust them
+     */
+    private static String fieldModifiers(StructType structType) {
+        return structType.isMutated() ? "public " : "public final ";
+    }
+
+    private void printConstructorHead(String name, List<Pair<String, IxType>> parameters, String modifier) {
+        print(modifier + " " + name + "(");
+        for (int i = 0; i < parameters.size(); i++) {
+            var param = parameters.get(i);
+            if (i > 0) print(", ");
+            print(getJavaTypeName(param.getValue1()) + " " + param.getValue0());
+        }
+        println(") {");
+    }
+
+    /**
+     * @param genericType The declared type of a generic field
+     * @return The type its accessors use, which every instantiation can convert to
+     */
+    private String accessorType(IxType genericType) {
+        return genericType instanceof ListType ? "java.util.List" : "Object";
     }
 
     @Override
@@ -666,10 +1012,21 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
 
     @Override
     public Optional<String> visitWhile(WhileStatement statement) {
-        indent();
-        print("while (");
-        statement.condition.accept(this);
-        println(") {");
+        if (isConstant(statement.condition)) {
+            // javac rejects the body of `while (false)` and whatever follows `while (true)` as unreachable,
+            // the fixed value of the condition is read from a local, which is not a constant to javac
+            String condition = "__cond" + loopCounter++;
+            indent();
+            print("boolean " + condition + " = ");
+            statement.condition.accept(this);
+            println(";");
+            println("while (" + condition + ") {");
+        } else {
+            indent();
+            print("while (");
+            statement.condition.accept(this);
+            println(") {");
+        }
 
         indentLevel++;
         currentContext = statement.block.context;
@@ -681,7 +1038,41 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
         return Optional.empty();
     }
 
+    /**
+     * @return Whether an expression is built from literals only, so it always has the same value
+     */
+    private static boolean isConstant(Expression expression) {
+        return switch (expression) {
+            case LiteralExpression literal -> true;
+            case GroupingExpression grouping -> isConstant(grouping.expression);
+            case PrefixExpression prefix -> isConstant(prefix.right);
+            case BinaryExpression binary -> isConstant(binary.left) && isConstant(binary.right);
+            default -> false;
+        };
+    }
+
+    /**
+     * Unions stay boxed in generated Java, so lists of primitive unions are accessed through their boxed methods
+     * @param listType The type of a list
+     * @return The suffix of the accessors to use on the list, empty for the plain list methods
+     */
+    private static String unboxedSuffix(ListType listType) {
+        if (listType.primitiveList() == null || listType.contentType() instanceof UnionType) return "";
+        return CodegenVisitor.primitiveSuffix(listType.contentType());
+    }
+
+    /**
+     * @return Whether values of the type are Java primitives, which compare by value with {@code ==}
+     */
+    private boolean isPrimitive(IxType type) {
+        return switch (getJavaTypeName(type)) {
+            case "int", "float", "double", "boolean", "char" -> true;
+            default -> false;
+        };
+    }
+
     private String getJavaTypeName(IxType type) {
+        type = bound(type);
         if (type == null) {
             return "Object";
         }
@@ -698,9 +1089,12 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
                 case ANY -> "Object";
             };
         } else if (type instanceof ListType listType) {
+            if (listType.primitiveList() != null) {
+                return listType.primitiveList().getName();
+            }
             String elementType = getWrapperTypeName(listType.contentType());
             return "java.util.List<" + elementType + ">";
-        } else if (type instanceof UnionType) {
+        } else if (type instanceof UnionType || type instanceof GenericType) {
             return "Object";
         } else if (type instanceof StructType structType) {
             return structType.name;
@@ -709,7 +1103,7 @@ public class JavaCodegenVisitor implements Visitor<Optional<String>> {
     }
 
     private String getDefaultValue(IxType type) {
-        if (type instanceof BuiltInType builtIn) {
+        if (bound(type) instanceof BuiltInType builtIn) {
             return switch (builtIn) {
                 case CHAR -> "\\u0000";
                 case INT -> "0";
@@ -0,0 +1,156 @@
+package com.kingmang.ixion.daemon;
+
+import com.kingmang.ixion.Ixion;
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxionConstant;
+import com.kingmang.ixion.api.ModuleCache;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Long running compiler listening on a Unix domain socket
+ * The JVM stays warm between builds and analyzed modules are kept in a {@link ModuleCache},
+ * so a build only pays for the files that changed since the previous one
+ * Builds run arbitrary code as the user of the daemon, so the socket lives in a directory only that user can enter
+ */
+public class CompilerDaemon {
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private final Path socket;
+    private final ModuleCache moduleCache = new ModuleCache();
+
+    /**
+     * @param socket Path of the socket to listen on, its directory must only be accessible by the current user
+     */
+    public CompilerDaemon(Path socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * @return The socket the daemon of the current user listens on
+     */
+    public static Path defaultSocket() {
+        return Path.of(System.getProperty("user.home"), IxionConstant.DAEMON_DIR, IxionConstant.DAEMON_SOCKET);
+    }
+
+    /**
+     * Accepts builds until the process is terminated
+     * Builds are handled one at a time because programs run inside the daemon share its standard streams
+     * @throws IOException If the socket cannot be bound or its directory is accessible by other users
+     */
+    public void serve() throws IOException {
+        IxApi.setExitHandler(code -> {
+            throw new BuildAborted(code);
+        });
+        secureDirectory(socket.toAbsolutePath().getParent());
+        // a socket left behind by a daemon that did not shut down cleanly
+        Files.deleteIfExists(socket);
+        try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            System.out.println("Compiler daemon listening on " + socket);
+            while (true) {
+                try (SocketChannel channel = server.accept()) {
+                    handle(channel);
+                } catch (IOException e) {
+                    System.err.println("Build request failed: " + e.getMessage());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    /**
+     * Creates the directory with access for the current user only, or checks that an existing one has no more
+     * @throws IOException If the directory belongs to another user or grants access to others
+     */
+    private static void secureDirectory(Path directory) throws IOException {
+        if (!directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory);
+            return;
+        }
+        if (Files.notExists(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        }
+
+        var owner = Files.getOwner(directory);
+        if (!owner.getName().equals(System.getProperty("user.name"))) {
+            throw new IOException("`" + directory + "` belongs to " + owner.getName());
+        }
+        if (!Files.getPosixFilePermissions(directory).equals(OWNER_ONLY)) {
+            throw new IOException("`" + directory + "` must only be accessible by its owner (chmod 700)");
+        }
+    }
+
+    private void handle(SocketChannel channel) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+        String workingDirectory = in.readUTF();
+        int argc = in.readInt();
+        List<String> args = new ArrayList<>(argc + 1);
+        args.add("--in-memory");
+        for (int i = 0; i < argc; i++) {
+            args.add(in.readUTF());
+        }
+
+        int status = build(workingDirectory, args.toArray(String[]::new), out);
+
+        out.writeByte(DaemonProtocol.EXIT);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /**
+     * Runs one build with the standard streams redirected to the client
+     * @param workingDirectory The directory the client was started in
+     * @param args The client's arguments
+     * @param out The connection to the client
+     * @return The exit status reported to the client
+     */
+    private int build(String workingDirectory, String[] args, DataOutputStream out) {
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        var clientOut = new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDOUT), true, StandardCharsets.UTF_8);
+        var clientErr = new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDERR), true, StandardCharsets.UTF_8);
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+        try {
+            var cli = new Ixion(workingDirectory, moduleCache);
+            cli.parseArguments(args);
+            return cli.execute();
+        } catch (BuildAborted e) {
+            return e.code;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return 3;
+        } finally {
+            clientOut.flush();
+            clientErr.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+
+    private static final class BuildAborted extends RuntimeException {
+        private final int code;
+
+        BuildAborted(int code) {
+            super(null, null, false, false);
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.kingmang.ixion.daemon;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Thin client that forwards a build to a running {@link CompilerDaemon}
+ * and replays the daemon's output on its own standard streams
+ */
+public class DaemonClient {
+
+    private final Path socket;
+
+    /**
+     * @param socket The socket the daemon listens on, see {@link CompilerDaemon#defaultSocket()}
+     */
+    public DaemonClient(Path socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * @param workingDirectory The directory entry files are resolved against
+     * @param args The command line arguments to forward
+     * @return The exit status reported by the daemon
+     * @throws IOException If no daemon is listening or the connection breaks
+     */
+    public int forward(String workingDirectory, String[] args) throws IOException {
+        try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeUTF(workingDirectory);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (true) {
+                byte kind = in.readByte();
+                if (kind == DaemonProtocol.EXIT) {
+                    System.out.flush();
+                    System.err.flush();
+                    return in.readInt();
+                }
+
+                byte[] chunk = new byte[in.readInt()];
+                in.readFully(chunk);
+                PrintStream target = kind == DaemonProtocol.STDERR ? System.err : System.out;
+                target.write(chunk);
+                target.flush();
+            }
+        }
+    }
+}
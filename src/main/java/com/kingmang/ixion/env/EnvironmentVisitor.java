@@ -175,7 +175,7 @@ public class EnvironmentVisitor implements Visitor<Optional<IxType>> {
     @Override
     public Optional<IxType> visitEmptyList(EmptyListExpression emptyList) {
         var bt = TypeUtils.getFromString(emptyList.tokenType.source());
-        var lt = new ListType(bt);
+        var lt = new ListType(Objects.requireNonNullElseGet(bt, () -> new UnknownType(emptyList.tokenType.source())));
         emptyList.setRealType(lt);
         return Optional.of(lt);
     }
@@ -272,7 +272,9 @@ public class EnvironmentVisitor implements Visitor<Optional<IxType>> {
         var funcType = new DefType(name, parameters, generics);
         if (statement.returnType != null) {
             var ttt = statement.returnType.accept(this);
-            funcType.returnType = ttt.get();
+            funcType.returnType = ttt.get() instanceof UnknownType ut && generics.contains(ut.typeName)
+                    ? new GenericType(ut.typeName)
+                    : ttt.get();
         }
         currentContext.addVariableOrError(ixApi, name, funcType, file, statement);
 
@@ -318,6 +320,7 @@ public class EnvironmentVisitor implements Visitor<Optional<IxType>> {
         currentContext = childEnvironment;
         statement.condition.accept(this);
         statement.trueBlock.accept(this);
+        if (statement.falseStatement instanceof BlockStatement falseBlock) falseBlock.context.parent = currentContext;
         if (statement.falseStatement != null) statement.falseStatement.accept(this);
 
         currentContext = currentContext.parent;
@@ -1,7 +1,15 @@
 package com.kingmang.ixion.exception;
 
+import java.util.function.IntConsumer;
+
 public class Panic {
 
+    /**
+     * Called with the exit code once a panic has been reported
+     * In-process execution replaces it so a panic does not terminate the compiler
+     */
+    public static volatile IntConsumer exitHandler = System::exit;
+
     private final String R = "\u001B[31m";
     private final String RESET = "\u001B[0m";
     private final String message;
@@ -12,6 +20,6 @@ public class Panic {
 
     public void send(){
         System.out.println(R + ("panic: " + message) + RESET);
-        System.exit(1);
+        exitHandler.accept(1);
     }
 }
@@ -0,0 +1,30 @@
+package com.kingmang.ixion.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A straight sequence of instructions that is only entered at its start and left through its terminator
+ */
+public final class BasicBlock {
+    public final int id;
+    public final List<Instruction> instructions = new ArrayList<>();
+    public Terminator terminator;
+
+    BasicBlock(int id) {
+        this.id = id;
+    }
+
+    public String label() {
+        return "b" + id;
+    }
+
+    @Override
+    public String toString() {
+        var text = new StringBuilder(label()).append(":\n");
+        for (var instruction : instructions) {
+            text.append("    ").append(instruction).append('\n');
+        }
+        return text.append("    ").append(terminator).append('\n').toString();
+    }
+}
@@ -0,0 +1,239 @@
+package com.kingmang.ixion.ir;
+
+import com.kingmang.ixion.lexer.TokenType;
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.runtime.DefType;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * A three-address instruction of a basic block, assigning at most one local
+ */
+public sealed interface Instruction {
+
+    /**
+     * @return The local the instruction assigns, null for calls whose result is discarded
+     */
+    IrLocal target();
+
+    /**
+     * @return The locals the instruction reads
+     */
+    List<IrLocal> operands();
+
+    /**
+     * @param replacement Maps every operand to the local read instead
+     * @return The instruction reading the replaced operands
+     */
+    Instruction replaceOperands(UnaryOperator<IrLocal> replacement);
+
+    /**
+     * @param target The local to assign instead, of the same type
+     * @return The instruction assigning the other local
+     */
+    Instruction retarget(IrLocal target);
+
+    /**
+     * @return Whether the instruction has no effect besides assigning its target, so it can be removed when the target is unused
+     */
+    boolean isPure();
+
+    /**
+     * {@code target = value}
+     */
+    record Const(IrLocal target, Object value) implements Instruction {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of();
+        }
+
+        @Override
+        public Instruction replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return this;
+        }
+
+        @Override
+        public Instruction retarget(IrLocal target) {
+            return new Const(target, value);
+        }
+
+        @Override
+        public boolean isPure() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return target + " = " + value;
+        }
+    }
+
+    /**
+     * {@code target = source}
+     */
+    record Copy(IrLocal target, IrLocal source) implements Instruction {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of(source);
+        }
+
+        @Override
+        public Instruction replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new Copy(target, replacement.apply(source));
+        }
+
+        @Override
+        public Instruction retarget(IrLocal target) {
+            return new Copy(target, source);
+        }
+
+        @Override
+        public boolean isPure() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return target + " = " + source;
+        }
+    }
+
+    /**
+     * {@code target = left operator right}, with operands of the same type
+     * Arithmetic produces that type, comparisons produce a boolean
+     */
+    record Binary(IrLocal target, TokenType operator, IrLocal left, IrLocal right) implements Instruction {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of(left, right);
+        }
+
+        @Override
+        public Instruction replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new Binary(target, operator, replacement.apply(left), replacement.apply(right));
+        }
+
+        @Override
+        public Instruction retarget(IrLocal target) {
+            return new Binary(target, operator, left, right);
+        }
+
+        @Override
+        public boolean isPure() {
+            // integer division by zero throws
+            return left.type() != BuiltInType.INT || (operator != TokenType.DIV && operator != TokenType.MOD);
+        }
+
+        /**
+         * @return Whether the operator compares its operands
+         */
+        public boolean isComparison() {
+            return isComparison(operator);
+        }
+
+        public static boolean isComparison(TokenType operator) {
+            return switch (operator) {
+                case EQUAL, NOTEQUAL, LT, GT, LE, GE -> true;
+                default -> false;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return target + " = " + left + " " + operator.representation + " " + right;
+        }
+    }
+
+    /**
+     * {@code target = operator operand}, a negation or a logical not
+     */
+    record Unary(IrLocal target, TokenType operator, IrLocal operand) implements Instruction {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of(operand);
+        }
+
+        @Override
+        public Instruction replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new Unary(target, operator, replacement.apply(operand));
+        }
+
+        @Override
+        public Instruction retarget(IrLocal target) {
+            return new Unary(target, operator, operand);
+        }
+
+        @Override
+        public boolean isPure() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return target + " = " + operator.representation + operand;
+        }
+    }
+
+    /**
+     * {@code target = (type) source}, a widening of a number
+     */
+    record Convert(IrLocal target, IrLocal source) implements Instruction {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of(source);
+        }
+
+        @Override
+        public Instruction replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new Convert(target, replacement.apply(source));
+        }
+
+        @Override
+        public Instruction retarget(IrLocal target) {
+            return new Convert(target, source);
+        }
+
+        @Override
+        public boolean isPure() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return target + " = (" + IrFunction.typeName(target.type()) + ") " + source;
+        }
+    }
+
+    /**
+     * {@code target = callee(arguments)}, a static call with arguments of the parameter types
+     */
+    record Call(IrLocal target, DefType callee, List<IrLocal> arguments) implements Instruction {
+        @Override
+        public List<IrLocal> operands() {
+            return arguments;
+        }
+
+        @Override
+        public Instruction replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new Call(target, callee, arguments.stream().map(replacement).toList());
+        }
+
+        @Override
+        public Instruction retarget(IrLocal target) {
+            return new Call(target, callee, arguments);
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            var call = callee.name + "(" + arguments.stream().map(IrLocal::toString).collect(Collectors.joining(", ")) + ")";
+            return target == null ? call : target + " = " + call;
+        }
+    }
+}
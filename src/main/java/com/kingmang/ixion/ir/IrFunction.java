@@ -0,0 +1,78 @@
+package com.kingmang.ixion.ir;
+
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.runtime.DefType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * A function lowered to basic blocks of three-address instructions over typed locals
+ * The first block is the entry, the blocks are laid out in the order the backends emit them
+ */
+public final class IrFunction {
+    public final DefType type;
+    public final BuiltInType returnType;
+    public final List<IrLocal> parameters = new ArrayList<>();
+    public final List<IrLocal> locals = new ArrayList<>();
+    public final List<BasicBlock> blocks = new ArrayList<>();
+    private int nextBlock = 0;
+
+    /**
+     * @param type The function type, whose parameters and return type are primitives
+     */
+    public IrFunction(DefType type) {
+        this.type = type;
+        this.returnType = (BuiltInType) type.returnType;
+    }
+
+    /**
+     * @param name Name in the source, or null for a temporary
+     * @param type Type of the local
+     * @param kind Where the local comes from
+     * @return A new local of the function, parameters must be created first and in order
+     */
+    public IrLocal newLocal(String name, BuiltInType type, IrLocal.Kind kind) {
+        var local = new IrLocal(locals.size(), name, type, kind);
+        locals.add(local);
+        if (kind == IrLocal.Kind.PARAMETER) parameters.add(local);
+        return local;
+    }
+
+    /**
+     * @return A new block, which is laid out once it is added to {@link #blocks}
+     */
+    public BasicBlock newBlock() {
+        return new BasicBlock(nextBlock++);
+    }
+
+    /**
+     * Removes the blocks control cannot reach from the entry
+     */
+    public void removeUnreachableBlocks() {
+        var reachable = new HashSet<BasicBlock>();
+        var pending = new ArrayDeque<BasicBlock>();
+        pending.push(blocks.getFirst());
+        while (!pending.isEmpty()) {
+            var block = pending.pop();
+            if (reachable.add(block)) {
+                pending.addAll(block.terminator.successors());
+            }
+        }
+        blocks.retainAll(reachable);
+    }
+
+    @Override
+    public String toString() {
+        var signature = type.name + "(" + parameters.stream().map(p -> p + " : " + typeName(p.type())).collect(Collectors.joining(", ")) + ")";
+        return signature + ": " + typeName(returnType) + "\n" + blocks.stream().map(BasicBlock::toString).collect(Collectors.joining());
+    }
+
+    static String typeName(BuiltInType type) {
+        return type.name().toLowerCase(Locale.ROOT);
+    }
+}
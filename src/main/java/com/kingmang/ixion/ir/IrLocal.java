@@ -0,0 +1,30 @@
+package com.kingmang.ixion.ir;
+
+import com.kingmang.ixion.runtime.BuiltInType;
+
+/**
+ * A local of a lowered function, holding a value of a primitive type
+ * Temporaries hold the intermediate values of expressions and are assigned once,
+ * except the results of {@code &&} and {@code ||} used as values, which every branch assigns
+ * @param index Index of the local in its function, unique per function
+ * @param name Name in the source, the parameter or variable name
+ * @param type Type of the values the local holds
+ * @param kind Where the local comes from
+ */
+public record IrLocal(int index, String name, BuiltInType type, Kind kind) {
+
+    public enum Kind {
+        PARAMETER,
+        VARIABLE,
+        TEMPORARY
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case PARAMETER -> name;
+            case VARIABLE -> name + "." + index;
+            case TEMPORARY -> "t" + index;
+        };
+    }
+}
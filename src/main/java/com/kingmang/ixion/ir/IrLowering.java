@@ -0,0 +1,476 @@
+package com.kingmang.ixion.ir;
+
+import com.kingmang.ixion.api.Context;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.*;
+import com.kingmang.ixion.ir.Instruction.*;
+import com.kingmang.ixion.ir.Terminator.*;
+import com.kingmang.ixion.lexer.TokenType;
+import com.kingmang.ixion.optimizer.Pass;
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.runtime.DefType;
+import com.kingmang.ixion.runtime.IxType;
+import com.kingmang.ixion.typechecker.TypeResolver;
+
+import java.util.*;
+
+/**
+ * Lowers the functions of a file to {@link IrFunction}s, which the backends emit instead of walking the AST
+ * Only functions over numbers and booleans whose bodies use locals, arithmetic, control flow and calls of such functions
+ * are lowered, every other function keeps being generated from its AST
+ */
+public class IrLowering implements Pass {
+
+    @Override
+    public String name() {
+        return "lower";
+    }
+
+    @Override
+    public int level() {
+        return 2;
+    }
+
+    @Override
+    public void run(IxFile source) {
+        for (var statement : source.statements) {
+            if (statement instanceof ExportStatement export) statement = export.stmt;
+            if (statement instanceof DefStatement def) {
+                def.ir = lower(source, def);
+            }
+        }
+    }
+
+    /**
+     * @param source The file declaring the function
+     * @param statement A type checked function
+     * @return The lowered function, or null if it uses something the IR cannot express
+     */
+    public static IrFunction lower(IxFile source, DefStatement statement) {
+        var type = source.rootContext.getVariableTyped(statement.name.source(), DefType.class);
+        if (type == null || type.name.equals("main") || !isLowerable(type)) {
+            return null;
+        }
+        try {
+            return new Builder(source, statement, type).build();
+        } catch (NotLowerable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param type A function type
+     * @return Whether the signature of the function only has types the IR holds
+     */
+    static boolean isLowerable(DefType type) {
+        if (type.glue || type.hasGenerics()) return false;
+        if (type.returnType != BuiltInType.VOID && !isPrimitive(type.returnType)) return false;
+        return type.parameters.stream().allMatch(p -> isPrimitive(p.getValue1()));
+    }
+
+    static boolean isPrimitive(IxType type) {
+        return type == BuiltInType.INT || type == BuiltInType.FLOAT || type == BuiltInType.DOUBLE || type == BuiltInType.BOOLEAN;
+    }
+
+    private static boolean isNumeric(BuiltInType type) {
+        return type == BuiltInType.INT || type == BuiltInType.FLOAT || type == BuiltInType.DOUBLE;
+    }
+
+    /**
+     * Thrown when a function uses something the IR cannot express, the function is then left to the AST backends
+     */
+    private static final class NotLowerable extends RuntimeException {
+        private static final NotLowerable INSTANCE = new NotLowerable();
+
+        private NotLowerable() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Builder {
+        private final IxFile source;
+        private final DefStatement statement;
+        private final IrFunction function;
+        private final Deque<Map<String, IrLocal>> scopes = new ArrayDeque<>();
+        private final Deque<Context> contexts = new ArrayDeque<>();
+        private BasicBlock current;
+
+        Builder(IxFile source, DefStatement statement, DefType type) {
+            this.source = source;
+            this.statement = statement;
+            this.function = new IrFunction(type);
+        }
+
+        IrFunction build() {
+            var parameters = new HashMap<String, IrLocal>();
+            for (var parameter : function.type.parameters) {
+                parameters.put(parameter.getValue0(), function.newLocal(parameter.getValue0(), (BuiltInType) parameter.getValue1(), IrLocal.Kind.PARAMETER));
+            }
+            scopes.push(parameters);
+
+            start(function.newBlock());
+            block(statement.body);
+            if (current.terminator == null) {
+                if (function.returnType == BuiltInType.VOID) {
+                    current.terminator = new Return(null);
+                } else {
+                    var value = temporary(function.returnType);
+                    emit(new Const(value, defaultValue(function.returnType)));
+                    current.terminator = new Return(value);
+                }
+            }
+            function.removeUnreachableBlocks();
+            return function;
+        }
+
+        private void block(BlockStatement block) {
+            scopes.push(new HashMap<>());
+            contexts.push(block.context);
+            for (var statement : block.statements) {
+                statement(statement);
+            }
+            contexts.pop();
+            scopes.pop();
+        }
+
+        private void statement(Statement statement) {
+            switch (statement) {
+                case BlockStatement block -> block(block);
+                case VariableStatement variable -> {
+                    var value = value(variable.expression);
+                    var type = contexts.isEmpty() ? null : contexts.peek().getVariable(variable.name.source());
+                    if (type == null) type = value.type();
+                    if (!isPrimitive(type)) throw NotLowerable.INSTANCE;
+
+                    var local = function.newLocal(variable.name.source(), (BuiltInType) type, IrLocal.Kind.VARIABLE);
+                    assign(local, convert(value, local.type()));
+                    scopes.peek().put(variable.name.source(), local);
+                }
+                case ExpressionStatement expressionStatement -> effect(expressionStatement.expression);
+                case IfStatement ifStatement -> {
+                    var ifTrue = function.newBlock();
+                    var end = function.newBlock();
+                    var ifFalse = ifStatement.falseStatement == null ? end : function.newBlock();
+                    condition(ifStatement.condition, ifTrue, ifFalse);
+
+                    start(ifTrue);
+                    block(ifStatement.trueBlock);
+                    jump(end);
+                    if (ifStatement.falseStatement != null) {
+                        start(ifFalse);
+                        statement(ifStatement.falseStatement);
+                        jump(end);
+                    }
+                    start(end);
+                }
+                case WhileStatement whileStatement -> {
+                    var head = function.newBlock();
+                    var body = function.newBlock();
+                    var end = function.newBlock();
+                    jump(head);
+
+                    start(head);
+                    condition(whileStatement.condition, body, end);
+                    start(body);
+                    block(whileStatement.block);
+                    jump(head);
+                    start(end);
+                }
+                case ReturnStatement returnStatement -> {
+                    if (returnStatement.expression == null || returnStatement.expression instanceof EmptyExpression) {
+                        if (function.returnType != BuiltInType.VOID) throw NotLowerable.INSTANCE;
+                        terminate(new Return(null));
+                    } else if (returnStatement.expression instanceof CallExpression call && callee(call) == function.type) {
+                        tailCall(call);
+                    } else {
+                        if (function.returnType == BuiltInType.VOID) throw NotLowerable.INSTANCE;
+                        terminate(new Return(convert(value(returnStatement.expression), function.returnType)));
+                    }
+                    // statements after a return still need a block, which is removed as unreachable
+                    start(function.newBlock());
+                }
+                default -> throw NotLowerable.INSTANCE;
+            }
+        }
+
+        /**
+         * Lowers an expression evaluated for its effect, its value is discarded
+         */
+        private void effect(Expression expression) {
+            switch (expression) {
+                case AssignExpression assign when assign.left instanceof IdentifierExpression identifier -> {
+                    var local = lookup(identifier);
+                    assign(local, convert(value(assign.right), local.type()));
+                }
+                case PostfixExpression postfix when postfix.expression instanceof IdentifierExpression identifier -> {
+                    var local = lookup(identifier);
+                    if (!isNumeric(local.type())) throw NotLowerable.INSTANCE;
+                    var operator = postfix.operator.type() == TokenType.PLUSPLUS ? TokenType.ADD : TokenType.SUB;
+                    var one = temporary(local.type());
+                    emit(new Const(one, convert(1, local.type())));
+                    emit(new Binary(local, operator, local, one));
+                }
+                case CallExpression call -> call(call, false);
+                default -> throw NotLowerable.INSTANCE;
+            }
+        }
+
+        /**
+         * @return The local holding the value of the expression, a variable is returned as is
+         */
+        private IrLocal value(Expression expression) {
+            return switch (expression) {
+                case LiteralExpression literal -> {
+                    if (!(literal.getRealType() instanceof BuiltInType type) || !isPrimitive(type)) throw NotLowerable.INSTANCE;
+                    var local = temporary(type);
+                    emit(new Const(local, TypeResolver.getValueFromString(literal.literal.source(), type)));
+                    yield local;
+                }
+                case IdentifierExpression identifier -> lookup(identifier);
+                case GroupingExpression grouping -> value(grouping.expression);
+                case PrefixExpression prefix -> {
+                    var operand = value(prefix.right);
+                    yield switch (prefix.operator.type()) {
+                        case ADD -> {
+                            if (!isNumeric(operand.type())) throw NotLowerable.INSTANCE;
+                            yield operand;
+                        }
+                        case SUB -> unary(TokenType.SUB, operand, isNumeric(operand.type()));
+                        case NOT -> unary(TokenType.NOT, operand, operand.type() == BuiltInType.BOOLEAN);
+                        default -> throw NotLowerable.INSTANCE;
+                    };
+                }
+                case BinaryExpression binary -> binary(binary);
+                case CallExpression call -> call(call, true);
+                default -> throw NotLowerable.INSTANCE;
+            };
+        }
+
+        private IrLocal unary(TokenType operator, IrLocal operand, boolean supported) {
+            if (!supported) throw NotLowerable.INSTANCE;
+            var local = temporary(operand.type());
+            emit(new Unary(local, operator, operand));
+            return local;
+        }
+
+        private IrLocal binary(BinaryExpression expression) {
+            var operator = expression.operator.type();
+            switch (operator) {
+                case AND, OR -> {
+                    var result = temporary(BuiltInType.BOOLEAN);
+                    var ifTrue = function.newBlock();
+                    var ifFalse = function.newBlock();
+                    var end = function.newBlock();
+                    condition(expression, ifTrue, ifFalse);
+                    start(ifTrue);
+                    emit(new Const(result, true));
+                    jump(end);
+                    start(ifFalse);
+                    emit(new Const(result, false));
+                    jump(end);
+                    start(end);
+                    return result;
+                }
+                case XOR -> {
+                    var left = value(expression.left);
+                    var right = value(expression.right);
+                    if (left.type() != BuiltInType.BOOLEAN || right.type() != BuiltInType.BOOLEAN) throw NotLowerable.INSTANCE;
+                    var result = temporary(BuiltInType.BOOLEAN);
+                    emit(new Binary(result, operator, left, right));
+                    return result;
+                }
+                case ADD, SUB, MUL, DIV, MOD -> {
+                    var left = value(expression.left);
+                    var right = value(expression.right);
+                    if (!isNumeric(left.type()) || !isNumeric(right.type())) throw NotLowerable.INSTANCE;
+                    var type = BuiltInType.widen(left.type(), right.type());
+                    var result = temporary(type);
+                    emit(new Binary(result, operator, convert(left, type), convert(right, type)));
+                    return result;
+                }
+                default -> {
+                    if (!Binary.isComparison(operator)) throw NotLowerable.INSTANCE;
+                    var operands = comparisonOperands(expression);
+                    var result = temporary(BuiltInType.BOOLEAN);
+                    emit(new Binary(result, operator, operands[0], operands[1]));
+                    return result;
+                }
+            }
+        }
+
+        /**
+         * @return Both operands of a comparison converted to the type they are compared in
+         */
+        private IrLocal[] comparisonOperands(BinaryExpression expression) {
+            var left = value(expression.left);
+            var right = value(expression.right);
+            if (isNumeric(left.type()) && isNumeric(right.type())) {
+                var type = BuiltInType.widen(left.type(), right.type());
+                return new IrLocal[]{convert(left, type), convert(right, type)};
+            }
+            var equality = expression.operator.type() == TokenType.EQUAL || expression.operator.type() == TokenType.NOTEQUAL;
+            if (equality && left.type() == BuiltInType.BOOLEAN && right.type() == BuiltInType.BOOLEAN) {
+                return new IrLocal[]{left, right};
+            }
+            throw NotLowerable.INSTANCE;
+        }
+
+        /**
+         * Lowers a condition into branches, so {@code &&}, {@code ||} and {@code !} become control flow
+         */
+        private void condition(Expression expression, BasicBlock ifTrue, BasicBlock ifFalse) {
+            switch (expression) {
+                case GroupingExpression grouping -> condition(grouping.expression, ifTrue, ifFalse);
+                case PrefixExpression prefix when prefix.operator.type() == TokenType.NOT -> condition(prefix.right, ifFalse, ifTrue);
+                case LiteralExpression literal when literal.getRealType() == BuiltInType.BOOLEAN ->
+                        terminate(new Jump(Boolean.parseBoolean(literal.literal.source()) ? ifTrue : ifFalse));
+                case BinaryExpression binary when binary.operator.type() == TokenType.AND -> {
+                    var next = function.newBlock();
+                    condition(binary.left, next, ifFalse);
+                    start(next);
+                    condition(binary.right, ifTrue, ifFalse);
+                }
+                case BinaryExpression binary when binary.operator.type() == TokenType.OR -> {
+                    var next = function.newBlock();
+                    condition(binary.left, ifTrue, next);
+                    start(next);
+                    condition(binary.right, ifTrue, ifFalse);
+                }
+                case BinaryExpression binary when Binary.isComparison(binary.operator.type()) -> {
+                    var operands = comparisonOperands(binary);
+                    terminate(new CompareBranch(binary.operator.type(), operands[0], operands[1], ifTrue, ifFalse));
+                }
+                default -> {
+                    var value = value(expression);
+                    if (value.type() != BuiltInType.BOOLEAN) throw NotLowerable.INSTANCE;
+                    terminate(new Branch(value, ifTrue, ifFalse));
+                }
+            }
+        }
+
+        private IrLocal call(CallExpression expression, boolean used) {
+            var callType = callee(expression);
+            var arguments = new ArrayList<IrLocal>();
+            for (int i = 0; i < expression.arguments.size(); i++) {
+                var parameterType = (BuiltInType) callType.parameters.get(i).getValue1();
+                arguments.add(convert(value(expression.arguments.get(i)), parameterType));
+            }
+
+            IrLocal result = null;
+            if (callType.returnType != BuiltInType.VOID) {
+                if (used) result = temporary((BuiltInType) callType.returnType);
+            } else if (used) {
+                throw NotLowerable.INSTANCE;
+            }
+            emit(new Call(result, callType, arguments));
+            return result;
+        }
+
+        /**
+         * Lowers a return of a self call as a jump back to the entry block with the arguments in the parameters
+         * Arguments are copied to temporaries first, so none of them reads a parameter already reassigned
+         */
+        private void tailCall(CallExpression expression) {
+            var arguments = new ArrayList<IrLocal>();
+            for (int i = 0; i < expression.arguments.size(); i++) {
+                var argument = convert(value(expression.arguments.get(i)), function.parameters.get(i).type());
+                if (argument.kind() != IrLocal.Kind.TEMPORARY) {
+                    var copy = temporary(argument.type());
+                    emit(new Copy(copy, argument));
+                    argument = copy;
+                }
+                arguments.add(argument);
+            }
+            for (int i = 0; i < arguments.size(); i++) {
+                emit(new Copy(function.parameters.get(i), arguments.get(i)));
+            }
+            terminate(new Jump(function.blocks.getFirst()));
+        }
+
+        /**
+         * @return The lowerable function a call invokes
+         */
+        private DefType callee(CallExpression expression) {
+            if (expression.intrinsic != null || expression.specialization != null) throw NotLowerable.INSTANCE;
+            var callee = switch (expression.item) {
+                case IdentifierExpression identifier when findLocal(identifier) == null ->
+                        source.rootContext.getVariable(identifier.identifier.source());
+                case ModuleAccessExpression access -> access.getRealType();
+                default -> null;
+            };
+            if (!(callee instanceof DefType callType) || !isLowerable(callType)) throw NotLowerable.INSTANCE;
+            if (callType.parameters.size() != expression.arguments.size()) throw NotLowerable.INSTANCE;
+            return callType;
+        }
+
+        /**
+         * Assigns a value to a variable, reusing the instruction that just computed the value when it can
+         */
+        private void assign(IrLocal variable, IrLocal value) {
+            var instructions = current.instructions;
+            if (value.kind() == IrLocal.Kind.TEMPORARY && value.type() == variable.type()
+                    && !instructions.isEmpty() && instructions.getLast().target() == value) {
+                instructions.set(instructions.size() - 1, instructions.getLast().retarget(variable));
+            } else {
+                emit(new Copy(variable, value));
+            }
+        }
+
+        private IrLocal convert(IrLocal value, BuiltInType type) {
+            if (value.type() == type) return value;
+            if (!isNumeric(value.type()) || !isNumeric(type) || BuiltInType.widen(value.type(), type) != type) {
+                throw NotLowerable.INSTANCE;
+            }
+            var local = temporary(type);
+            emit(new Convert(local, value));
+            return local;
+        }
+
+        private static Object convert(int value, BuiltInType type) {
+            return switch (type) {
+                case FLOAT -> (float) value;
+                case DOUBLE -> (double) value;
+                default -> value;
+            };
+        }
+
+        private static Object defaultValue(BuiltInType type) {
+            return type == BuiltInType.BOOLEAN ? false : convert(0, type);
+        }
+
+        private IrLocal lookup(IdentifierExpression identifier) {
+            var local = findLocal(identifier);
+            if (local == null) throw NotLowerable.INSTANCE;
+            return local;
+        }
+
+        private IrLocal findLocal(IdentifierExpression identifier) {
+            for (var scope : scopes) {
+                var local = scope.get(identifier.identifier.source());
+                if (local != null) return local;
+            }
+            return null;
+        }
+
+        private IrLocal temporary(BuiltInType type) {
+            return function.newLocal(null, type, IrLocal.Kind.TEMPORARY);
+        }
+
+        private void emit(Instruction instruction) {
+            current.instructions.add(instruction);
+        }
+
+        private void start(BasicBlock block) {
+            function.blocks.add(block);
+            current = block;
+        }
+
+        private void jump(BasicBlock target) {
+            if (current.terminator == null) current.terminator = new Jump(target);
+        }
+
+        private void terminate(Terminator terminator) {
+            current.terminator = terminator;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.kingmang.ixion.ir;
+
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.DefStatement;
+import com.kingmang.ixion.ast.ExportStatement;
+import com.kingmang.ixion.ir.Instruction.*;
+import com.kingmang.ixion.optimizer.Pass;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Optimizes the lowered functions of a file
+ * Jumps through empty blocks are threaded, repeated computations within a block are replaced by the local already holding their value,
+ * copies are propagated to their uses and pure instructions whose result is never read are removed
+ */
+public class IrOptimizer implements Pass {
+
+    @Override
+    public String name() {
+        return "ir-opt";
+    }
+
+    @Override
+    public int level() {
+        return 2;
+    }
+
+    @Override
+    public void run(IxFile source) {
+        for (var statement : source.statements) {
+            if (statement instanceof ExportStatement export) statement = export.stmt;
+            if (statement instanceof DefStatement def && def.ir != null) {
+                optimize(def.ir);
+            }
+        }
+    }
+
+    /**
+     * @param function A lowered function, optimized in place
+     */
+    public static void optimize(IrFunction function) {
+        threadJumps(function);
+        for (var block : function.blocks) {
+            numberValues(block);
+        }
+        removeDeadInstructions(function);
+    }
+
+    /**
+     * Makes jumps to a block that only jumps on go to its target directly, and removes the skipped blocks
+     */
+    static void threadJumps(IrFunction function) {
+        var forwards = new HashMap<BasicBlock, BasicBlock>();
+        for (var block : function.blocks) {
+            if (block.instructions.isEmpty() && block.terminator instanceof Terminator.Jump jump && jump.target() != block) {
+                forwards.put(block, jump.target());
+            }
+        }
+        UnaryOperator<BasicBlock> destination = block -> {
+            var seen = new HashSet<BasicBlock>();
+            while (forwards.containsKey(block) && seen.add(block)) {
+                block = forwards.get(block);
+            }
+            return block;
+        };
+        for (var block : function.blocks) {
+            block.terminator = block.terminator.replaceSuccessors(destination);
+        }
+        function.removeUnreachableBlocks();
+    }
+
+    /**
+     * Local value numbering with copy propagation
+     * Reads of a local copied from another read the other while neither is reassigned,
+     * and a pure computation already held by a local that was not reassigned since becomes a copy of it
+     */
+    static void numberValues(BasicBlock block) {
+        var available = new HashMap<List<Object>, IrLocal>();
+        var copies = new HashMap<IrLocal, IrLocal>();
+        UnaryOperator<IrLocal> propagate = local -> copies.getOrDefault(local, local);
+
+        var instructions = block.instructions;
+        for (int i = 0; i < instructions.size(); i++) {
+            var instruction = instructions.get(i).replaceOperands(propagate);
+            var key = key(instruction);
+            var target = instruction.target();
+            if (key != null && available.containsKey(key)) {
+                instruction = new Copy(target, available.get(key));
+            }
+            instructions.set(i, instruction);
+
+            if (target != null) {
+                // values held by or computed from the previous value of the target are gone
+                available.values().removeIf(target::equals);
+                available.keySet().removeIf(k -> k.contains(target));
+                copies.remove(target);
+                copies.values().removeIf(target::equals);
+            }
+            if (instruction instanceof Copy copy) {
+                if (!copy.source().equals(target)) copies.put(target, copy.source());
+            } else if (key != null && !key.contains(target)) {
+                available.put(key, target);
+            }
+        }
+        block.terminator = block.terminator.replaceOperands(propagate);
+    }
+
+    /**
+     * @return What identifies the value a pure instruction computes, or null if it cannot be reused
+     */
+    private static List<Object> key(Instruction instruction) {
+        return switch (instruction) {
+            case Const c -> List.of(Const.class, c.target().type(), c.value());
+            case Binary b when b.isPure() -> List.of(Binary.class, b.operator(), b.left(), b.right());
+            case Unary u -> List.of(Unary.class, u.operator(), u.operand());
+            case Convert c -> List.of(Convert.class, c.target().type(), c.source());
+            default -> null;
+        };
+    }
+
+    /**
+     * Removes pure instructions assigning locals that are never read and copies of a local to itself, until none is left
+     */
+    static void removeDeadInstructions(IrFunction function) {
+        boolean changed = true;
+        while (changed) {
+            var used = new HashSet<IrLocal>();
+            for (var block : function.blocks) {
+                block.instructions.forEach(instruction -> used.addAll(instruction.operands()));
+                used.addAll(block.terminator.operands());
+            }
+            changed = false;
+            for (var block : function.blocks) {
+                changed |= block.instructions.removeIf(instruction -> instruction.isPure()
+                        && (!used.contains(instruction.target())
+                        || instruction instanceof Copy copy && copy.source().equals(copy.target())));
+            }
+        }
+    }
+}
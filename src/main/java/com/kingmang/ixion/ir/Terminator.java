@@ -0,0 +1,151 @@
+package com.kingmang.ixion.ir;
+
+import com.kingmang.ixion.lexer.TokenType;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * The instruction ending a basic block, transferring control to other blocks or out of the function
+ */
+public sealed interface Terminator {
+
+    /**
+     * @return The locals the terminator reads
+     */
+    List<IrLocal> operands();
+
+    /**
+     * @param replacement Maps every operand to the local read instead
+     * @return The terminator reading the replaced operands
+     */
+    Terminator replaceOperands(UnaryOperator<IrLocal> replacement);
+
+    /**
+     * @return The blocks control may continue in
+     */
+    List<BasicBlock> successors();
+
+    /**
+     * @param replacement Maps every successor to the block to continue in instead
+     * @return The terminator continuing in the replaced blocks
+     */
+    Terminator replaceSuccessors(UnaryOperator<BasicBlock> replacement);
+
+    record Jump(BasicBlock target) implements Terminator {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of();
+        }
+
+        @Override
+        public Terminator replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return this;
+        }
+
+        @Override
+        public List<BasicBlock> successors() {
+            return List.of(target);
+        }
+
+        @Override
+        public Terminator replaceSuccessors(UnaryOperator<BasicBlock> replacement) {
+            return new Jump(replacement.apply(target));
+        }
+
+        @Override
+        public String toString() {
+            return "jump " + target.label();
+        }
+    }
+
+    /**
+     * Continues in {@code ifTrue} if the boolean condition holds, in {@code ifFalse} otherwise
+     */
+    record Branch(IrLocal condition, BasicBlock ifTrue, BasicBlock ifFalse) implements Terminator {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of(condition);
+        }
+
+        @Override
+        public Terminator replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new Branch(replacement.apply(condition), ifTrue, ifFalse);
+        }
+
+        @Override
+        public List<BasicBlock> successors() {
+            return List.of(ifTrue, ifFalse);
+        }
+
+        @Override
+        public Terminator replaceSuccessors(UnaryOperator<BasicBlock> replacement) {
+            return new Branch(condition, replacement.apply(ifTrue), replacement.apply(ifFalse));
+        }
+
+        @Override
+        public String toString() {
+            return "branch " + condition + " ? " + ifTrue.label() + " : " + ifFalse.label();
+        }
+    }
+
+    /**
+     * Continues in {@code ifTrue} if the comparison of two operands of the same type holds, in {@code ifFalse} otherwise
+     */
+    record CompareBranch(TokenType operator, IrLocal left, IrLocal right, BasicBlock ifTrue, BasicBlock ifFalse) implements Terminator {
+        @Override
+        public List<IrLocal> operands() {
+            return List.of(left, right);
+        }
+
+        @Override
+        public Terminator replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return new CompareBranch(operator, replacement.apply(left), replacement.apply(right), ifTrue, ifFalse);
+        }
+
+        @Override
+        public List<BasicBlock> successors() {
+            return List.of(ifTrue, ifFalse);
+        }
+
+        @Override
+        public Terminator replaceSuccessors(UnaryOperator<BasicBlock> replacement) {
+            return new CompareBranch(operator, left, right, replacement.apply(ifTrue), replacement.apply(ifFalse));
+        }
+
+        @Override
+        public String toString() {
+            return "branch " + left + " " + operator.representation + " " + right + " ? " + ifTrue.label() + " : " + ifFalse.label();
+        }
+    }
+
+    /**
+     * Returns from the function, with no value for functions returning void
+     */
+    record Return(IrLocal value) implements Terminator {
+        @Override
+        public List<IrLocal> operands() {
+            return value == null ? List.of() : List.of(value);
+        }
+
+        @Override
+        public Terminator replaceOperands(UnaryOperator<IrLocal> replacement) {
+            return value == null ? this : new Return(replacement.apply(value));
+        }
+
+        @Override
+        public List<BasicBlock> successors() {
+            return List.of();
+        }
+
+        @Override
+        public Terminator replaceSuccessors(UnaryOperator<BasicBlock> replacement) {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return value == null ? "return" : "return " + value;
+        }
+    }
+}
@@ -1,46 +1,143 @@
 package com.kingmang.ixion.lexer;
 
-import java.io.*;
-
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Scanner over the whole source held in one char array
+ * The file is read and decoded as UTF-8 once, and lexemes are cut from the buffer by offset
+ * {@link #scan()} only records where the last token lies, so callers decide when its text becomes a string
+ */
 public class LexerImpl implements Lexer{
-    private final StringBuilder sb = new StringBuilder();
-    private final PushbackReader reader;
+    private static final int ASCII = 128;
+    private static final TokenType[] SINGLE_OPERATORS = new TokenType[ASCII];
+    private static final String[] SINGLE_OPERATOR_TEXT = new String[ASCII];
+    private static final TokenType[][] DOUBLE_OPERATORS = new TokenType[ASCII][ASCII];
+    private static final String[][] DOUBLE_OPERATOR_TEXT = new String[ASCII][ASCII];
+    private static final String[][] KEYWORD_TEXT = new String[ASCII][0];
+    private static final TokenType[][] KEYWORDS = new TokenType[ASCII][0];
+
+    static {
+        for (var type : TokenType.values()) {
+            registerOperator(type, type.representation);
+            registerOperator(type, type.alternate);
+            registerKeyword(type, type.representation);
+            registerKeyword(type, type.alternate);
+        }
+    }
+
+    private final char[] buffer;
+    private final int length;
+    private int offset = 0;
     public int line = 1;
     public int col = 1;
 
+    int tokenStart;
+    int tokenEnd;
+    int tokenLine;
+    int tokenCol;
+    String tokenText;
+
     public LexerImpl(File file) throws FileNotFoundException {
-        this.reader = new PushbackReader(new FileReader(file), 5);
+        this(read(file));
     }
 
-    @Override
-    public Token tokenize() {
-        skipWhitespace();
-
-        int startLine = line;
-        int startCol = col;
-        char currentChar = peek();
+    /**
+     * @param source The whole source text
+     */
+    public LexerImpl(String source) {
+        this.buffer = source.toCharArray();
+        this.length = buffer.length;
+    }
 
-        if (currentChar == '\0') {
-            return new Token(TokenType.EOF, startLine, startCol, null);
+    private static String read(File file) throws FileNotFoundException {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            var notFound = new FileNotFoundException(file.getPath());
+            notFound.initCause(e);
+            throw notFound;
         }
+    }
 
-        if (isAlpha(currentChar)) {
-            return consumeIdentifierToken(startLine, startCol);
+    private static void registerOperator(TokenType type, String text) {
+        if (text == null) return;
+        if (text.length() == 1 && text.charAt(0) < ASCII) {
+            SINGLE_OPERATORS[text.charAt(0)] = type;
+            SINGLE_OPERATOR_TEXT[text.charAt(0)] = text;
+        } else if (text.length() == 2 && text.charAt(0) < ASCII && text.charAt(1) < ASCII) {
+            DOUBLE_OPERATORS[text.charAt(0)][text.charAt(1)] = type;
+            DOUBLE_OPERATOR_TEXT[text.charAt(0)][text.charAt(1)] = text;
         }
+    }
 
-        if (isDigit(currentChar)) {
-            return consumeNumberToken(startLine, startCol);
+    private static void registerKeyword(TokenType type, String text) {
+        if (text == null || !isKeywordStart(text.charAt(0))) return;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') return;
         }
+        char first = text.charAt(0);
+        int n = KEYWORDS[first].length;
+        KEYWORDS[first] = Arrays.copyOf(KEYWORDS[first], n + 1);
+        KEYWORD_TEXT[first] = Arrays.copyOf(KEYWORD_TEXT[first], n + 1);
+        KEYWORDS[first][n] = type;
+        KEYWORD_TEXT[first][n] = text;
+    }
 
-        if (currentChar == '"') {
-            return consumeStringToken(startLine, startCol);
-        }
+    @Override
+    public Token tokenize() {
+        TokenType type = scan();
+        return new Token(type, tokenLine, tokenCol, text(tokenStart, tokenEnd, tokenText));
+    }
+
+    /**
+     * Scans the next token without creating it
+     * Its position is left in the token fields, with the text either in {@code tokenText}
+     * or, when that is null, in the buffer between {@code tokenStart} and {@code tokenEnd}
+     * @return The type of the scanned token
+     */
+    public TokenType scan() {
+        skipWhitespace();
 
-        if (currentChar == '\'') {
-            return consumeCharToken(startLine, startCol);
+        tokenLine = line;
+        tokenCol = col;
+        tokenStart = offset;
+        tokenText = null;
+        char currentChar = peek();
+
+        TokenType type;
+        if (currentChar == '\0') {
+            type = TokenType.EOF;
+        } else if (isAlpha(currentChar)) {
+            type = consumeIdentifierToken();
+        } else if (isDigit(currentChar)) {
+            type = consumeNumberToken();
+        } else if (currentChar == '"') {
+            type = consumeStringToken();
+        } else if (currentChar == '\'') {
+            type = consumeCharToken();
+        } else {
+            type = consumeOperatorToken();
         }
 
-        return consumeOperatorToken(startLine, startCol);
+        tokenEnd = offset;
+        return type;
+    }
+
+    /**
+     * @param start Start offset of a scanned token
+     * @param end End offset of a scanned token
+     * @param text The text recorded for the token, if any
+     * @return The source text of the token, null for the end of input
+     */
+    String text(int start, int end, String text) {
+        if (text != null || start == end) return text;
+        return new String(buffer, start, end - start);
     }
 
 
@@ -57,6 +154,7 @@ public class LexerImpl implements Lexer{
                     break;
 
                 case '/':
+                    if (peekNext() != '/' && peekNext() != '*') return;
                     handleComment();
                     break;
 
@@ -90,17 +188,15 @@ public class LexerImpl implements Lexer{
         advance();
         advance();
 
-        String nextTwoChars;
         do {
             advance();
-            nextTwoChars = String.valueOf(peek()) + peekNext();
-        } while (!nextTwoChars.equals("*/"));
+        } while (!(peek() == '*' && peekNext() == '/') && offset < length);
 
         advance();
         advance();
     }
 
-    private Token consumeCharToken(int line, int col) {
+    private TokenType consumeCharToken() {
         advance();
 
         char currentChar = peek();
@@ -130,65 +226,76 @@ public class LexerImpl implements Lexer{
         }
 
         if (peek() != '\'') {
-            return new Token(TokenType.ERROR, line, col, "Unterminated character literal");
+            tokenText = "Unterminated character literal";
+            return TokenType.ERROR;
         }
 
         advance();
 
-        return new Token(TokenType.CHAR, line, col, String.valueOf(charValue));
+        tokenText = String.valueOf(charValue);
+        return TokenType.CHAR;
     }
 
     private char advance() {
-        try {
-            int charCode = reader.read();
-            if (charCode == -1) return '\0';
-
-            if (charCode == '\n') {
-                line++;
-                col = 1;
-            } else {
-                col++;
-            }
+        if (offset >= length) return '\0';
 
-            return (char) charCode;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return '\0';
+        char c = buffer[offset++];
+        if (c == '\n') {
+            line++;
+            col = 1;
+        } else {
+            col++;
         }
+
+        return c;
     }
 
-    private String clearStringBuilder() {
-        String result = sb.toString();
-        sb.setLength(0);
-        return result;
+    private TokenType consumeIdentifierToken() {
+        int start = offset;
+        consumeIdentifier();
+
+        char first = buffer[start];
+        if (first < ASCII) {
+            String[] candidates = KEYWORD_TEXT[first];
+            for (int i = 0; i < candidates.length; i++) {
+                String keyword = candidates[i];
+                if (keyword.length() == offset - start && matches(keyword, start)) {
+                    tokenText = keyword;
+                    return KEYWORDS[first][i];
+                }
+            }
+        }
+
+        return TokenType.IDENTIFIER;
     }
 
-    private Token consumeIdentifierToken(int line, int col) {
-        String identifier = consumeIdentifier();
-        TokenType tokenType = TokenType.IDENTIFIER;
+    /**
+     * Keywords may start with any character that also starts an identifier, e.g. `_`
+     */
+    private static boolean isKeywordStart(char c) {
+        return c < ASCII && (Character.isLetter(c) || c == '_');
+    }
 
-        TokenType keywordType = TokenType.find(identifier);
-        if (keywordType != null) {
-            tokenType = keywordType;
+    private boolean matches(String keyword, int start) {
+        for (int i = 1; i < keyword.length(); i++) {
+            if (buffer[start + i] != keyword.charAt(i)) return false;
         }
-
-        return new Token(tokenType, line, col, identifier);
+        return true;
     }
 
-    private String consumeIdentifier() {
+    private void consumeIdentifier() {
         while (isAlphaNumeric(peek())) {
-            sb.append(advance());
+            advance();
         }
-        return clearStringBuilder();
     }
 
 
-    private Token consumeNumberToken(int line, int col) {
+    private TokenType consumeNumberToken() {
         TokenType type = TokenType.INT;
 
         consumeIntegerPart();
 
-        if (peek() == '.') {
+        if (peek() == '.' && peekNext() != '.') {
             type = TokenType.FLOAT;
             consumeDecimalPart();
         }
@@ -197,23 +304,22 @@ public class LexerImpl implements Lexer{
         consumeExponentPart();
         consumeDoubleSuffix();
 
-        String value = clearStringBuilder();
-        return new Token(type, line, col, value);
+        return type;
     }
 
 
     private void consumeIntegerPart() {
         while (isDigit(peek())) {
-            sb.append(advance());
+            advance();
         }
     }
 
 
     private void consumeDecimalPart() {
-        sb.append(advance()); // consume '.'
+        advance(); // consume '.'
 
         while (isDigit(peek())) {
-            sb.append(advance());
+            advance();
         }
     }
 
@@ -221,7 +327,7 @@ public class LexerImpl implements Lexer{
     private void consumeFloatSuffix(TokenType type) {
         if (peek() == 'f') {
             type = TokenType.FLOAT;
-            sb.append(advance());
+            advance();
         }
     }
 
@@ -229,15 +335,15 @@ public class LexerImpl implements Lexer{
     private void consumeExponentPart() {
         char currentChar = peek();
         if (currentChar == 'e' || currentChar == 'E') {
-            sb.append(advance());
+            advance();
 
             currentChar = peek();
             if (currentChar == '-' || currentChar == '+') {
-                sb.append(advance());
+                advance();
             }
 
             while (isDigit(peek())) {
-                sb.append(advance());
+                advance();
             }
         }
     }
@@ -245,49 +351,52 @@ public class LexerImpl implements Lexer{
 
     private void consumeDoubleSuffix() {
         if (peek() == 'd') {
-            sb.append(advance());
+            advance();
         }
     }
 
-    private Token consumeStringToken(int line, int col) {
+    private TokenType consumeStringToken() {
         advance();
 
+        int start = offset;
         char currentChar = peek();
         while (currentChar != '"' && currentChar != '\0') {
-            sb.append(advance());
+            advance();
             currentChar = peek();
         }
+        int end = offset;
 
         advance();
 
-        String stringLiteral = clearStringBuilder();
-        String escapedString = stringLiteral.translateEscapes();
-
-        return new Token(TokenType.STRING, line, col, escapedString);
+        tokenText = new String(buffer, start, end - start).translateEscapes();
+        return TokenType.STRING;
     }
 
-    private Token consumeOperatorToken(int line, int col) {
+    private TokenType consumeOperatorToken() {
         char currentChar = peek();
         char nextChar = peekNext();
-        String twoCharOperator = String.valueOf(new char[]{currentChar, nextChar});
-
-        TokenType longToken = TokenType.find(twoCharOperator);
-        TokenType shortToken = TokenType.find(String.valueOf(currentChar));
 
-        if (longToken != null) {
-            advance();
-            advance();
-            return new Token(longToken, line, col, twoCharOperator);
+        if (currentChar < ASCII && nextChar < ASCII) {
+            TokenType longToken = DOUBLE_OPERATORS[currentChar][nextChar];
+            if (longToken != null) {
+                advance();
+                advance();
+                tokenText = DOUBLE_OPERATOR_TEXT[currentChar][nextChar];
+                return longToken;
+            }
         }
 
+        TokenType shortToken = currentChar < ASCII ? SINGLE_OPERATORS[currentChar] : null;
         if (shortToken != null) {
             advance();
-            return new Token(shortToken, line, col, String.valueOf(currentChar));
+            tokenText = SINGLE_OPERATOR_TEXT[currentChar];
+            return shortToken;
         }
 
+        tokenText = String.valueOf(new char[]{currentChar, nextChar});
         advance();
         advance();
-        return new Token(TokenType.ERROR, line, col, twoCharOperator);
+        return TokenType.ERROR;
     }
 
     private boolean isAlpha(char c) {
@@ -304,33 +413,11 @@ public class LexerImpl implements Lexer{
 
 
     private char peek() {
-        try {
-            int charCode = reader.read();
-            if (charCode == -1) return '\0';
-
-            reader.unread(charCode);
-            return (char) charCode;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return '\0';
-        }
+        return offset < length ? buffer[offset] : '\0';
     }
 
     private char peekNext() {
-        try {
-            int firstChar = reader.read();
-            int secondChar = reader.read();
-
-            if (secondChar == -1) return '\0';
-
-            reader.unread(secondChar);
-            reader.unread(firstChar);
-
-            return (char) secondChar;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return '\0';
-        }
+        return offset + 1 < length ? buffer[offset + 1] : '\0';
     }
 
 }
\ No newline at end of file
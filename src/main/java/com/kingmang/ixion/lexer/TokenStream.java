@@ -0,0 +1,133 @@
+package com.kingmang.ixion.lexer;
+
+import java.util.Arrays;
+
+/**
+ * Lookahead window over a lexer, stored as packed primitive arrays in a ring buffer
+ * Tokens are scanned on demand and only become {@link Token} objects when the parser asks for one,
+ * so punctuation and keywords that are matched by type never allocate
+ */
+public final class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final LexerImpl lexer;
+    private int capacity = 8;
+    private int[] types = new int[capacity];
+    private int[] starts = new int[capacity];
+    private int[] ends = new int[capacity];
+    private int[] lines = new int[capacity];
+    private int[] cols = new int[capacity];
+    private String[] texts = new String[capacity];
+    private Token[] tokens = new Token[capacity];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * @param lexer The lexer to scan tokens from
+     */
+    public TokenStream(LexerImpl lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * @param distance The lookahead distance (0 = current token)
+     * @return The type of the token at the given distance
+     */
+    public TokenType type(int distance) {
+        return TYPES[types[slot(distance)]];
+    }
+
+    /**
+     * @param distance The lookahead distance (0 = current token)
+     * @return The token at the given distance, created the first time it is requested
+     */
+    public Token token(int distance) {
+        int slot = slot(distance);
+        Token token = tokens[slot];
+        if (token == null) {
+            token = new Token(TYPES[types[slot]], lines[slot], cols[slot], lexer.text(starts[slot], ends[slot], texts[slot]));
+            tokens[slot] = token;
+        }
+        return token;
+    }
+
+    /**
+     * Consumes the current token
+     * @return The consumed token
+     */
+    public Token next() {
+        Token token = token(0);
+        skip();
+        return token;
+    }
+
+    /**
+     * Consumes the current token without creating it
+     */
+    public void skip() {
+        slot(0);
+        tokens[head] = null;
+        texts[head] = null;
+        head = (head + 1) & (capacity - 1);
+        size--;
+    }
+
+    /**
+     * @return The line the lexer has scanned up to
+     */
+    public int line() {
+        return lexer.line;
+    }
+
+    /**
+     * @return The column the lexer has scanned up to
+     */
+    public int col() {
+        return lexer.col;
+    }
+
+    private int slot(int distance) {
+        while (size <= distance) {
+            if (size == capacity) grow();
+            int slot = (head + size) & (capacity - 1);
+            types[slot] = lexer.scan().ordinal();
+            starts[slot] = lexer.tokenStart;
+            ends[slot] = lexer.tokenEnd;
+            lines[slot] = lexer.tokenLine;
+            cols[slot] = lexer.tokenCol;
+            texts[slot] = lexer.tokenText;
+            size++;
+        }
+        return (head + distance) & (capacity - 1);
+    }
+
+    private void grow() {
+        int grown = capacity * 2;
+        types = unwrap(types, grown);
+        starts = unwrap(starts, grown);
+        ends = unwrap(ends, grown);
+        lines = unwrap(lines, grown);
+        cols = unwrap(cols, grown);
+        texts = unwrap(texts, grown);
+        tokens = unwrap(tokens, grown);
+        head = 0;
+        capacity = grown;
+    }
+
+    private int[] unwrap(int[] ring, int length) {
+        int[] array = new int[length];
+        int first = Math.min(size, capacity - head);
+        System.arraycopy(ring, head, array, 0, first);
+        System.arraycopy(ring, 0, array, first, size - first);
+        return array;
+    }
+
+    private <T> T[] unwrap(T[] ring, int length) {
+        T[] array = Arrays.copyOf(ring, length);
+        Arrays.fill(array, null);
+        int first = Math.min(size, capacity - head);
+        System.arraycopy(ring, head, array, 0, first);
+        System.arraycopy(ring, 0, array, first, size - first);
+        return array;
+    }
+}
@@ -1,11 +1,11 @@
 package com.kingmang.ixion.modules;
 
 import com.kingmang.ixion.exception.Panic;
-import com.kingmang.ixion.runtime.CollectionUtil;
+import com.kingmang.ixion.runtime.IndexedCollection;
+import com.kingmang.ixion.runtime.IntRange;
 
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.IntStream;
 
 
 @SuppressWarnings("unused")
@@ -35,21 +35,30 @@ public class Prelude {
 		return r.removeLast();
 	}
 
-	public static <T> Iterator<Integer> range(int start, int stop) {
-		return IntStream.range(start, stop).boxed().iterator();
+	public static IntRange range(int start, int stop) {
+		return new IntRange(start, stop);
 	}
 
 
-	public static <T> T list_get(CollectionUtil.IxListWrapper r, int pos) {
-		return (T) r.list().get(pos);
+	@SuppressWarnings("unchecked")
+	public static <T> T list_get(Object r, int pos) {
+		if (r instanceof List<?> list)
+			return (T) list.get(pos);
+		else if (r instanceof IndexedCollection<?> collection)
+			return (T) collection.get(pos);
+
+		new Panic("list_get expects a list").send();
+		return null;
 	}
 
 	public static int len(Object r) {
-		if(r instanceof CollectionUtil.IxListWrapper list)
-            return list.list().size() + 1;
-	    else if (r instanceof String s)
-            return s.length();
+		if (r instanceof Collection<?> collection)
+			return collection.size();
+		else if (r instanceof IndexedCollection<?> collection)
+			return collection.size();
+		else if (r instanceof String s)
+			return s.length();
 
-        return -1;
-    }
+		return -1;
+	}
 }
@@ -0,0 +1,284 @@
+package com.kingmang.ixion.optimizer;
+
+import com.kingmang.ixion.Visitor;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.*;
+import com.kingmang.ixion.lexer.Token;
+import com.kingmang.ixion.runtime.BuiltInType;
+import org.apache.commons.text.StringEscapeUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Renders the AST of a file back as Ixion source, used to inspect what the passes did
+ */
+public class AstPrinter implements Visitor<String> {
+    private static final String INDENT = "    ";
+
+    private int depth = 0;
+
+    /**
+     * @param source A parsed file
+     * @return The source of the file as the AST currently describes it
+     */
+    public static String print(IxFile source) {
+        var printer = new AstPrinter();
+        return source.statements.stream().map(s -> s.accept(printer)).collect(Collectors.joining());
+    }
+
+    @Override
+    public String visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public String visitTypeAlias(TypeAliasStatement statement) {
+        return line("type " + statement.identifier.source() + " = " + type(statement.typeStmt));
+    }
+
+    @Override
+    public String visitBlockStmt(BlockStatement statement) {
+        return "{\n" + body(statement) + INDENT.repeat(depth) + "}";
+    }
+
+    @Override
+    public String visitEnum(EnumStatement statement) {
+        var values = statement.values.stream().map(Token::source).collect(Collectors.joining(", "));
+        return line("enum " + statement.name.source() + " { " + values + " }");
+    }
+
+    @Override
+    public String visitExport(ExportStatement statement) {
+        return INDENT.repeat(depth) + "pub " + statement.stmt.accept(this).stripLeading();
+    }
+
+    @Override
+    public String visitExpressionStmt(ExpressionStatement statement) {
+        return line(statement.expression.accept(this));
+    }
+
+    @Override
+    public String visitFor(ForStatement statement) {
+        return line("for " + statement.name.source() + " : " + statement.expression.accept(this) + " " + statement.block.accept(this));
+    }
+
+    @Override
+    public String visitFunctionStmt(DefStatement statement) {
+        var generics = statement.generics.isEmpty() ? "" : "[" + tokens(statement.generics) + "]";
+        var ir = statement.ir == null ? "" : statement.ir.toString().lines().map(l -> line("// " + l)).collect(Collectors.joining());
+        return line("def " + statement.name.source() + generics + "(" + parameters(statement.parameters) + "): "
+                + type(statement.returnType) + " " + statement.body.accept(this)) + ir;
+    }
+
+    @Override
+    public String visitIf(IfStatement statement) {
+        var text = "if " + statement.condition.accept(this) + " " + statement.trueBlock.accept(this);
+        if (statement.falseStatement != null) {
+            text += " else " + statement.falseStatement.accept(this).strip();
+        }
+        return line(text);
+    }
+
+    @Override
+    public String visitUse(UseStatement statement) {
+        return line("use <" + statement.stringLiteral.source() + ">");
+    }
+
+    @Override
+    public String visitMatch(CaseStatement statement) {
+        var text = new StringBuilder("case " + statement.expression.accept(this) + " {\n");
+        depth++;
+        for (var arm : statement.cases.entrySet()) {
+            text.append(line(type(arm.getKey()) + " " + arm.getValue().getValue0() + " => " + arm.getValue().getValue1().accept(this)));
+        }
+        depth--;
+        return line(text + INDENT.repeat(depth) + "}");
+    }
+
+    @Override
+    public String visitParameterStmt(ParameterStatement statement) {
+        return statement.name.source() + " : " + type(statement.type);
+    }
+
+    @Override
+    public String visitReturnStmt(ReturnStatement statement) {
+        return line(("return " + statement.expression.accept(this)).stripTrailing());
+    }
+
+    @Override
+    public String visitStruct(StructStatement statement) {
+        var generics = statement.generics.isEmpty() ? "" : "[" + tokens(statement.generics) + "]";
+        var text = new StringBuilder("type " + statement.name.source() + generics + " = struct {\n");
+        depth++;
+        for (var field : statement.fields) {
+            text.append(line(field.accept(this)));
+        }
+        depth--;
+        return line(text + INDENT.repeat(depth) + "}");
+    }
+
+    @Override
+    public String visitTypeAlias(TypeStatement statement) {
+        return type(statement);
+    }
+
+    @Override
+    public String visitUnionType(UnionTypeStatement statement) {
+        return type(statement);
+    }
+
+    @Override
+    public String visitVariable(VariableStatement statement) {
+        return line(statement.mutability.source() + " " + statement.name.source() + " = " + statement.expression.accept(this));
+    }
+
+    @Override
+    public String visitWhile(WhileStatement statement) {
+        return line("while " + statement.condition.accept(this) + " " + statement.block.accept(this));
+    }
+
+    @NotNull
+    @Override
+    public String visitAssignExpr(AssignExpression expr) {
+        return expr.left.accept(this) + " = " + expr.right.accept(this);
+    }
+
+    @NotNull
+    @Override
+    public String visitBad(BadExpression expr) {
+        return "<bad>";
+    }
+
+    @NotNull
+    @Override
+    public String visitBinaryExpr(BinaryExpression expr) {
+        return expr.left.accept(this) + " " + expr.operator.source() + " " + expr.right.accept(this);
+    }
+
+    @NotNull
+    @Override
+    public String visitCall(CallExpression expr) {
+        return expr.item.accept(this) + "(" + expressions(expr.arguments) + ")";
+    }
+
+    @NotNull
+    @Override
+    public String visitEmpty(EmptyExpression empty) {
+        return "";
+    }
+
+    @NotNull
+    @Override
+    public String visitEmptyList(EmptyListExpression emptyList) {
+        return "[" + emptyList.tokenType.source() + "]";
+    }
+
+    @NotNull
+    @Override
+    public String visitGroupingExpr(GroupingExpression expr) {
+        return "(" + expr.expression.accept(this) + ")";
+    }
+
+    @NotNull
+    @Override
+    public String visitIdentifierExpr(IdentifierExpression expr) {
+        return expr.identifier.source();
+    }
+
+    @NotNull
+    @Override
+    public String visitIndexAccess(IndexAccessExpression expr) {
+        return expr.left.accept(this) + "[" + expr.right.accept(this) + "]";
+    }
+
+    @NotNull
+    @Override
+    public String visitLiteralExpr(LiteralExpression expr) {
+        var source = expr.literal.source();
+        if (!(expr.getRealType() instanceof BuiltInType bt)) {
+            return source;
+        }
+        return switch (bt) {
+            case STRING -> "\"" + StringEscapeUtils.escapeJava(source) + "\"";
+            case CHAR -> "'" + StringEscapeUtils.escapeJava(source) + "'";
+            case FLOAT -> source.endsWith("f") ? source : source + "f";
+            default -> source;
+        };
+    }
+
+    @NotNull
+    @Override
+    public String visitLiteralList(LiteralListExpression expr) {
+        return "[" + expressions(expr.entries) + "]";
+    }
+
+    @NotNull
+    @Override
+    public String visitModuleAccess(ModuleAccessExpression expr) {
+        return expr.identifier.accept(this) + "::" + expr.foreign.accept(this);
+    }
+
+    @NotNull
+    @Override
+    public String visitPostfixExpr(PostfixExpression expr) {
+        return expr.expression.accept(this) + expr.operator.source();
+    }
+
+    @NotNull
+    @Override
+    public String visitPrefix(PrefixExpression expr) {
+        return expr.operator.source() + expr.right.accept(this);
+    }
+
+    @NotNull
+    @Override
+    public String visitPropertyAccess(PropertyAccessExpression expr) {
+        return expr.expression.accept(this) + expr.identifiers.stream().map(i -> "." + i.identifier.source()).collect(Collectors.joining());
+    }
+
+    @NotNull
+    @Override
+    public String visitLambda(@NotNull LambdaExpression expression) {
+        return "def (" + parameters(expression.getParameters()) + ") " + expression.getBody().accept(this);
+    }
+
+    private String body(BlockStatement block) {
+        depth++;
+        var text = block.statements.stream()
+                .map(s -> s instanceof BlockStatement ? line(s.accept(this)) : s.accept(this))
+                .collect(Collectors.joining());
+        depth--;
+        return text;
+    }
+
+    private String line(String text) {
+        return INDENT.repeat(depth) + text + "\n";
+    }
+
+    private String expressions(List<Expression> expressions) {
+        return expressions.stream().map(e -> e.accept(this)).collect(Collectors.joining(", "));
+    }
+
+    private String parameters(List<ParameterStatement> parameters) {
+        return parameters.stream().map(p -> p.accept(this)).collect(Collectors.joining(", "));
+    }
+
+    private static String tokens(List<Token> tokens) {
+        return tokens.stream().map(Token::source).collect(Collectors.joining(", "));
+    }
+
+    private static String type(TypeStatement type) {
+        if (type == null) return "void";
+        if (type instanceof UnionTypeStatement union) {
+            return union.types.stream().map(AstPrinter::type).collect(Collectors.joining(" | "));
+        }
+        var text = Objects.requireNonNull(type.identifier).source();
+        if (type.next != null && type.next.isPresent()) {
+            text += "[" + type(type.next.get()) + "]";
+        }
+        return type.listType ? text + "[]" : text;
+    }
+}
@@ -0,0 +1,465 @@
+package com.kingmang.ixion.optimizer;
+
+import com.kingmang.ixion.Visitor;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.*;
+import com.kingmang.ixion.lexer.Token;
+import com.kingmang.ixion.lexer.TokenType;
+import com.kingmang.ixion.parser.Node;
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.typechecker.TypeResolver;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Folds constant expressions of a type checked file and removes the branches and statements they make dead
+ * Operators are evaluated with the semantics the code generators give them, anything else is left untouched
+ * Statement visits return the replacement statement, or nothing when the statement is removed
+ */
+public class ConstantFolder implements Visitor<Optional<Node>>, Pass {
+
+    @Override
+    public String name() {
+        return "fold";
+    }
+
+    @Override
+    public int level() {
+        return 1;
+    }
+
+    @Override
+    public void run(IxFile source) {
+        for (var statement : source.statements) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public Optional<Node> visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public Optional<Node> visitTypeAlias(TypeAliasStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitBlockStmt(BlockStatement statement) {
+        foldStatements(statement.statements);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitEnum(EnumStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitExport(ExportStatement statement) {
+        statement.stmt.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitExpressionStmt(ExpressionStatement statement) {
+        statement.expression = fold(statement.expression);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitFor(ForStatement statement) {
+        statement.expression = fold(statement.expression);
+        statement.block.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitFunctionStmt(DefStatement statement) {
+        statement.body.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitIf(IfStatement statement) {
+        statement.condition = fold(statement.condition);
+        statement.trueBlock.accept(this);
+        if (statement.falseStatement != null) {
+            statement.falseStatement = (Statement) statement.falseStatement.accept(this).orElse(null);
+        }
+
+        if (!(valueOf(statement.condition) instanceof Boolean condition)) {
+            return Optional.of(statement);
+        }
+        if (condition) {
+            return Optional.of(statement.trueBlock);
+        }
+        return switch (statement.falseStatement) {
+            case null -> Optional.empty();
+            case BlockStatement block -> Optional.of(block);
+            // an else-if lives in the context of the true block, which the wrapping block restores afterwards
+            default -> {
+                var statements = new ArrayList<Statement>();
+                statements.add(statement.falseStatement);
+                yield Optional.of(new BlockStatement(statement.pos(), statements, statement.trueBlock.context));
+            }
+        };
+    }
+
+    @Override
+    public Optional<Node> visitUse(UseStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitMatch(CaseStatement statement) {
+        statement.expression = fold(statement.expression);
+        for (var arm : statement.cases.values()) {
+            arm.getValue1().accept(this);
+        }
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitParameterStmt(ParameterStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitReturnStmt(ReturnStatement statement) {
+        statement.expression = fold(statement.expression);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitStruct(StructStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitTypeAlias(TypeStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitUnionType(UnionTypeStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitVariable(VariableStatement statement) {
+        statement.expression = fold(statement.expression);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitWhile(WhileStatement statement) {
+        statement.condition = fold(statement.condition);
+        statement.block.accept(this);
+        if (Boolean.FALSE.equals(valueOf(statement.condition))) {
+            return Optional.empty();
+        }
+        return Optional.of(statement);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitAssignExpr(AssignExpression expr) {
+        expr.right = fold(expr.right);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitBad(BadExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitBinaryExpr(BinaryExpression expr) {
+        expr.left = fold(expr.left);
+        expr.right = fold(expr.right);
+        if (!(expr.getRealType() instanceof BuiltInType type)) {
+            return Optional.of(expr);
+        }
+
+        var operator = expr.operator.type();
+        var left = valueOf(expr.left);
+        var right = valueOf(expr.right);
+
+        // only the left operand decides whether the right one is evaluated
+        if (left instanceof Boolean l && right == null) {
+            return switch (operator) {
+                case AND -> Optional.of(l ? expr.right : expr.left);
+                case OR -> Optional.of(l ? expr.left : expr.right);
+                default -> Optional.of(expr);
+            };
+        }
+        if (left == null || right == null) {
+            return Optional.of(expr);
+        }
+
+        Object result = switch (operator) {
+            case ADD, SUB, MUL, DIV, MOD -> arithmetic(operator, type, left, right);
+            case EQUAL, NOTEQUAL, LT, GT, LE, GE -> comparison(operator, left, right);
+            case AND -> (Boolean) left && (Boolean) right;
+            case OR -> (Boolean) left || (Boolean) right;
+            case XOR -> (Boolean) left ^ (Boolean) right;
+            default -> null;
+        };
+        return Optional.of(result == null ? expr : literal(expr, type, result));
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitCall(CallExpression expr) {
+        expr.arguments.replaceAll(this::fold);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitEmpty(EmptyExpression empty) {
+        return Optional.of(empty);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitEmptyList(EmptyListExpression emptyList) {
+        return Optional.of(emptyList);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitGroupingExpr(GroupingExpression expr) {
+        expr.expression = fold(expr.expression);
+        return Optional.of(expr.expression instanceof LiteralExpression ? expr.expression : expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitIdentifierExpr(IdentifierExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitIndexAccess(IndexAccessExpression expr) {
+        expr.left = fold(expr.left);
+        expr.right = fold(expr.right);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitLiteralExpr(LiteralExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitLiteralList(LiteralListExpression expr) {
+        expr.entries.replaceAll(this::fold);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitModuleAccess(ModuleAccessExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitPostfixExpr(PostfixExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitPrefix(PrefixExpression expr) {
+        expr.right = fold(expr.right);
+        if (!(expr.getRealType() instanceof BuiltInType type) || valueOf(expr.right) == null) {
+            return Optional.of(expr);
+        }
+
+        var value = valueOf(expr.right);
+        Object result = switch (expr.operator.type()) {
+            case ADD -> value instanceof Number ? value : null;
+            case SUB -> switch (value) {
+                case Integer i -> -i;
+                case Float f -> -f;
+                case Double d -> -d;
+                default -> null;
+            };
+            case NOT -> value instanceof Boolean b ? !b : null;
+            default -> null;
+        };
+        return Optional.of(result == null ? expr : literal(expr, type, result));
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitPropertyAccess(PropertyAccessExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitLambda(@NotNull LambdaExpression expression) {
+        return Optional.of(expression);
+    }
+
+    private Expression fold(Expression expression) {
+        if (expression == null) return null;
+        return (Expression) expression.accept(this).orElse(expression);
+    }
+
+    /**
+     * Folds a list of statements, dropping removed statements and everything after one that always returns
+     * @param statements The statements of a block
+     */
+    private void foldStatements(List<Statement> statements) {
+        var iterator = statements.listIterator();
+        boolean reachable = true;
+        while (iterator.hasNext()) {
+            var statement = iterator.next();
+            if (!reachable) {
+                iterator.remove();
+                continue;
+            }
+            var folded = statement.accept(this);
+            if (folded.isEmpty()) {
+                iterator.remove();
+            } else {
+                var replacement = (Statement) folded.get();
+                if (replacement != statement) iterator.set(replacement);
+                reachable = !alwaysReturns(replacement);
+            }
+        }
+    }
+
+    private static boolean alwaysReturns(Statement statement) {
+        return switch (statement) {
+            case ReturnStatement ignored -> true;
+            case BlockStatement block -> !block.statements.isEmpty() && alwaysReturns(block.statements.getLast());
+            case IfStatement ifStatement -> ifStatement.falseStatement != null
+                    && alwaysReturns(ifStatement.trueBlock) && alwaysReturns(ifStatement.falseStatement);
+            default -> false;
+        };
+    }
+
+    /**
+     * @param expression A folded expression
+     * @return The value of the expression if it is a literal of a foldable type, null otherwise
+     */
+    private static Object valueOf(Expression expression) {
+        if (!(expression instanceof LiteralExpression literal) || !(literal.getRealType() instanceof BuiltInType type)) {
+            return null;
+        }
+        return switch (type) {
+            case BOOLEAN, INT, FLOAT, DOUBLE -> TypeResolver.getValueFromString(literal.literal.source(), type);
+            // the lexer already stripped the quotes, so the source is the value itself
+            case STRING -> literal.literal.source();
+            default -> null;
+        };
+    }
+
+    /**
+     * @return The result, or null if it cannot be folded, like a division by zero or a non-finite number
+     */
+    private static Object arithmetic(TokenType operator, BuiltInType type, Object left, Object right) {
+        return switch (type) {
+            case STRING -> operator == TokenType.ADD ? String.valueOf(left) + right : null;
+            case INT -> {
+                if (!(left instanceof Integer a) || !(right instanceof Integer b)) yield null;
+                yield switch (operator) {
+                    case ADD -> a + b;
+                    case SUB -> a - b;
+                    case MUL -> a * b;
+                    case DIV -> b == 0 ? null : a / b;
+                    default -> b == 0 ? null : a % b;
+                };
+            }
+            case FLOAT -> {
+                if (!(left instanceof Number a) || !(right instanceof Number b)) yield null;
+                float result = switch (operator) {
+                    case ADD -> a.floatValue() + b.floatValue();
+                    case SUB -> a.floatValue() - b.floatValue();
+                    case MUL -> a.floatValue() * b.floatValue();
+                    case DIV -> a.floatValue() / b.floatValue();
+                    default -> a.floatValue() % b.floatValue();
+                };
+                yield Float.isFinite(result) ? result : null;
+            }
+            case DOUBLE -> {
+                if (!(left instanceof Number a) || !(right instanceof Number b)) yield null;
+                double result = switch (operator) {
+                    case ADD -> a.doubleValue() + b.doubleValue();
+                    case SUB -> a.doubleValue() - b.doubleValue();
+                    case MUL -> a.doubleValue() * b.doubleValue();
+                    case DIV -> a.doubleValue() / b.doubleValue();
+                    default -> a.doubleValue() % b.doubleValue();
+                };
+                yield Double.isFinite(result) ? result : null;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Numbers are compared in their widened type, strings and booleans only for equality
+     * @return The result, or null if the operands cannot be compared
+     */
+    private static Object comparison(TokenType operator, Object left, Object right) {
+        if (left instanceof Number a && right instanceof Number b) {
+            boolean wide = a instanceof Double || b instanceof Double;
+            boolean floating = wide || a instanceof Float || b instanceof Float;
+            double x = wide ? a.doubleValue() : floating ? a.floatValue() : a.intValue();
+            double y = wide ? b.doubleValue() : floating ? b.floatValue() : b.intValue();
+            return switch (operator) {
+                case EQUAL -> x == y;
+                case NOTEQUAL -> x != y;
+                case LT -> x < y;
+                case GT -> x > y;
+                case LE -> x <= y;
+                default -> x >= y;
+            };
+        }
+        if (left.getClass() != right.getClass()) {
+            return null;
+        }
+        return switch (operator) {
+            case EQUAL -> Objects.equals(left, right);
+            case NOTEQUAL -> !Objects.equals(left, right);
+            default -> null;
+        };
+    }
+
+    /**
+     * @param original The folded expression, whose position the literal takes
+     * @param type The type of the folded expression
+     * @param value The value of the literal
+     * @return A type checked literal
+     */
+    private static LiteralExpression literal(Expression original, BuiltInType type, Object value) {
+        var tokenType = switch (value) {
+            case Boolean b -> b ? TokenType.TRUE : TokenType.FALSE;
+            case Integer ignored -> TokenType.INT;
+            case Float ignored -> TokenType.FLOAT;
+            case Double ignored -> TokenType.DOUBLE;
+            default -> TokenType.STRING;
+        };
+        var pos = original.pos();
+        var token = new Token(tokenType, pos == null ? 0 : pos.line(), pos == null ? 0 : pos.col(), String.valueOf(value));
+        var literal = new LiteralExpression(pos, token);
+        literal.setRealType(value instanceof Boolean ? BuiltInType.BOOLEAN : type);
+        return literal;
+    }
+}
@@ -0,0 +1,417 @@
+package com.kingmang.ixion.optimizer;
+
+import com.kingmang.ixion.Visitor;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.*;
+import com.kingmang.ixion.lexer.TokenType;
+import com.kingmang.ixion.parser.Node;
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.runtime.DefType;
+import com.kingmang.ixion.runtime.GenericType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Replaces calls of small functions by their bodies, including functions imported from other modules
+ * A function is inlined when its body is a single return of an expression of at most {@link #BUDGET} nodes
+ * that only reads its parameters, so inlined code never calls and the substitution never recurses
+ * Arguments are substituted for the parameters as long as the order and count of their evaluations cannot be observed
+ */
+public class Inliner implements Visitor<Optional<Node>>, Pass {
+    /**
+     * Largest number of nodes in the expression of an inlined function
+     */
+    public static final int BUDGET = 12;
+
+    private final ConstantFolder folder = new ConstantFolder();
+    private IxFile source;
+
+    @Override
+    public String name() {
+        return "inline";
+    }
+
+    @Override
+    public int level() {
+        return 2;
+    }
+
+    @Override
+    public void run(IxFile source) {
+        this.source = source;
+        for (var statement : source.statements) {
+            statement.accept(this);
+        }
+        this.source = null;
+    }
+
+    /**
+     * @param source The file calling the function
+     * @param type A function type
+     * @return The expression the function returns if its calls are inlined, null otherwise
+     */
+    public static Expression inlinableBody(IxFile source, DefType type) {
+        if (type.glue || type.hasGenerics() || type.name.equals("main")) return null;
+        var declaration = declaration(type.external != null ? type.external : source, type.name);
+        if (declaration == null || declaration.body.statements.size() != 1
+                || !(declaration.body.statements.getFirst() instanceof ReturnStatement ret)
+                || ret.expression == null || ret.expression instanceof EmptyExpression) {
+            return null;
+        }
+        var parameters = new HashSet<String>();
+        for (var parameter : type.parameters) {
+            if (parameter.getValue1() instanceof GenericType || parameter.getValue1() instanceof DefType) return null;
+            parameters.add(parameter.getValue0());
+        }
+        int size = size(ret.expression, parameters);
+        return size > 0 && size <= BUDGET ? ret.expression : null;
+    }
+
+    private static DefStatement declaration(IxFile file, String name) {
+        for (var statement : file.statements) {
+            if (statement instanceof ExportStatement export) statement = export.stmt;
+            if (statement instanceof DefStatement def && def.name.source().equals(name)) return def;
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of nodes of an expression, or -1 if it is not made only of operators, field reads and parameters
+     */
+    private static int size(Expression expression, Set<String> parameters) {
+        int size = switch (expression) {
+            case LiteralExpression ignored -> 0;
+            case IdentifierExpression identifier -> parameters.contains(identifier.identifier.source()) ? 0 : -1;
+            case GroupingExpression grouping -> size(grouping.expression, parameters);
+            case PrefixExpression prefix -> size(prefix.right, parameters);
+            case PropertyAccessExpression access -> size(access.expression, parameters);
+            case BinaryExpression binary -> {
+                int left = size(binary.left, parameters);
+                int right = size(binary.right, parameters);
+                yield left < 0 || right < 0 ? -1 : left + right;
+            }
+            default -> -1;
+        };
+        return size < 0 ? -1 : size + 1;
+    }
+
+    /**
+     * @return The call with inlined arguments, or the body of the called function with the arguments substituted
+     */
+    private Expression inline(CallExpression call) {
+        call.arguments.replaceAll(this::inline);
+        if (call.intrinsic != null || call.specialization != null || !(call.item.getRealType() instanceof DefType callType)) {
+            return call;
+        }
+        var body = inlinableBody(source, callType);
+        if (body == null || !Objects.equals(body.getRealType(), call.getRealType())
+                || callType.parameters.size() != call.arguments.size()) {
+            return call;
+        }
+
+        var arguments = new HashMap<String, Expression>();
+        for (int i = 0; i < call.arguments.size(); i++) {
+            var parameter = callType.parameters.get(i);
+            var argument = call.arguments.get(i);
+            if (!Objects.equals(argument.getRealType(), parameter.getValue1())) return call;
+            // an argument is evaluated once and before the body, unless it has no effect and is read at most once
+            boolean copyable = argument instanceof LiteralExpression || argument instanceof IdentifierExpression;
+            if (!copyable && (!isPure(argument) || uses(body, parameter.getValue0()) > 1)) return call;
+            arguments.put(parameter.getValue0(), argument);
+        }
+        var inlined = substitute(body, arguments, call);
+        return fold(inlined instanceof BinaryExpression ? group(inlined, call) : inlined);
+    }
+
+    /**
+     * @return Whether evaluating the expression has no effect and cannot fail
+     */
+    private static boolean isPure(Expression expression) {
+        return switch (expression) {
+            case LiteralExpression ignored -> true;
+            case IdentifierExpression ignored -> true;
+            case GroupingExpression grouping -> isPure(grouping.expression);
+            case PrefixExpression prefix -> isPure(prefix.right);
+            case PropertyAccessExpression access -> isPure(access.expression);
+            case BinaryExpression binary -> {
+                var operator = binary.operator.type();
+                boolean divides = operator == TokenType.DIV || operator == TokenType.MOD;
+                yield !(divides && binary.getRealType() == BuiltInType.INT) && isPure(binary.left) && isPure(binary.right);
+            }
+            default -> false;
+        };
+    }
+
+    private static int uses(Expression expression, String parameter) {
+        return switch (expression) {
+            case IdentifierExpression identifier -> identifier.identifier.source().equals(parameter) ? 1 : 0;
+            case GroupingExpression grouping -> uses(grouping.expression, parameter);
+            case PrefixExpression prefix -> uses(prefix.right, parameter);
+            case PropertyAccessExpression access -> uses(access.expression, parameter);
+            case BinaryExpression binary -> uses(binary.left, parameter) + uses(binary.right, parameter);
+            default -> 0;
+        };
+    }
+
+    /**
+     * Copies the body of a function for a call site, with the arguments in place of the parameters
+     * The copies keep the types the type checker gave the body and take the position of the call
+     */
+    private static Expression substitute(Expression expression, Map<String, Expression> arguments, CallExpression call) {
+        var pos = call.pos();
+        Expression copy = switch (expression) {
+            case IdentifierExpression identifier -> {
+                var argument = arguments.get(identifier.identifier.source());
+                yield switch (argument) {
+                    case LiteralExpression literal -> typed(new LiteralExpression(literal.pos(), literal.literal), literal);
+                    case IdentifierExpression name -> typed(new IdentifierExpression(name.pos(), name.identifier), name);
+                    case GroupingExpression grouping -> grouping;
+                    default -> group(argument, call);
+                };
+            }
+            case LiteralExpression literal -> new LiteralExpression(pos, literal.literal);
+            case GroupingExpression grouping -> new GroupingExpression(pos, substitute(grouping.expression, arguments, call));
+            case PrefixExpression prefix -> new PrefixExpression(pos, prefix.operator, substitute(prefix.right, arguments, call));
+            case PropertyAccessExpression access -> {
+                var result = new PropertyAccessExpression(pos, substitute(access.expression, arguments, call), access.identifiers);
+                result.typeChain = access.typeChain;
+                yield result;
+            }
+            case BinaryExpression binary -> new BinaryExpression(pos, substitute(binary.left, arguments, call),
+                    binary.operator, substitute(binary.right, arguments, call));
+            default -> throw new IllegalStateException("Cannot inline " + expression);
+        };
+        return expression instanceof IdentifierExpression ? copy : typed(copy, expression);
+    }
+
+    private static Expression typed(Expression expression, Expression original) {
+        expression.setRealType(original.getRealType());
+        return expression;
+    }
+
+    private static Expression group(Expression expression, CallExpression call) {
+        return typed(new GroupingExpression(call.pos(), expression), expression);
+    }
+
+    private Expression fold(Expression expression) {
+        return (Expression) expression.accept(folder).orElse(expression);
+    }
+
+    private Expression inline(Expression expression) {
+        if (expression == null) return null;
+        return (Expression) expression.accept(this).orElse(expression);
+    }
+
+    @Override
+    public Optional<Node> visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public Optional<Node> visitTypeAlias(TypeAliasStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitBlockStmt(BlockStatement statement) {
+        statement.statements.forEach(s -> s.accept(this));
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitEnum(EnumStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitExport(ExportStatement statement) {
+        statement.stmt.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitExpressionStmt(ExpressionStatement statement) {
+        statement.expression = inline(statement.expression);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitFor(ForStatement statement) {
+        statement.expression = inline(statement.expression);
+        statement.block.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitFunctionStmt(DefStatement statement) {
+        statement.body.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitIf(IfStatement statement) {
+        statement.condition = inline(statement.condition);
+        statement.trueBlock.accept(this);
+        if (statement.falseStatement != null) statement.falseStatement.accept(this);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitUse(UseStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitMatch(CaseStatement statement) {
+        statement.expression = inline(statement.expression);
+        for (var arm : statement.cases.values()) {
+            arm.getValue1().accept(this);
+        }
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitParameterStmt(ParameterStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitReturnStmt(ReturnStatement statement) {
+        statement.expression = inline(statement.expression);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitStruct(StructStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitTypeAlias(TypeStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitUnionType(UnionTypeStatement statement) {
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitVariable(VariableStatement statement) {
+        statement.expression = inline(statement.expression);
+        return Optional.of(statement);
+    }
+
+    @Override
+    public Optional<Node> visitWhile(WhileStatement statement) {
+        statement.condition = inline(statement.condition);
+        statement.block.accept(this);
+        return Optional.of(statement);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitAssignExpr(AssignExpression expr) {
+        expr.right = inline(expr.right);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitBad(BadExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitBinaryExpr(BinaryExpression expr) {
+        expr.left = inline(expr.left);
+        expr.right = inline(expr.right);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitCall(CallExpression expr) {
+        return Optional.of(inline(expr));
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitEmpty(EmptyExpression empty) {
+        return Optional.of(empty);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitEmptyList(EmptyListExpression emptyList) {
+        return Optional.of(emptyList);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitGroupingExpr(GroupingExpression expr) {
+        expr.expression = inline(expr.expression);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitIdentifierExpr(IdentifierExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitIndexAccess(IndexAccessExpression expr) {
+        expr.left = inline(expr.left);
+        expr.right = inline(expr.right);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitLiteralExpr(LiteralExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitLiteralList(LiteralListExpression expr) {
+        expr.entries.replaceAll(this::inline);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitModuleAccess(ModuleAccessExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitPostfixExpr(PostfixExpression expr) {
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitPrefix(PrefixExpression expr) {
+        expr.right = inline(expr.right);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitPropertyAccess(PropertyAccessExpression expr) {
+        expr.expression = inline(expr.expression);
+        return Optional.of(expr);
+    }
+
+    @NotNull
+    @Override
+    public Optional<Node> visitLambda(@NotNull LambdaExpression expression) {
+        return Optional.of(expression);
+    }
+}
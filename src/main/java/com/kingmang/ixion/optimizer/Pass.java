@@ -0,0 +1,25 @@
+package com.kingmang.ixion.optimizer;
+
+import com.kingmang.ixion.api.IxFile;
+
+/**
+ * A transformation of the typed AST that runs between type checking and code generation
+ * Passes rewrite the file in place and may run on several files at once, so they keep no state between runs
+ */
+public interface Pass {
+
+    /**
+     * @return The name the pass is selected by on the command line
+     */
+    String name();
+
+    /**
+     * @return The lowest optimization level the pass runs at
+     */
+    int level();
+
+    /**
+     * @param source A type checked file without errors
+     */
+    void run(IxFile source);
+}
@@ -0,0 +1,82 @@
+package com.kingmang.ixion.optimizer;
+
+import com.kingmang.ixion.api.CompilerOptions;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ir.IrLowering;
+import com.kingmang.ixion.ir.IrOptimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the passes enabled by the optimization level over type checked files, in the order they were registered
+ * Each pass can be timed and the AST printed after it, both reported on standard error
+ */
+public class PassManager {
+    public static final String ALL = "all";
+    /**
+     * Name the AST is dumped under before any pass runs
+     */
+    public static final String CHECK = "check";
+
+    private final CompilerOptions options;
+
+    /**
+     * @param options The options holding the passes, the optimization level and what to report
+     */
+    public PassManager(CompilerOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * @return The passes of the standard pipeline, from the cheapest to the most aggressive
+     */
+    public static List<Pass> defaultPasses() {
+        var passes = new ArrayList<Pass>();
+        passes.add(new ConstantFolder());
+        passes.add(new Inliner());
+        passes.add(new IrLowering());
+        passes.add(new IrOptimizer());
+        return passes;
+    }
+
+    /**
+     * @return The registered passes that run at the current optimization level
+     */
+    public List<Pass> enabled() {
+        return options.passes.stream().filter(pass -> pass.level() <= options.optimizationLevel).toList();
+    }
+
+    /**
+     * @return The names of the enabled passes, which identify what a file was compiled with
+     */
+    public String pipeline() {
+        return String.join(",", enabled().stream().map(Pass::name).toList());
+    }
+
+    /**
+     * @param source A type checked file without errors
+     */
+    public void run(IxFile source) {
+        dump(source, CHECK);
+        for (var pass : enabled()) {
+            long start = System.nanoTime();
+            pass.run(source);
+            long elapsed = System.nanoTime() - start;
+
+            if (options.timePasses) {
+                System.err.printf(Locale.ROOT, "%-10s %-24s %8.3f ms%n", pass.name(), source.file.getName(), elapsed / 1e6);
+            }
+            dump(source, pass.name());
+        }
+        source.pipeline = pipeline();
+    }
+
+    private void dump(IxFile source, String after) {
+        if (options.dumpAfter.contains(after) || options.dumpAfter.contains(ALL)) {
+            System.err.println("// " + source.file.getName() + " after " + after);
+            System.err.print(AstPrinter.print(source));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.kingmang.ixion.ast.*;
 import com.kingmang.ixion.lexer.LexerImpl;
 import com.kingmang.ixion.lexer.Position;
 import com.kingmang.ixion.lexer.Token;
+import com.kingmang.ixion.lexer.TokenStream;
 import com.kingmang.ixion.lexer.TokenType;
 import com.kingmang.ixion.parser.infix.*;
 import com.kingmang.ixion.parser.prefix.*;
@@ -22,17 +23,16 @@ import static com.kingmang.ixion.lexer.TokenType.*;
 
 public class Parser {
 
-    final Map<TokenType, PrefixParselet> prefixParselets = new HashMap<>();
-    final Map<TokenType, InfixParselet> infixParselets = new HashMap<>();
-    private final LexerImpl tokens;
-    private final List<Token> mRead = new ArrayList<>();
+    final PrefixParselet[] prefixParselets = new PrefixParselet[TokenType.values().length];
+    final InfixParselet[] infixParselets = new InfixParselet[TokenType.values().length];
+    private final TokenStream tokens;
 
     /**
      * Constructor for Parser
      * @param tokens The lexer providing tokens to parse
      */
     public Parser(LexerImpl tokens) {
-        this.tokens = tokens;
+        this.tokens = new TokenStream(tokens);
 
         // Register infix parsers for operators and accessors
         putInfinix(ASSIGN, new AssignOperatorParser());
@@ -120,7 +120,7 @@ public class Parser {
      */
     public Expression expression(int precedence) {
         Token token = consume();
-        PrefixParselet prefix = prefixParselets.get(token.type());
+        PrefixParselet prefix = prefixParselets[token.type().ordinal()];
 
         if (prefix == null) {
             error(token, "Could not parse.");
@@ -131,7 +131,7 @@ public class Parser {
 
         while (precedence < getPrecedence()) {
             token = consume();
-            InfixParselet infix = infixParselets.get(token.type());
+            InfixParselet infix = infixParselets[token.type().ordinal()];
             left = infix.parse(this, left, token);
         }
 
@@ -162,7 +162,7 @@ public class Parser {
     private Statement parseTypeAlias() {
         var pos = getPos();
         Token name = consume(IDENTIFIER, "Expected type name.");
-        consume(ASSIGN, "Expected assignment operator.");
+        expect(ASSIGN, "Expected assignment operator.");
 
         if(match(STRUCT)){
             var generics = new ArrayList<Token>();
@@ -170,14 +170,14 @@ public class Parser {
                 var t = consume();
                 generics.add(t);
                 while (check(COMMA)) {
-                    consume();
+                    skip();
                     t = consume();
                     generics.add(t);
                 }
-                consume(RBRACK, "Expected closing bracket after struct generics.");
+                expect(RBRACK, "Expected closing bracket after struct generics.");
             }
 
-            consume(LBRACE, "Expected opening curly braces before struct body.");
+            expect(LBRACE, "Expected opening curly braces before struct body.");
 
             List<ParameterStatement> parameters = new ArrayList<>();
             while (!check(RBRACE)) {
@@ -186,11 +186,11 @@ public class Parser {
                 parameters.add(parameter);
             }
 
-            consume(RBRACE, "Expected closing curly braces after struct body.");
+            expect(RBRACE, "Expected closing curly braces after struct body.");
 
             return new StructStatement(pos, name, parameters, generics);
         }else if(match(ENUM)){
-            consume(LBRACE, "Expected opening curly braces before struct body.");
+            expect(LBRACE, "Expected opening curly braces before struct body.");
 
             List<Token> values = new ArrayList<>();
             while (!check(RBRACE)) {
@@ -199,7 +199,7 @@ public class Parser {
                 values.add(value);
             }
 
-            consume(RBRACE, "Expected opening curly braces before struct body.");
+            expect(RBRACE, "Expected opening curly braces before struct body.");
 
             return new EnumStatement(pos, name, values);
         }
@@ -215,13 +215,13 @@ public class Parser {
     private BlockStatement parseBlock() {
         var pos = getPos();
         List<Statement> statements = new ArrayList<>();
-        consume(LBRACE, "Expect '{' before block.");
+        expect(LBRACE, "Expect '{' before block.");
 
         while (!check(RBRACE) && notAtEnd()) {
             statements.add(statement());
         }
 
-        consume(RBRACE, "Expect '}' after block.");
+        expect(RBRACE, "Expect '}' after block.");
         return new BlockStatement(pos, statements, new Context());
     }
 
@@ -243,7 +243,7 @@ public class Parser {
                     parameters.add(parseParameter());
                 } while (match(COMMA));
             }
-            consume(RPAREN, "Expected closing parentheses after lambda parameters.");
+            expect(RPAREN, "Expected closing parentheses after lambda parameters.");
         } else {
             // Single parameter without parentheses
             Token name = consume(IDENTIFIER, "Expected parameter name or parentheses.");
@@ -291,14 +291,14 @@ public class Parser {
             var t = consume();
             generics.add(t);
             while (check(COMMA)) {
-                consume();
+                skip();
                 t = consume();
                 generics.add(t);
             }
-            consume(RBRACK, "Expected closing bracket after function generics.");
+            expect(RBRACK, "Expected closing bracket after function generics.");
         }
 
-        consume(LPAREN, "Expected opening parentheses after function name.");
+        expect(LPAREN, "Expected opening parentheses after function name.");
 
         List<ParameterStatement> parameters = new ArrayList<>();
         if (!check(RPAREN)) {
@@ -307,7 +307,7 @@ public class Parser {
             } while (match(COMMA));
         }
 
-        consume(RPAREN, "Expected closing parentheses after function parameters.");
+        expect(RPAREN, "Expected closing parentheses after function parameters.");
 
         TypeStatement returnType = null;
         if (match(COLON)) {
@@ -372,7 +372,7 @@ public class Parser {
             first = false;
         }
 
-        consume(GT, "Expected '>' at the end of import path");
+        expect(GT, "Expected '>' at the end of import path");
 
         Optional<Token> id = Optional.empty();
         Token useToken = new Token(STRING, pos.line(), pos.col(), usePath.toString());
@@ -388,25 +388,25 @@ public class Parser {
 
         var expr = expression();
 
-        consume(LBRACE, "Expected opening curly braces before case body.");
+        expect(LBRACE, "Expected opening curly braces before case body.");
         Map<TypeStatement, Pair<String, BlockStatement>> cases = new HashMap<>();
 
         while (!check(RBRACE)) {
             var type = parseUnion();
             var s = consume(IDENTIFIER, "Expected name for reified value before `=>` in case statement.");
 
-            consume(ARROW, "Expected `=>` after type before expression in case statement.");
+            expect(ARROW, "Expected `=>` after type before expression in case statement.");
             BlockStatement caseBody;
             if (check(LBRACE)) {
                 caseBody = parseBlock();
             } else {
                 var stmt = new ExpressionStatement(getPos(), expression());
-                caseBody = new BlockStatement(getPos(), List.of(stmt), new Context());
+                caseBody = new BlockStatement(getPos(), new ArrayList<>(List.of(stmt)), new Context());
             }
             cases.put(type, new Pair<>(s.source(), caseBody));
         }
 
-        consume(RBRACE, "Expected closing curly braces after case body.");
+        expect(RBRACE, "Expected closing curly braces after case body.");
 
         return new CaseStatement(pos, expr, cases);
     }
@@ -418,7 +418,7 @@ public class Parser {
     private ParameterStatement parseParameter() {
         var pos = getPos();
         Token name = consume(IDENTIFIER, "Expected field name.");
-        consume(COLON, "Expected colon after parameter name.");
+        expect(COLON, "Expected colon after parameter name.");
         TypeStatement type = parseUnion();
         return new ParameterStatement(pos, name, type);
     }
@@ -426,7 +426,7 @@ public class Parser {
     private ForStatement parseFor() {
         var pos = getPos();
         Token name = consume(IDENTIFIER, "Need iterator variable name.");
-        consume(COLON, "Expected ':' operator.");
+        expect(COLON, "Expected ':' operator.");
         Expression condition = expression();
         BlockStatement block = parseBlock();
         return new ForStatement(pos, name, condition, block);
@@ -502,7 +502,7 @@ public class Parser {
         boolean listType = false;
         if (match(LBRACK)) {
             listType = true;
-            consume(RBRACK, "Expected ']' in list type.");
+            expect(RBRACK, "Expected ']' in list type.");
         }
 
         Optional<TypeStatement> t = Optional.empty();
@@ -543,7 +543,7 @@ public class Parser {
         var pos = getPos();
         Token mutability = consume();
         Token name = consume(IDENTIFIER, "Expected variable name.");
-        consume(ASSIGN, "Expected assignment operator.");
+        expect(ASSIGN, "Expected assignment operator.");
         Expression expression = expression();
         return new VariableStatement(pos, mutability, name, expression, Optional.empty());
     }
@@ -554,8 +554,14 @@ public class Parser {
      * @return The consumed token
      */
     public Token consume() {
-        lookAhead();
-        return mRead.removeFirst();
+        return tokens.next();
+    }
+
+    /**
+     * Consumes the current token when its value is not needed
+     */
+    public void skip() {
+        tokens.skip();
     }
 
     /**
@@ -570,6 +576,16 @@ public class Parser {
         return null;
     }
 
+    /**
+     * Consumes a token of expected type without keeping it, or reports error
+     * @param type The expected token type
+     * @param message Error message if type doesn't match
+     */
+    public void expect(TokenType type, String message) {
+        if (check(type)) skip();
+        else error(peek(), message);
+    }
+
     /**
      * Registers a left-associative infix operator
      * @param token The operator token type
@@ -593,7 +609,7 @@ public class Parser {
      * @return The current position
      */
     public Position getPos() {
-        return new Position(tokens.line, tokens.col);
+        return new Position(tokens.line(), tokens.col());
     }
 
     /**
@@ -619,8 +635,8 @@ public class Parser {
      * @param type The token type to check
      * @return True if current token matches the type
      */
-    boolean check(TokenType type) {
-        return peek().type() == type;
+    public boolean check(TokenType type) {
+        return tokens.type(0) == type;
     }
 
 
@@ -653,7 +669,7 @@ public class Parser {
      * @return The precedence value
      */
     int getPrecedence() {
-        InfixParselet parser = infixParselets.get(lookAhead().type());
+        InfixParselet parser = infixParselets[tokens.type(0).ordinal()];
         if (parser != null) return parser.precedence();
         return 0;
     }
@@ -664,10 +680,7 @@ public class Parser {
      * @return The token at the specified distance
      */
     Token lookAhead(int distance) {
-        while (mRead.size() <= distance) {
-            mRead.add(tokens.tokenize());
-        }
-        return mRead.get(distance);
+        return tokens.token(distance);
     }
 
     /**
@@ -675,10 +688,7 @@ public class Parser {
      * @return The next token
      */
     Token lookAhead() {
-        while (mRead.isEmpty()) {
-            mRead.add(tokens.tokenize());
-        }
-        return mRead.getFirst();
+        return tokens.token(0);
     }
 
     /**
@@ -686,7 +696,7 @@ public class Parser {
      * @return True if not at end of input
      */
     boolean notAtEnd() {
-        return peek().type() != EOF;
+        return tokens.type(0) != EOF;
     }
 
     /**
@@ -694,7 +704,7 @@ public class Parser {
      * @param type The token type to optionally consume
      */
     public void optional(TokenType type) {
-        if (check(type)) consume();
+        if (check(type)) skip();
     }
 
     /**
@@ -711,7 +721,7 @@ public class Parser {
      * @param parselet The infix parselet
      */
     void putInfinix(TokenType token, InfixParselet parselet) {
-        infixParselets.put(token, parselet);
+        infixParselets[token.ordinal()] = parselet;
     }
 
     /**
@@ -720,7 +730,7 @@ public class Parser {
      * @param parselet The prefix parselet
      */
     void putPrefix(TokenType token, PrefixParselet parselet) {
-        prefixParselets.put(token, parselet);
+        prefixParselets[token.ordinal()] = parselet;
     }
 
     /**
@@ -729,11 +739,10 @@ public class Parser {
      * @return True if token was matched and consumed
      */
     public boolean match(TokenType expected) {
-        Token token = lookAhead();
-        if (token.type() != expected) {
+        if (tokens.type(0) != expected) {
             return false;
         }
-        consume();
+        skip();
         return true;
     }
 }
\ No newline at end of file
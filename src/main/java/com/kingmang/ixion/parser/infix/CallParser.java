@@ -20,7 +20,7 @@ public record CallParser() implements InfixParselet {
                 args.add(parser.expression());
             } while (parser.match(TokenType.COMMA));
             parser.optional(TokenType.COMMA);
-            parser.consume(TokenType.RPAREN, "Expected closing ')' after function call.");
+            parser.expect(TokenType.RPAREN, "Expected closing ')' after function call.");
         }
         return new CallExpression(pos, left, args);
     }
@@ -14,7 +14,7 @@ public record IndexAccessParser() implements InfixParselet {
     public Expression parse(Parser parser, Expression left, Token token) {
         var pos = parser.getPos();
         Expression right = parser.expression(precedence());
-        parser.consume(TokenType.RBRACK, "Expected ']' after index access.");
+        parser.expect(TokenType.RBRACK, "Expected ']' after index access.");
 
         var arguments = new ArrayList<Expression>();
         if (left instanceof IdentifierExpression id) {
@@ -20,9 +20,9 @@ public record PropertyAccessParser() implements InfixParselet {
 
         var i = parser.consume();
         identifiers.add(new IdentifierExpression(parser.getPos(), i));
-        while (parser.peek().type() == TokenType.DOT) {
-            parser.consume();
-            if (parser.peek().type() == TokenType.IDENTIFIER) {
+        while (parser.check(TokenType.DOT)) {
+            parser.skip();
+            if (parser.check(TokenType.IDENTIFIER)) {
                 i = parser.consume();
                 identifiers.add(new IdentifierExpression(parser.getPos(), i));
             }
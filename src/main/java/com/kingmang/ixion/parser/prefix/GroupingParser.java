@@ -10,7 +10,7 @@ public record GroupingParser() implements PrefixParselet {
     public Expression parse(Parser parser, Token token) {
         var pos = parser.getPos();
         Expression expression = parser.expression();
-        parser.consume(TokenType.RPAREN, "Expected opening parentheses.");
+        parser.expect(TokenType.RPAREN, "Expected opening parentheses.");
         return new GroupingExpression(pos, expression);
     }
 }
\ No newline at end of file
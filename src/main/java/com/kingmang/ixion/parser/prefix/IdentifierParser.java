@@ -16,9 +16,9 @@ public record IdentifierParser() implements PrefixParselet {
             token = new Token(TokenType.IDENTIFIER, pos.line(), pos.col(), token.source() + "::" + nextToken.source());
         }
 
-        if (parser.peek().type() == TokenType.LBRACK) {
-            parser.consume();
-            parser.consume(TokenType.RBRACK, "Expect ']' to close list constructor.");
+        if (parser.check(TokenType.LBRACK)) {
+            parser.skip();
+            parser.expect(TokenType.RBRACK, "Expect ']' to close list constructor.");
             return new EmptyListExpression(pos, token);
         }
         return new IdentifierExpression(pos, token);
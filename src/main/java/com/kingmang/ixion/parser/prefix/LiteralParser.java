@@ -20,7 +20,7 @@ public record LiteralParser(boolean isList) implements PrefixParselet {
                     args.add(parser.expression());
                 } while (parser.match(TokenType.COMMA));
                 parser.optional(TokenType.COMMA);
-                parser.consume(TokenType.RBRACK, "Expected closing ']' after list literal.");
+                parser.expect(TokenType.RBRACK, "Expected closing ']' after list literal.");
             }
             return new LiteralListExpression(pos, args);
         }
@@ -0,0 +1,89 @@
+package com.kingmang.ixion.runner;
+
+import com.kingmang.ixion.api.CompiledProgram;
+import com.kingmang.ixion.exception.Panic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs compiled programs inside the compiler's own JVM
+ * Output is captured through {@link #capture} instead of scraping the stdout of a child process
+ */
+public class InProcessRunner {
+
+    /**
+     * Runs a program, writing its output to the current standard output
+     * @param program The program to run
+     * @param args Arguments passed to `main`
+     * @return The exit code of the program
+     */
+    public int execute(CompiledProgram program, String... args) {
+        synchronized (InProcessRunner.class) {
+            return invokeMain(program, args);
+        }
+    }
+
+    /**
+     * Runs a program and collects everything it prints
+     * @param program The program to run
+     * @param args Arguments passed to `main`
+     * @return The captured output and exit code
+     */
+    public ExecutionResult capture(CompiledProgram program, String... args) {
+        var buffer = new ByteArrayOutputStream();
+        synchronized (InProcessRunner.class) {
+            PrintStream originalOut = System.out;
+            System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+            try {
+                int exitCode = invokeMain(program, args);
+                return new ExecutionResult(buffer.toString(StandardCharsets.UTF_8), exitCode);
+            } finally {
+                System.out.flush();
+                System.setOut(originalOut);
+            }
+        }
+    }
+
+    private int invokeMain(CompiledProgram program, String[] args) {
+        var previousHandler = Panic.exitHandler;
+        Panic.exitHandler = code -> {
+            throw new ProgramExit(code);
+        };
+        try {
+            var loader = new MemoryClassLoader(program.classes(), InProcessRunner.class.getClassLoader());
+            var main = loader.loadClass(program.mainClass()).getMethod("main", String[].class);
+            main.invoke(null, (Object) args);
+            return 0;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ProgramExit exit) {
+                return exit.code;
+            }
+            e.getCause().printStackTrace();
+            return 1;
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+            return 1;
+        } finally {
+            Panic.exitHandler = previousHandler;
+        }
+    }
+
+    /**
+     * Output of a program run in-process
+     * @param output Everything the program printed to standard output
+     * @param exitCode The exit code, non-zero after a panic or an uncaught exception
+     */
+    public record ExecutionResult(String output, int exitCode) {}
+
+    private static final class ProgramExit extends RuntimeException {
+        private final int code;
+
+        ProgramExit(int code) {
+            super(null, null, false, false);
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.kingmang.ixion.runner;
+
+import java.util.Map;
+
+/**
+ * Class loader that defines classes from class file bytes held in memory
+ * Every loaded program gets its own loader, so repeated runs never see stale classes
+ */
+public class MemoryClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classes;
+
+    /**
+     * @param classes Map of binary class names to class file bytes
+     * @param parent The loader providing the runtime (prelude, collections)
+     */
+    public MemoryClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+        super(parent);
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
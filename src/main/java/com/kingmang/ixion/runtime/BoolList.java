@@ -0,0 +1,115 @@
+package com.kingmang.ixion.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of {@code boolean} values backed by a {@code boolean[]}
+ * Ixion {@code bool[]} lists compile to it, using the {@code Bool} methods so elements are never boxed
+ * It still is a {@code List<Boolean>} for code that only knows about lists
+ */
+public final class BoolList extends AbstractList<Boolean> implements RandomAccess {
+    private static final boolean[] EMPTY = {};
+
+    private boolean[] elements;
+    private int size;
+
+    public BoolList() {
+        this.elements = EMPTY;
+    }
+
+    /**
+     * @param capacity Number of elements the list holds before growing
+     */
+    public BoolList(int capacity) {
+        this.elements = capacity == 0 ? EMPTY : new boolean[capacity];
+    }
+
+    /**
+     * @param values The elements of the list
+     * @return A list holding a copy of the values
+     */
+    public static BoolList of(boolean... values) {
+        var list = new BoolList();
+        list.elements = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    public boolean getBool(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    public boolean setBool(int index, boolean value) {
+        Objects.checkIndex(index, size);
+        boolean previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addBool(boolean value) {
+        if (size == elements.length) grow();
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public boolean popBool() {
+        Objects.checkIndex(size - 1, size);
+        modCount++;
+        return elements[--size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Boolean get(int index) {
+        return getBool(index);
+    }
+
+    @Override
+    public Boolean set(int index, Boolean value) {
+        return setBool(index, value);
+    }
+
+    @Override
+    public boolean add(Boolean value) {
+        addBool(value);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Boolean value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == elements.length) grow();
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Boolean remove(int index) {
+        Objects.checkIndex(index, size);
+        boolean removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void grow() {
+        elements = Arrays.copyOf(elements, Math.max(8, elements.length + (elements.length >> 1)));
+    }
+}
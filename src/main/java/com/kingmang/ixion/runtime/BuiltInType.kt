@@ -135,6 +135,14 @@ enum class BuiltInType(
                 false
             )
 
+            BuiltInType.CHAR -> mv.visitMethodInsn(
+                Opcodes.INVOKESTATIC,
+                "java/lang/Character",
+                "valueOf",
+                "(C)Ljava/lang/Character;",
+                false
+            )
+
             BuiltInType.STRING -> {}
             BuiltInType.ANY -> {}
             else -> System.err.println("Boxing isn't supported for that type.")
@@ -154,8 +162,8 @@ enum class BuiltInType(
             }
 
             BuiltInType.FLOAT -> {
-                mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Integer")
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Integer", "floatValue", "()F", false)
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Float")
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Float", "floatValue", "()F", false)
             }
 
             BuiltInType.DOUBLE -> {
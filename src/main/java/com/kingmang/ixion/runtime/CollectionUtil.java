@@ -11,32 +11,27 @@ import java.util.stream.Stream;
 
 public class CollectionUtil {
 
-    public record IxListWrapper(ArrayList<?> list, String name) implements Iterable<Object>, Iterator<Object> {
-
-        private static int currentIndex = 0;
+    /**
+     * Named list handed to external functions
+     * Iteration goes through {@link IndexedCollection}, so each loop has its own cursor
+     */
+    public record IxListWrapper(ArrayList<?> list, String name) implements IndexedCollection<Object> {
 
         public IxListWrapper(String name) {
             this(new ArrayList<>(), name);
         }
 
-        @Nonnull
         @Override
-        public Iterator<Object> iterator() {
-            currentIndex = 0;
-            return this;
+        public int size() {
+            return list.size();
         }
 
         @Override
-        public boolean hasNext() {
-            return currentIndex < list.size();
-        }
-
-        @Override
-        public Object next() {
-            if (!hasNext()) {
+        public Object get(int index) {
+            if (index < 0 || index >= list.size()) {
                 new Panic("no such element").send();
             }
-            return list.get(currentIndex++);
+            return list.get(index);
         }
 
         @Override
@@ -44,8 +39,6 @@ public class CollectionUtil {
         public String toString() {
             return list.toString();
         }
-
-
     }
 
 
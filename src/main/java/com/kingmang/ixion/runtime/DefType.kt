@@ -59,6 +59,56 @@ class DefType : StructType {
         return p
     }
 
+    /**
+     * Records the instantiation of the generic function a call makes
+     * @param argumentTypes The types of the arguments of the call
+     * @return The canonical bindings of the generics, or null if the call goes through the erased function
+     */
+    @Synchronized
+    fun specialize(argumentTypes: List<IxType?>): MutableMap<String?, IxType?>? {
+        val bindings = bind(argumentTypes) ?: return null
+        return findSpecialization(bindings) ?: bindings.also { specializations.add(it) }
+    }
+
+    /**
+     * @param argumentTypes The types of the arguments of a call
+     * @return The recorded instantiation the call can use, or null if there is none
+     */
+    @Synchronized
+    fun specializationOf(argumentTypes: List<IxType?>): MutableMap<String?, IxType?>? {
+        return bind(argumentTypes)?.let { findSpecialization(it) }
+    }
+
+    /**
+     * @param specialization Bindings of the generics of the function
+     * @return The name of the method the instantiation compiles to, such as `max$int`
+     */
+    fun specializationName(specialization: Map<String?, IxType?>): String {
+        return name + "$" + MonomorphizedStruct.suffix(this, specialization)
+    }
+
+    private fun findSpecialization(bindings: Map<String?, IxType?>): MutableMap<String?, IxType?>? {
+        val name = specializationName(bindings)
+        return specializations.firstOrNull { specializationName(it!!) == name }
+    }
+
+    /**
+     * Binds every generic to the concrete type of the arguments it is used for
+     * Generics bound to different types, or to types unknown before code generation, leave the call erased
+     */
+    private fun bind(argumentTypes: List<IxType?>): MutableMap<String?, IxType?>? {
+        val bindings = HashMap<String?, IxType?>()
+        for (i in parameters.indices) {
+            val pt = parameters.get(i).getValue1()
+            if (pt is GenericType) {
+                val at = argumentTypes.getOrNull(i)
+                if (at == null || at is GenericType || at is UnknownType || at is DefType) return null
+                if (bindings.getOrPut(pt.key) { at } != at) return null
+            }
+        }
+        return if (bindings.keys.containsAll(generics)) bindings else null
+    }
+
     fun buildSpecialization(arguments: MutableList<Expression?>): MutableMap<String?, IxType?> {
         val argTypes = arguments.stream().map<IxType> { ex: Expression? -> ex!!.realType }.toList()
         val specialization = HashMap<String?, IxType?>()
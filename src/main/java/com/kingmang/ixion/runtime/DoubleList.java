@@ -0,0 +1,115 @@
+package com.kingmang.ixion.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of {@code double} values backed by a {@code double[]}
+ * Ixion {@code double[]} lists compile to it, using the {@code Double} methods so elements are never boxed
+ * It still is a {@code List<Double>} for code that only knows about lists
+ */
+public final class DoubleList extends AbstractList<Double> implements RandomAccess {
+    private static final double[] EMPTY = {};
+
+    private double[] elements;
+    private int size;
+
+    public DoubleList() {
+        this.elements = EMPTY;
+    }
+
+    /**
+     * @param capacity Number of elements the list holds before growing
+     */
+    public DoubleList(int capacity) {
+        this.elements = capacity == 0 ? EMPTY : new double[capacity];
+    }
+
+    /**
+     * @param values The elements of the list
+     * @return A list holding a copy of the values
+     */
+    public static DoubleList of(double... values) {
+        var list = new DoubleList();
+        list.elements = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    public double getDouble(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    public double setDouble(int index, double value) {
+        Objects.checkIndex(index, size);
+        double previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addDouble(double value) {
+        if (size == elements.length) grow();
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public double popDouble() {
+        Objects.checkIndex(size - 1, size);
+        modCount++;
+        return elements[--size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public Double set(int index, Double value) {
+        return setDouble(index, value);
+    }
+
+    @Override
+    public boolean add(Double value) {
+        addDouble(value);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Double value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == elements.length) grow();
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Double remove(int index) {
+        Objects.checkIndex(index, size);
+        double removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void grow() {
+        elements = Arrays.copyOf(elements, Math.max(8, elements.length + (elements.length >> 1)));
+    }
+}
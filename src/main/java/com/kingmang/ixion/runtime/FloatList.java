@@ -0,0 +1,115 @@
+package com.kingmang.ixion.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of {@code float} values backed by a {@code float[]}
+ * Ixion {@code float[]} lists compile to it, using the {@code Float} methods so elements are never boxed
+ * It still is a {@code List<Float>} for code that only knows about lists
+ */
+public final class FloatList extends AbstractList<Float> implements RandomAccess {
+    private static final float[] EMPTY = {};
+
+    private float[] elements;
+    private int size;
+
+    public FloatList() {
+        this.elements = EMPTY;
+    }
+
+    /**
+     * @param capacity Number of elements the list holds before growing
+     */
+    public FloatList(int capacity) {
+        this.elements = capacity == 0 ? EMPTY : new float[capacity];
+    }
+
+    /**
+     * @param values The elements of the list
+     * @return A list holding a copy of the values
+     */
+    public static FloatList of(float... values) {
+        var list = new FloatList();
+        list.elements = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    public float getFloat(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    public float setFloat(int index, float value) {
+        Objects.checkIndex(index, size);
+        float previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addFloat(float value) {
+        if (size == elements.length) grow();
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public float popFloat() {
+        Objects.checkIndex(size - 1, size);
+        modCount++;
+        return elements[--size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Float get(int index) {
+        return getFloat(index);
+    }
+
+    @Override
+    public Float set(int index, Float value) {
+        return setFloat(index, value);
+    }
+
+    @Override
+    public boolean add(Float value) {
+        addFloat(value);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Float value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == elements.length) grow();
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Float remove(int index) {
+        Objects.checkIndex(index, size);
+        float removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void grow() {
+        elements = Arrays.copyOf(elements, Math.max(8, elements.length + (elements.length >> 1)));
+    }
+}
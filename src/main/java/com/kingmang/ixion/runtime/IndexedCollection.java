@@ -0,0 +1,47 @@
+package com.kingmang.ixion.runtime;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Runtime collection that can be walked by position
+ * Compiled loops read it through {@link #size()} and {@link #get(int)} directly,
+ * every other caller gets its own cursor from {@link #iterator()}, so nested and concurrent iterations never share state
+ * @param <T> The element type
+ */
+public interface IndexedCollection<T> extends Iterable<T> {
+
+    int size();
+
+    T get(int index);
+
+    @Nonnull
+    @Override
+    default Iterator<T> iterator() {
+        return new Cursor<>(this);
+    }
+
+    /**
+     * Position of one iteration over an indexed collection
+     */
+    final class Cursor<T> implements Iterator<T> {
+        private final IndexedCollection<T> collection;
+        private int index = 0;
+
+        Cursor(IndexedCollection<T> collection) {
+            this.collection = collection;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < collection.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return collection.get(index++);
+        }
+    }
+}
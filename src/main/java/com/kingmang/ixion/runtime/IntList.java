@@ -0,0 +1,115 @@
+package com.kingmang.ixion.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of {@code int} values backed by a {@code int[]}
+ * Ixion {@code int[]} lists compile to it, using the {@code Int} methods so elements are never boxed
+ * It still is a {@code List<Integer>} for code that only knows about lists
+ */
+public final class IntList extends AbstractList<Integer> implements RandomAccess {
+    private static final int[] EMPTY = {};
+
+    private int[] elements;
+    private int size;
+
+    public IntList() {
+        this.elements = EMPTY;
+    }
+
+    /**
+     * @param capacity Number of elements the list holds before growing
+     */
+    public IntList(int capacity) {
+        this.elements = capacity == 0 ? EMPTY : new int[capacity];
+    }
+
+    /**
+     * @param values The elements of the list
+     * @return A list holding a copy of the values
+     */
+    public static IntList of(int... values) {
+        var list = new IntList();
+        list.elements = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    public int getInt(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    public int setInt(int index, int value) {
+        Objects.checkIndex(index, size);
+        int previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addInt(int value) {
+        if (size == elements.length) grow();
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public int popInt() {
+        Objects.checkIndex(size - 1, size);
+        modCount++;
+        return elements[--size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value) {
+        return setInt(index, value);
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        addInt(value);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == elements.length) grow();
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        Objects.checkIndex(index, size);
+        int removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void grow() {
+        elements = Arrays.copyOf(elements, Math.max(8, elements.length + (elements.length >> 1)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.kingmang.ixion.runtime;
+
+import javax.annotation.Nonnull;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Half-open range of ints, the value of {@code start..end} and {@code range(start, end)}
+ * Loops over a range compile to counted loops, so this object only exists when a range is stored or passed around
+ */
+public record IntRange(int start, int end) implements Iterable<Integer> {
+
+    public int size() {
+        return (int) Math.max(0, (long) end - start);
+    }
+
+    public boolean contains(int value) {
+        return value >= start && value < end;
+    }
+
+    @Nonnull
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int next = start;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return next++;
+            }
+        };
+    }
+
+    @Override
+    @Nonnull
+    public String toString() {
+        return start + ".." + end;
+    }
+}
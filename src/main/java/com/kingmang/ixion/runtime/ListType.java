@@ -1,6 +1,7 @@
 package com.kingmang.ixion.runtime;
 
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import java.util.Objects;
 
@@ -22,7 +23,7 @@ public record ListType(IxType contentType) implements IxType {
 
 	@Override
 	public String getDescriptor() {
-		return "Ljava/util/List;";
+		return Type.getDescriptor(getTypeClass());
 	}
 
 
@@ -51,7 +52,23 @@ public record ListType(IxType contentType) implements IxType {
 
 	@Override
 	public Class<?> getTypeClass() {
-		return java.util.List.class;
+		var primitiveList = primitiveList();
+		return primitiveList != null ? primitiveList : java.util.List.class;
+	}
+
+	/**
+	 * @return The unboxed list class storing the elements, or null when elements are stored as objects
+	 */
+	public Class<?> primitiveList() {
+		if (contentType instanceof UnionType ut && ut.isPacked()) return PackedUnionList.class;
+		if (!(contentType instanceof BuiltInType bt)) return null;
+		return switch (bt) {
+			case INT -> IntList.class;
+			case FLOAT -> FloatList.class;
+			case DOUBLE -> DoubleList.class;
+			case BOOLEAN -> BoolList.class;
+			default -> null;
+		};
 	}
 
 	@Override
@@ -1,64 +1,96 @@
 package com.kingmang.ixion.runtime;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class MonomorphizedStruct implements IxType {
+/**
+ * Instantiation of a generic struct with concrete types for its generics
+ * It compiles to its own subclass of the generic struct, named after the bindings as in {@code generic$int},
+ * whose fields have the concrete types so numbers are stored unboxed
+ * Instances are canonical per struct and bindings, see {@link StructType#specialize(Map)}
+ */
+public class MonomorphizedStruct extends StructType {
 	public final StructType struct;
-	public final Map<String, IxType> resolved = new HashMap<>();
+	public final Map<String, IxType> resolved;
 
-	public MonomorphizedStruct(StructType struct) {
+	MonomorphizedStruct(StructType struct, Map<String, IxType> resolved) {
+		super(struct.name + "$" + suffix(struct, resolved), new ArrayList<>(), List.of());
 		this.struct = struct;
+		this.resolved = new LinkedHashMap<>(resolved);
+		this.qualifiedName = struct.qualifiedName + "$" + suffix(struct, resolved);
+		this.parentName = struct.parentName;
+		for (var parameter : struct.parameters) {
+			parameters.add(parameter.setAt1(substitute(parameter.getValue1(), resolved)));
+		}
 	}
 
-	@Override
-	public Object getDefaultValue() {
-		return struct.getDefaultValue();
+	/**
+	 * @param type A field type of a generic struct
+	 * @return Whether the type mentions a generic, so the field lives in the specializations
+	 */
+	public static boolean dependsOnGenerics(IxType type) {
+		return switch (type) {
+			case GenericType ignored -> true;
+			case ListType lt -> lt.contentType() != null && dependsOnGenerics(lt.contentType());
+			case null, default -> false;
+		};
 	}
 
-	@Override
-	public String getDescriptor() {
-		return struct.getDescriptor();
+	/**
+	 * @param type A type that may mention generics
+	 * @param resolved Concrete types of the generics, missing ones are bound to any
+	 * @return The type with its generics replaced
+	 */
+	public static IxType substitute(IxType type, Map<String, IxType> resolved) {
+		return switch (type) {
+			case GenericType gt -> resolved.getOrDefault(gt.key(), BuiltInType.ANY);
+			case ListType lt when dependsOnGenerics(lt) -> new ListType(substitute(lt.contentType(), resolved));
+			case null, default -> type;
+		};
 	}
 
-	@Override
-	public String getInternalName() {
-		return struct.getInternalName();
+	static String suffix(StructType struct, Map<String, IxType> resolved) {
+		return struct.generics.stream()
+				.map(g -> identifier(resolved.getOrDefault(g, BuiltInType.ANY)))
+				.collect(Collectors.joining("$"));
 	}
 
-	@Override
-	public int getLoadVariableOpcode() {
-		return struct.getLoadVariableOpcode();
-	}
-
-	@Override
-	public String getName() {
-		return struct.getName();
+	private static String identifier(IxType type) {
+		return switch (type) {
+			case ListType lt -> identifier(lt.contentType()) + "_list";
+			case UnionType ut -> ut.types.stream().map(MonomorphizedStruct::identifier).sorted().collect(Collectors.joining("_or_"));
+			case StructType st -> st.name;
+			case BuiltInType bt -> bt.name().toLowerCase(Locale.ROOT);
+			default -> type.getName().replaceAll("[^A-Za-z0-9_$]", "_");
+		};
 	}
 
 	@Override
-	public int getReturnOpcode() {
-		return struct.getReturnOpcode();
+	public void markMutated() {
+		struct.markMutated();
 	}
 
 	@Override
-	public Class<?> getTypeClass() {
-		return struct.getTypeClass();
+	public boolean isMutated() {
+		return struct.isMutated();
 	}
 
 	@Override
-	public boolean isNumeric() {
-		return struct.isNumeric();
+	public boolean equals(Object obj) {
+		return this == obj;
 	}
 
 	@Override
-	public String kind() {
-		return struct.kind();
+	public int hashCode() {
+		return System.identityHashCode(this);
 	}
 
 	@Override
 	public String toString() {
-		return "type " + getName() + " = struct" + "[" + struct.generics.stream().map(g -> g + "=" + resolved.get(g)).collect(Collectors.joining(",")) + "]";
+		return "type " + struct.getName() + " = struct" + "[" + struct.generics.stream().map(g -> g + "=" + resolved.get(g)).collect(Collectors.joining(",")) + "]";
 	}
 }
@@ -0,0 +1,136 @@
+package com.kingmang.ixion.runtime;
+
+import com.kingmang.ixion.exception.Panic;
+
+/**
+ * Encoding of unions of primitive types into a single {@code long}
+ * Doubles are stored as their bits, every other member lives in the payload of a NaN that no double produces,
+ * with its tag in the bits above the 32-bit payload
+ * Locals, parameters, fields and {@link PackedUnionList} elements of such unions never allocate
+ */
+public final class PackedUnion {
+    public static final int DOUBLE = 0;
+    public static final int INT = 1;
+    public static final int FLOAT = 2;
+    public static final int BOOLEAN = 3;
+    public static final int CHAR = 4;
+
+    private static final long TAGGED = 0xFFF8_0000_0000_0000L;
+    private static final long TAG_MASK = 0xFFFF_FFF8_0000_0000L;
+    private static final long PAYLOAD = 0xFFFF_FFFFL;
+    private static final long CANONICAL_NAN = Double.doubleToLongBits(Double.NaN);
+
+    private PackedUnion() {
+    }
+
+    /**
+     * @param union A union type
+     * @return Whether every member of the union is a primitive the encoding can hold
+     */
+    public static boolean isPackable(UnionType union) {
+        return !union.types.isEmpty() && union.types.stream().allMatch(type -> type instanceof BuiltInType bt && tagOf(bt) >= 0);
+    }
+
+    /**
+     * @param type A member type
+     * @return The tag the member is stored with, or -1 if it cannot be packed
+     */
+    public static int tagOf(BuiltInType type) {
+        return switch (type) {
+            case DOUBLE -> DOUBLE;
+            case INT -> INT;
+            case FLOAT -> FLOAT;
+            case BOOLEAN -> BOOLEAN;
+            case CHAR -> CHAR;
+            default -> -1;
+        };
+    }
+
+    public static long ofInt(int value) {
+        return tagged(INT, value);
+    }
+
+    public static long ofFloat(float value) {
+        return tagged(FLOAT, Float.floatToRawIntBits(value));
+    }
+
+    public static long ofBoolean(boolean value) {
+        return tagged(BOOLEAN, value ? 1 : 0);
+    }
+
+    public static long ofChar(char value) {
+        return tagged(CHAR, value);
+    }
+
+    public static long ofDouble(double value) {
+        return Double.isNaN(value) ? CANONICAL_NAN : Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * @param bits A packed union
+     * @return The tag of the member the value holds
+     */
+    public static int tag(long bits) {
+        return (bits & TAG_MASK) == TAGGED ? (int) (bits >>> 32) & 0x7 : DOUBLE;
+    }
+
+    public static int asInt(long bits) {
+        return (int) bits;
+    }
+
+    public static float asFloat(long bits) {
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    public static boolean asBoolean(long bits) {
+        return (int) bits != 0;
+    }
+
+    public static char asChar(long bits) {
+        return (char) bits;
+    }
+
+    public static double asDouble(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * @param bits A packed union
+     * @return The member as a boxed object, for code that only knows about objects
+     */
+    public static Object box(long bits) {
+        return switch (tag(bits)) {
+            case INT -> asInt(bits);
+            case FLOAT -> asFloat(bits);
+            case BOOLEAN -> asBoolean(bits);
+            case CHAR -> asChar(bits);
+            default -> asDouble(bits);
+        };
+    }
+
+    /**
+     * @param value A boxed member of a primitive union
+     * @return The packed value
+     */
+    public static long pack(Object value) {
+        return switch (value) {
+            case Integer i -> ofInt(i);
+            case Float f -> ofFloat(f);
+            case Double d -> ofDouble(d);
+            case Boolean b -> ofBoolean(b);
+            case Character c -> ofChar(c);
+            case null, default -> {
+                new Panic("`" + value + "` is not a member of a primitive union").send();
+                yield 0;
+            }
+        };
+    }
+
+    public static String toString(long bits) {
+        return String.valueOf(box(bits));
+    }
+
+    private static long tagged(int tag, int payload) {
+        return TAGGED | (long) tag << 32 | payload & PAYLOAD;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kingmang.ixion.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of primitive unions backed by a {@code long[]} of {@link PackedUnion} values
+ * Ixion lists of unions like {@code int | float} compile to it, using the {@code Packed} methods so elements are never boxed
+ * It still is a {@code List<Object>} of the boxed members for code that only knows about lists
+ */
+public final class PackedUnionList extends AbstractList<Object> implements RandomAccess {
+    private static final long[] EMPTY = {};
+
+    private long[] elements;
+    private int size;
+
+    public PackedUnionList() {
+        this.elements = EMPTY;
+    }
+
+    /**
+     * @param capacity Number of elements the list holds before growing
+     */
+    public PackedUnionList(int capacity) {
+        this.elements = capacity == 0 ? EMPTY : new long[capacity];
+    }
+
+    /**
+     * @param values The boxed elements of the list
+     * @return A list holding the packed values
+     */
+    public static PackedUnionList of(Object... values) {
+        var list = new PackedUnionList(values.length);
+        for (Object value : values) {
+            list.addPacked(PackedUnion.pack(value));
+        }
+        return list;
+    }
+
+    public long getPacked(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    public long setPacked(int index, long value) {
+        Objects.checkIndex(index, size);
+        long previous = elements[index];
+        elements[index] = value;
+        return previous;
+    }
+
+    public void addPacked(long value) {
+        if (size == elements.length) grow();
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public long popPacked() {
+        Objects.checkIndex(size - 1, size);
+        modCount++;
+        return elements[--size];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        return PackedUnion.box(getPacked(index));
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        return PackedUnion.box(setPacked(index, PackedUnion.pack(value)));
+    }
+
+    @Override
+    public boolean add(Object value) {
+        addPacked(PackedUnion.pack(value));
+        return true;
+    }
+
+    @Override
+    public void add(int index, Object value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == elements.length) grow();
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = PackedUnion.pack(value);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        Objects.checkIndex(index, size);
+        long removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return PackedUnion.box(removed);
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void grow() {
+        elements = Arrays.copyOf(elements, Math.max(8, elements.length + (elements.length >> 1)));
+    }
+}
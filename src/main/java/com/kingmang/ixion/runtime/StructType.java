@@ -5,6 +5,8 @@ import org.objectweb.asm.Opcodes;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 public class StructType implements IxType, Serializable {
@@ -13,6 +15,8 @@ public class StructType implements IxType, Serializable {
     public String name;
     public String qualifiedName;
     public String parentName;
+    private final Map<String, MonomorphizedStruct> specializations = new TreeMap<>();
+    private volatile boolean mutated;
 
     public StructType(String name, List<Pair<String, IxType>> identifiers, List<String> generics) {
         this.name = name;
@@ -71,6 +75,37 @@ public class StructType implements IxType, Serializable {
         return !generics.isEmpty();
     }
 
+    /**
+     * @param resolved Concrete types of the generics, missing ones are bound to any
+     * @return The canonical instantiation of this struct for the bindings
+     */
+    public synchronized MonomorphizedStruct specialize(Map<String, IxType> resolved) {
+        return specializations.computeIfAbsent(MonomorphizedStruct.suffix(this, resolved), suffix -> new MonomorphizedStruct(this, resolved));
+    }
+
+    /**
+     * @return Every instantiation created so far, ordered by name
+     */
+    public synchronized List<MonomorphizedStruct> specializations() {
+        return List.copyOf(specializations.values());
+    }
+
+    /**
+     * Records that some file assigns to a field of the struct
+     */
+    public void markMutated() {
+        mutated = true;
+    }
+
+    /**
+     * Structs no file assigns to compile to final fields with value equality
+     * Only final once every file importing the declaring one is type checked, which is when its classes can be generated
+     * @return Whether a field of the struct is assigned after construction
+     */
+    public boolean isMutated() {
+        return mutated;
+    }
+
     @Override
     public boolean isNumeric() {
         return false;
@@ -18,9 +18,16 @@ public class UnionType implements IxType {
         return null;
     }
 
+    /**
+     * @return Whether values of the union are stored unboxed as a {@link PackedUnion}
+     */
+    public boolean isPacked() {
+        return PackedUnion.isPackable(this);
+    }
+
     @Override
     public String getDescriptor() {
-        return "Ljava/lang/Object;";
+        return isPacked() ? "J" : "Ljava/lang/Object;";
     }
 
 
@@ -31,7 +38,7 @@ public class UnionType implements IxType {
 
     @Override
     public int getLoadVariableOpcode() {
-        return Opcodes.ALOAD;
+        return isPacked() ? Opcodes.LLOAD : Opcodes.ALOAD;
     }
 
     @Override
@@ -42,7 +49,7 @@ public class UnionType implements IxType {
 
     @Override
     public int getReturnOpcode() {
-        return Opcodes.ARETURN;
+        return isPacked() ? Opcodes.LRETURN : Opcodes.ARETURN;
     }
 
 
@@ -0,0 +1,68 @@
+package com.kingmang.ixion.typechecker;
+
+import com.kingmang.ixion.modules.Prelude;
+import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.runtime.DefType;
+import com.kingmang.ixion.runtime.IxType;
+import com.kingmang.ixion.runtime.ListType;
+import org.objectweb.asm.Type;
+
+/**
+ * Prelude functions the code generators emit inline when the type of the collection is known statically
+ * Calls on any other value still go through the prelude
+ */
+public enum Intrinsic {
+    LEN("len", 1),
+    LIST_GET("list_get", 2),
+    LIST_APPEND("list_append", 2),
+    LIST_POP("list_pop", 1);
+
+    private static final String PRELUDE = Type.getInternalName(Prelude.class);
+
+    public final String function;
+    private final int arity;
+
+    Intrinsic(String function, int arity) {
+        this.function = function;
+        this.arity = arity;
+    }
+
+    /**
+     * @param callee The called function
+     * @param argumentCount The number of arguments of the call
+     * @return The intrinsic the call refers to, or null if it is an ordinary call
+     */
+    public static Intrinsic of(DefType callee, int argumentCount) {
+        if (!callee.glue || !PRELUDE.equals(callee.owner)) return null;
+        for (Intrinsic intrinsic : values()) {
+            if (intrinsic.function.equals(callee.name) && intrinsic.arity == argumentCount) {
+                return intrinsic;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param collection The type of the first argument
+     * @return Whether the call can be emitted inline for that type
+     */
+    public boolean accepts(IxType collection) {
+        return switch (this) {
+            case LEN -> collection instanceof ListType || collection == BuiltInType.STRING || TypeUtils.isIndexedCollection(collection);
+            case LIST_GET -> collection instanceof ListType || TypeUtils.isIndexedCollection(collection);
+            case LIST_APPEND, LIST_POP -> collection instanceof ListType;
+        };
+    }
+
+    /**
+     * @param collection The type of the first argument, accepted by {@link #accepts(IxType)}
+     * @return The type the inline operation produces
+     */
+    public IxType returnType(IxType collection) {
+        return switch (this) {
+            case LEN -> BuiltInType.INT;
+            case LIST_APPEND -> BuiltInType.VOID;
+            case LIST_GET, LIST_POP -> collection instanceof ListType lt ? lt.contentType() : BuiltInType.ANY;
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.kingmang.ixion.typechecker;
+
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxFile;
+import com.kingmang.ixion.ast.DefStatement;
+import com.kingmang.ixion.ast.ExportStatement;
+import com.kingmang.ixion.ast.Statement;
+import com.kingmang.ixion.exception.IxException;
+import com.kingmang.ixion.runtime.DefType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type checks the top-level function bodies of a file concurrently
+ * Signatures and every other statement are checked first, in order, so bodies only read shared types
+ * Every statement collects its own errors, merged in statement order afterwards so the diagnostics
+ * match a sequential check
+ */
+public class ParallelTypeChecker {
+
+    /**
+     * @param ixApi The API instance for error reporting
+     * @param source A file with a built environment and linked imports
+     */
+    public static void check(IxApi ixApi, IxFile source) {
+        var declarationApi = ixApi.fork();
+        var declarations = new TypeCheckVisitor(declarationApi, source.rootContext, source);
+        List<List<IxException.Data>> errors = new ArrayList<>();
+        List<Body> bodies = new ArrayList<>();
+
+        for (Statement statement : source.statements) {
+            var function = asFunction(statement);
+            if (function == null) {
+                statement.accept(declarations);
+            } else {
+                var funcType = declarations.resolveSignature(function);
+                if (funcType != null) {
+                    bodies.add(new Body(function, funcType, ixApi.fork(), errors.size()));
+                }
+            }
+            errors.add(new ArrayList<>(declarationApi.errorData));
+            declarationApi.errorData.clear();
+        }
+
+        bodies.parallelStream().forEach(body -> {
+            var visitor = new TypeCheckVisitor(body.ixApi(), source.rootContext, source);
+            visitor.checkBody(body.function(), body.funcType());
+        });
+
+        for (Body body : bodies) {
+            errors.get(body.statement()).addAll(body.ixApi().errorData);
+        }
+        errors.forEach(ixApi.errorData::addAll);
+    }
+
+    private static DefStatement asFunction(Statement statement) {
+        if (statement instanceof ExportStatement export) {
+            statement = export.stmt;
+        }
+        return statement instanceof DefStatement function ? function : null;
+    }
+
+    /**
+     * A function body to check, with the index of its statement in the file
+     */
+    private record Body(DefStatement function, DefType funcType, IxApi ixApi, int statement) {
+    }
+}
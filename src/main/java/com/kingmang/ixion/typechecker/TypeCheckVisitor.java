@@ -14,7 +14,10 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.stream.Collectors;
@@ -28,6 +31,7 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
     public final Context rootContext;
     public final File file;
     public final IxApi ixApi;
+    private final IxFile source;
     private final Stack<DefType> functionStack = new Stack<>();
     public Context currentContext;
 
@@ -39,6 +43,7 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
     public TypeCheckVisitor(IxApi ixApi, Context rootContext, IxFile ixFile) {
         this.rootContext = rootContext;
         this.file = ixFile.file;
+        this.source = ixFile;
         this.currentContext = this.rootContext;
         this.ixApi = ixApi;
     }
@@ -88,6 +93,11 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
                 if (!TypeResolver.typesMatch(lType, rType)) {
                     new ParameterTypeMismatchException().send(ixApi, file, expr.left, rType.getName());
                 }
+                int last = pa.identifiers.size() - 1;
+                if (last < pa.typeChain.size() && pa.typeChain.get(last) instanceof StructType owner) {
+                    owner.markMutated();
+                    source.contributeMutation(owner);
+                }
 
             }
             default -> throw new IllegalStateException("Unexpected value: " + expr.left.getRealType());
@@ -143,6 +153,10 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
                         }
                     }
                     totalType = BuiltInType.BOOLEAN;
+                } else if (expr.operator.type() == TokenType.EQUAL || expr.operator.type() == TokenType.NOTEQUAL) {
+                    totalType = BuiltInType.BOOLEAN;
+                } else {
+                    new CannotApplyOperatorException().send(ixApi, file, expr, expr.operator.source());
                 }
             }
             case AND, OR, XOR -> {
@@ -153,6 +167,12 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
                     totalType = BuiltInType.BOOLEAN;
                 }
             }
+            case RANGE -> {
+                if (t1.get() != BuiltInType.INT || t2.get() != BuiltInType.INT) {
+                    new CannotApplyOperatorException().send(ixApi, file, expr, expr.operator.source());
+                }
+                totalType = new ExternalType(IntRange.class);
+            }
 
             default -> {
             }
@@ -192,6 +212,8 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
                     + "]", 95);
 
         var t = e.orElseThrow();
+        // checked once here and reused by inline prelude calls, so argument errors are reported once
+        List<IxType> argumentTypes = new ArrayList<>();
         if (t instanceof StructType st) {
             if (st.parameters.size() != expr.arguments.size()) {
                 var params = st.parameters.stream().map(s -> s.getValue1().getName()).collect(Collectors.joining(", "));
@@ -200,25 +222,56 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
             }
             updateUnknownParameters(expr, st);
 
+            Map<String, IxType> bindings = new HashMap<>();
             CollectionUtil.zip(st.parameters, expr.arguments, (param, arg) -> {
                 var at = arg.accept(this);
-                at.ifPresent(type -> typecheckCallParameters(param, arg, type));
+                argumentTypes.add(at.orElse(null));
+                at.ifPresent(type -> {
+                    typecheckCallParameters(param, arg, type);
+                    bindGenerics(param.getValue1(), type, bindings);
+                });
             });
+            if (st.hasGenerics() && !(st instanceof DefType)) {
+                var specialization = st.specialize(bindings);
+                source.specializations.add(specialization);
+                t = specialization;
+            }
         }
 
         if (t instanceof DefType ft) {
-            var rt = ft.returnType;
-            if (ft.hasGenerics()) {
-
-                var specialization = ft.buildSpecialization(expr.arguments);
+            var intrinsic = Intrinsic.of(ft, expr.arguments.size());
+            if (intrinsic != null) {
+                var collection = argumentTypes.getFirst();
+                if (collection != null && intrinsic.accepts(collection)) {
+                    return checkIntrinsic(expr, intrinsic, collection, argumentTypes);
+                }
+            }
 
-                ft.specializations.add(specialization);
+            IxType rt;
+            Map<String, IxType> specialization = null;
+            // imported functions are shared by every module importing them, which may be checked concurrently
+            synchronized (ft) {
+                if (ft.returnType instanceof UnknownType ut) {
+                    var attempt = currentContext.getVariable(ut.typeName);
+                    if (attempt != null) {
+                        ft.returnType = attempt;
+                    }
+                }
 
-                if (rt instanceof GenericType(String key)) {
-                    rt = specialization.get(key);
+                rt = ft.returnType;
+                if (ft.hasGenerics() && !ft.glue) {
+                    specialization = ft.specialize(expr.arguments.stream().map(Expression::getRealType).toList());
+                    if (specialization != null) {
+                        source.contributeSpecialization(ft, specialization);
+                    }
                 }
             }
 
+            if (rt instanceof GenericType(String key)) {
+                rt = specialization != null ? specialization.get(key) : erasedBinding(ft, expr, key);
+            }
+            expr.specialization = specialization;
+
             expr.setRealType(rt);
 
             return Optional.of(rt);
@@ -232,6 +285,21 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
         return Optional.empty();
     }
 
+    /**
+     * @return The type a generic of an erased call resolves to, any when its arguments disagree
+     */
+    private static IxType erasedBinding(DefType ft, CallExpression expr, String key) {
+        IxType bound = null;
+        for (int i = 0; i < ft.parameters.size() && i < expr.arguments.size(); i++) {
+            if (ft.parameters.get(i).getValue1() instanceof GenericType(String k) && k.equals(key)) {
+                var at = expr.arguments.get(i).getRealType();
+                if (bound != null && !bound.equals(at)) return BuiltInType.ANY;
+                bound = at;
+            }
+        }
+        return bound != null ? bound : new GenericType(key);
+    }
+
     @NotNull
     @Override
     public Optional<IxType> visitEmpty(EmptyExpression empty) {
@@ -245,6 +313,12 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
     @NotNull
     @Override
     public Optional<IxType> visitEmptyList(EmptyListExpression emptyList) {
+        if (emptyList.getRealType() instanceof ListType(UnknownType ukt)) {
+            var attempt = currentContext.getVariable(ukt.typeName);
+            if (attempt != null) {
+                emptyList.setRealType(new ListType(attempt));
+            }
+        }
         if (emptyList.getRealType() != null) {
             return Optional.of(emptyList.getRealType());
         }
@@ -297,8 +371,10 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
         if (b.isPresent()) {
             switch (b.get()) {
                 case ExternalType et -> {
-                    if (et.foundClass.getName().equals("java.util.Iterator")) {
+                    if (et.foundClass == IntRange.class || et.foundClass.getName().equals("java.util.Iterator")) {
                         currentContext.setVariableType(statement.name.source(), BuiltInType.INT);
+                    } else if (TypeUtils.isIndexedCollection(et)) {
+                        currentContext.setVariableType(statement.name.source(), BuiltInType.ANY);
                     }
                 }
                 case ListType lt -> {
@@ -322,10 +398,21 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
      */
     @Override
     public Optional<IxType> visitFunctionStmt(DefStatement statement) {
+        var funcType = resolveSignature(statement);
+        if (funcType != null) {
+            checkBody(statement, funcType);
+        }
+        return Optional.empty();
+    }
 
+    /**
+     * Resolves the parameter and return types of a function declared in the current context
+     * @param statement Function declaration
+     * @return The function type, or null if the function was not declared
+     */
+    public DefType resolveSignature(DefStatement statement) {
         var funcType = currentContext.getVariableTyped(statement.name.source(), DefType.class);
         if (funcType != null) {
-            functionStack.add(funcType);
             var childEnvironment = statement.body.context;
 
             var parametersBefore = funcType.parameters;
@@ -364,25 +451,31 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
                     new IdentifierNotFoundException().send(ixApi, file, statement, ut.typeName);
                 }
             }
+        }
+        return funcType;
+    }
 
-            currentContext = childEnvironment;
-
-            statement.body.accept(this);
-
-            if (!funcType.hasReturn2) {
-                var returnStmt = new ReturnStatement(
-                        new Position(0, 0),
-                        new EmptyExpression(new Position(0, 0))
-                );
-                statement.body.statements.add(returnStmt);
-            }
-
-            currentContext = currentContext.parent;
-            functionStack.pop();
-
-
+    /**
+     * Type checks the body of a function whose signature is resolved
+     * @param statement Function declaration
+     * @param funcType The resolved function type
+     */
+    public void checkBody(DefStatement statement, DefType funcType) {
+        functionStack.add(funcType);
+        currentContext = statement.body.context;
+
+        statement.body.accept(this);
+
+        if (!funcType.hasReturn2) {
+            var returnStmt = new ReturnStatement(
+                    new Position(0, 0),
+                    new EmptyExpression(new Position(0, 0))
+            );
+            statement.body.statements.add(returnStmt);
         }
-        return Optional.empty();
+
+        currentContext = currentContext.parent;
+        functionStack.pop();
     }
 
     /**
@@ -392,7 +485,9 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
     @NotNull
     @Override
     public Optional<IxType> visitGroupingExpr(GroupingExpression expr) {
-        return expr.expression.accept(this);
+        var t = expr.expression.accept(this);
+        t.ifPresent(expr::setRealType);
+        return t;
     }
 
     /**
@@ -561,7 +656,9 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
     @NotNull
     @Override
     public Optional<IxType> visitPrefix(PrefixExpression expr) {
-        return expr.right.accept(this);
+        var t = expr.right.accept(this);
+        t.ifPresent(expr::setRealType);
+        return t;
     }
 
     /**
@@ -579,16 +676,7 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
             var exprType = t.get();
             StructType pointer;
             IxType result = null;
-            if (exprType instanceof MonomorphizedStruct mt) {
-                pointer = mt.struct;
-                typeChain.add(pointer);
-                result = pointer;
-
-                result = getTempMSTType(expr, typeChain, pointer, result);
-                if (result instanceof GenericType gt) {
-                    result = mt.resolved.get(gt.key());
-                }
-            } else if (exprType instanceof StructType st) {
+            if (exprType instanceof StructType st) {
                 pointer = st;
                 typeChain.add(pointer);
                 result = st;
@@ -782,6 +870,47 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
         return result;
     }
 
+    /**
+     * Checks the remaining arguments of an inline prelude call against the collection it operates on
+     * @param expr The call
+     * @param intrinsic The prelude function being called
+     * @param collection The type of the first argument
+     * @param argumentTypes The types of every argument, null where checking failed
+     * @return Optional containing the element type, length or void result of the call
+     */
+    private Optional<IxType> checkIntrinsic(CallExpression expr, Intrinsic intrinsic, IxType collection, List<IxType> argumentTypes) {
+        var returnType = intrinsic.returnType(collection);
+        switch (intrinsic) {
+            case LIST_GET -> checkIntrinsicArgument(expr.arguments.get(1), argumentTypes.get(1), BuiltInType.INT);
+            case LIST_APPEND -> checkIntrinsicArgument(expr.arguments.get(1), argumentTypes.get(1), ((ListType) collection).contentType());
+            default -> {
+            }
+        }
+        expr.intrinsic = intrinsic;
+        expr.setRealType(returnType);
+        return Optional.of(returnType);
+    }
+
+    private void checkIntrinsicArgument(Expression arg, IxType type, IxType expected) {
+        if (type != null) {
+            typecheckCallParameters(Pair.with("_", expected), arg, type);
+        }
+    }
+
+    /**
+     * Binds the generics a struct field mentions to the type of the argument passed for it
+     * @param parameterType The declared type of the field
+     * @param argumentType The type of the argument
+     * @param bindings Bindings found so far, the first argument for a generic wins
+     */
+    private static void bindGenerics(IxType parameterType, IxType argumentType, Map<String, IxType> bindings) {
+        if (parameterType instanceof GenericType(String key)) {
+            bindings.putIfAbsent(key, argumentType);
+        } else if (parameterType instanceof ListType(IxType content) && argumentType instanceof ListType(IxType argumentContent)) {
+            bindGenerics(content, argumentContent, bindings);
+        }
+    }
+
     /**
      * Validate that function call arguments match parameter types
      * @param param Function parameter (name, type)
@@ -807,6 +936,16 @@ public class TypeCheckVisitor implements Visitor<Optional<IxType>> {
      * @param structType Struct or function type being called
      */
     private void updateUnknownParameters(CallExpression expr, StructType structType) {
+        synchronized (structType) {
+            resolveUnknownParameters(expr, structType);
+        }
+    }
+
+    private void resolveUnknownParameters(CallExpression expr, StructType structType) {
+        if (structType.parameters.stream().noneMatch(p -> p.getValue1() instanceof UnknownType)) {
+            return;
+        }
+
         var parametersAfter = new ArrayList<Pair<String, IxType>>();
         CollectionUtil.zip(structType.parameters, expr.arguments, (param, arg) -> {
             if (param.getValue1() instanceof UnknownType ut) {
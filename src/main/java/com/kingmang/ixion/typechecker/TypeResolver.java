@@ -56,7 +56,10 @@ public class TypeResolver {
             return typesMatch(parContentType, argContentType);
         }
 
-        // struct
+        // struct, where an instantiation of a generic struct is also an instance of the generic struct
+        if (arg instanceof MonomorphizedStruct amt && par instanceof StructType pst && !(par instanceof MonomorphizedStruct)) {
+            return amt.struct == pst || typesMatch(pst, amt.struct);
+        }
         if (arg instanceof StructType ast && par instanceof StructType pst) {
             return ast.parameters.equals(pst.parameters) && ast.name.equals(pst.name);
         }
@@ -65,6 +68,9 @@ public class TypeResolver {
         if (par instanceof ExternalType && arg instanceof ExternalType) {
             return par.getName().equals(arg.getName());
         }
+        if (par instanceof ExternalType && arg instanceof BuiltInType || par instanceof BuiltInType && arg instanceof ExternalType) {
+            return parTypeClass != null && parTypeClass.equals(argTypeClass);
+        }
 
 
         if (isList(arg) && par instanceof ExternalType extPar) {
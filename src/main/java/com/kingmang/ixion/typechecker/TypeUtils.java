@@ -2,6 +2,8 @@ package com.kingmang.ixion.typechecker;
 
 import com.kingmang.ixion.lexer.TokenType;
 import com.kingmang.ixion.runtime.BuiltInType;
+import com.kingmang.ixion.runtime.ExternalType;
+import com.kingmang.ixion.runtime.IndexedCollection;
 import com.kingmang.ixion.runtime.IxType;
 import org.javatuples.Pair;
 
@@ -22,6 +24,14 @@ public class TypeUtils {
         return null;
     }
 
+    /**
+     * @param type The type of an expression
+     * @return Whether the value is an external collection that can be walked by index
+     */
+    public static boolean isIndexedCollection(IxType type) {
+        return type instanceof ExternalType et && IndexedCollection.class.isAssignableFrom(et.foundClass);
+    }
+
     public static String getMethodDescriptor(Collection<Pair<String, IxType>> parameters, IxType returnType) {
         String parametersDescriptor = parameters.stream()
                 .map(parameter -> parameter.getValue1().getDescriptor())
@@ -1,37 +1,97 @@
 import com.kingmang.ixion.Ixion;
+import com.kingmang.ixion.api.CompilerOptions;
+import com.kingmang.ixion.api.IxApi;
+import com.kingmang.ixion.api.IxionConstant;
+import com.kingmang.ixion.exception.IxException;
+import com.kingmang.ixion.lexer.LexerImpl;
+import com.kingmang.ixion.lexer.TokenType;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class ExamplesTest {
 
     @Test
     void adt() {
-        ixAssert("adt.ix", """
+        var expected = """
                 value 10 is integer
                 value 10.0 is float
-                """);
+                value 1 is integer
+                value 2.5 is float
+                [1, 2.5]
+                """;
+        ixAssert("adt.ix", expected);
+        ixAssert("adt.ix", expected, "--parallel-check");
+    }
+
+    @Test
+    void functions() {
+        var expected = """
+                55
+                3.5
+                12
+                2000000
+                odd even
+                point{x=11, y=2}
+                125
+                true
+                """;
+        ixAssert("functions.ix", expected);
+        // steps recurses a million times, which only fits the stack as a loop
+        ixAssert("functions.ix", expected, "--java");
+        // at -O2 small functions are inlined and the numeric ones are emitted from their IR
+        ixAssert("functions.ix", expected, "-O2");
+        ixAssert("functions.ix", expected, "-O2", "--java");
+        ixAssert("functions.ix", expected, "--parallel-check");
     }
 
     @Test
     void generics(){
-        ixAssert("generics.ix", """
+        var expected = """
                 Hello
                 10
-                """);
+                b
+                15
+                labelled{label=a, value=Hello}
+                23
+                right
+                """;
+        ixAssert("generics.ix", expected);
+        ixAssert("generics.ix", expected, "--parallel-check");
     }
 
     @Test
     void loops(){
-        ixAssert("loops.ix", """
+        var expected = """
                 1
                 2
                 3
                 4
                 5
                 ----
+                7
+                8
+                9
+                1
+                2
+                ----
                 i is 10
                 i is 11
                 i is 12
@@ -42,27 +102,194 @@ public class ExamplesTest {
                 i is 17
                 i is 18
                 i is 19
-                """);
+                j is 0
+                j is 1
+                j is 2
+                8
+                done at 20
+                """;
+        ixAssert("loops.ix", expected);
+        // without folding, javac sees the constant loop conditions
+        ixAssert("loops.ix", expected, "-O0", "--java");
+        ixAssert("loops.ix", expected, "--parallel-check");
     }
 
     @Test
     void simple_list(){
-        ixAssert("simple_list.ix", """
+        var expected = """
                 [1, 2, 3]
                 [20]
-                """);
+                """;
+        ixAssert("simple_list.ix", expected);
+        ixAssert("simple_list.ix", expected, "--parallel-check");
+    }
+
+    @Test
+    void primitive_lists(){
+        var expected = """
+                10
+                [1.5]
+                false
+                [true]
+                c3
+                8
+                """;
+        ixAssert("primitive_lists.ix", expected);
+        ixAssert("primitive_lists.ix", expected, "--parallel-check");
     }
 
     @Test
     void struct(){
-        ixAssert("struct.ix", """
+        var expected = """
                 value{left{first}, right{second}}
+                true
+                true
+                """;
+        ixAssert("struct.ix", expected);
+        ixAssert("struct.ix", expected, "--parallel-check");
+    }
+
+    @Test
+    void keywords() {
+        // `_` is a keyword although it does not start with a letter
+        var types = new ArrayList<TokenType>();
+        var lexer = new LexerImpl("_ _x struct");
+        for (var token = lexer.tokenize(); token.type() != TokenType.EOF; token = lexer.tokenize()) {
+            types.add(token.type());
+        }
+        assertEquals(List.of(TokenType.DEFAULT, TokenType.IDENTIFIER, TokenType.STRUCT), types);
+    }
+
+    @Test
+    void type_errors() {
+        var expected = ixErrors("type_errors.ix");
+        assertEquals(List.of(3, 7, 11, 15, 15), expected.stream().map(IxException.Data::line).toList());
+        // bodies checked in parallel report in the order a sequential check does
+        assertEquals(expected, ixErrors("type_errors.ix", "--parallel-check"));
+    }
+
+    @Test
+    void intrinsic_errors() {
+        // arguments of inline prelude calls are checked once, whether or not the call is inlined
+        assertEquals(2, ixErrors("intrinsic_errors.ix").size());
+    }
+
+    @Test
+    void modules(@TempDir Path root) throws IOException {
+        ixAssert("modules/specialize.ix", "5\n");
+
+        FileUtils.copyDirectory(new File("src/test/resources"), root.toFile());
+        ixBuildAssert(root, "modules/specialize.ix", "5\n");
+        // lib is unchanged, but its classes need the instantiation the edited importer asks for
+        var entry = root.resolve("modules/specialize.ix");
+        Files.writeString(entry, Files.readString(entry).replace("id(5)", "id(1.5)"));
+        ixBuildAssert(root, "modules/specialize.ix", "1.5\n");
+        // switching the optimization level rebuilds unchanged modules with the other passes
+        ixBuildAssert(root, "modules/specialize.ix", "1.5\n", "-O0");
+        assertTrue(Files.readString(root.resolve(IxionConstant.OUT_DIR).resolve("modules/lib.ixc")).contains("pipeline \n"));
+        ixBuildAssert(root, "modules/specialize.ix", "1.5\n", "-O2");
+        assertTrue(Files.readString(root.resolve(IxionConstant.OUT_DIR).resolve("modules/lib.ixc")).contains("pipeline fold,inline,lower,ir-opt\n"));
+
+        ixAssert("modules/mutate.ix", "point{x=5, y=2}\n");
+        // shapes is first built with final fields, then an importer starts assigning one
+        var mutate = root.resolve("modules/mutate.ix");
+        var original = Files.readString(mutate);
+        Files.writeString(mutate, original.replace("p.x = 5", ""));
+        ixBuildAssert(root, "modules/mutate.ix", "point{x=1, y=2}\n");
+        Files.writeString(mutate, original);
+        ixBuildAssert(root, "modules/mutate.ix", "point{x=5, y=2}\n");
+        // shapes changes without its importer, which keeps its classes and still has the field assigned
+        var assigning = root.resolve(IxionConstant.OUT_DIR).resolve("modules/mutate.class");
+        Files.setLastModifiedTime(assigning, FileTime.fromMillis(0));
+        var shapes = root.resolve("modules/shapes.ix");
+        Files.writeString(shapes, Files.readString(shapes) + "\n");
+        assertEquals(Set.of("shapes.ix"), ixBuildParsed(root, "modules/mutate.ix"));
+        ixBuildAssert(root, "modules/mutate.ix", "point{x=5, y=2}\n");
+        assertEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(assigning));
+    }
+
+    @Test
+    void diamond_modules(@TempDir Path root) throws IOException {
+        // left and right both import base, and each asks it for another instantiation of second
+        var diamond = """
+                6
+                13
+                7
+                1.5
+                """;
+        ixAssert("modules/diamond.ix", diamond);
+        ixAssert("modules/diamond.ix", diamond, "--parallel-check");
+
+        // a clean build analyzes all four modules at once, checking left and right side by side
+        FileUtils.copyDirectory(new File("src/test/resources"), root.toFile());
+        ixBuildAssert(root, "modules/diamond.ix", diamond);
+        // an edit to base reaches main through both sides of the diamond
+        var base = root.resolve("modules/base.ix");
+        Files.writeString(base, Files.readString(base).replace("p.a + p.b", "p.a * p.b"));
+        ixBuildAssert(root, "modules/diamond.ix", """
+                9
+                30
+                7
+                1.5
+                """, "--parallel-check");
+
+        // a body-only edit of base keeps the classes of every importer, left and right are only checked again
+        // for the instantiations of second the classes of base need
+        var out = root.resolve(IxionConstant.OUT_DIR).resolve("modules");
+        var untouched = FileTime.fromMillis(0);
+        var importers = List.of("left.class", "right.class", "diamond.class");
+        for (var name : importers) {
+            Files.setLastModifiedTime(out.resolve(name), untouched);
+        }
+        Files.writeString(base, Files.readString(base).replace("return b\n", "var c = b\n    return c\n"));
+        assertEquals(Set.of("base.ix", "left.ix", "right.ix"), ixBuildParsed(root, "modules/diamond.ix"));
+        ixBuildAssert(root, "modules/diamond.ix", """
+                9
+                30
+                7
+                1.5
                 """);
+        for (var name : importers) {
+            assertEquals(untouched, Files.getLastModifiedTime(out.resolve(name)));
+        }
     }
 
-    void ixAssert(String runPath, String resPath) {
+    void ixAssert(String runPath, String resPath, String... options) {
         Ixion api = new Ixion();
+        api.parseArguments(options);
         assertDoesNotThrow(() -> assertEquals(resPath, api.getCompiledProgramOutput("/src/test/resources/" + runPath)));
     }
 
+    /**
+     * Analyzes a file that does not type check
+     * @return The diagnostics, in the order they are reported
+     */
+    List<IxException.Data> ixErrors(String runPath, String... options) {
+        var compilerOptions = new CompilerOptions();
+        compilerOptions.parallelFunctionChecks = List.of(options).contains("--parallel-check");
+        var api = new IxApi(null, compilerOptions);
+        var error = assertThrows(IxException.CompilerError.class,
+                () -> api.analyze(System.getProperty("user.dir"), "src/test/resources/" + runPath));
+        return List.copyOf(error.getErrorData());
+    }
+
+    /**
+     * Builds class files under the output directory of a project
+     * @return The names of the files the build had to parse
+     */
+    Set<String> ixBuildParsed(Path root, String runPath) {
+        var api = new IxApi(null, new CompilerOptions());
+        assertDoesNotThrow(() -> api.compile(root.toString(), runPath));
+        return api.compilationSet().keySet().stream().map(FilenameUtils::getName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Builds class files under the output directory of a project, as a run without --in-memory does
+     */
+    void ixBuildAssert(Path root, String runPath, String resPath, String... options) {
+        Ixion api = new Ixion(root.toString(), null);
+        api.parseArguments(options);
+        assertEquals(resPath, api.getBuiltProgramOutput(runPath));
+    }
+
 }
\ No newline at end of file